@@ -3,13 +3,17 @@ package org.kirkiano.rpg.bank;
 import org.kirkiano.rpg.bank.config.ObjectMapperConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 /**
  * Top-level application
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 @Import(ObjectMapperConfig.class)
 public class BankApplication {
 
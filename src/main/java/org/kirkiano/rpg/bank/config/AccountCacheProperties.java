@@ -0,0 +1,26 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for the in-process cache of accounts
+ *
+ * @param enabled whether reads of single accounts should be cached
+ * @param size maximum number of accounts kept, and separately of
+ *             character IDs mapped to their accounts
+ * @param stripes number of independently locked segments of the cache
+ * @param ttl how long an account is kept after it is loaded. Writes
+ *            made through this instance evict it at once; this bounds
+ *            how stale writes made through other instances leave it.
+ */
+@ConfigurationProperties(prefix = "bank.account-cache")
+public record AccountCacheProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("10000") int size,
+    @DefaultValue("16") int stripes,
+    @DefaultValue("5s") Duration ttl
+) {}
@@ -0,0 +1,24 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for coalescing concurrent balance changes to the same account
+ * into a single database update
+ *
+ * @param enabled whether single balance changes are coalesced at all
+ * @param window how long the first change to an account waits for
+ *               others to join it
+ * @param maxBatchSize number of changes at which a batch is flushed
+ *                     without waiting out the window
+ */
+@ConfigurationProperties(prefix = "bank.coalescing")
+public record CoalescingProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("2ms") Duration window,
+    @DefaultValue("64") int maxBatchSize
+) {}
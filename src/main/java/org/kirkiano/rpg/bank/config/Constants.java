@@ -26,6 +26,16 @@ public interface Constants {
      */
     String PAGE_NUMBER_KEY = "pageNumber";
 
+    /**
+     * Query parameter name for a keyset pagination cursor
+     */
+    String CURSOR_KEY = "cursor";
+
+    /**
+     * Header name of the cursor to the next page of a keyset listing
+     */
+    String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     /**
      * Query parameter name for sorting
      */
@@ -46,4 +56,14 @@ public interface Constants {
      */
     String ERROR_CODE_NUMBER = "errorNumber";
 
+    /**
+     * Header name of the key making a balance change idempotent
+     */
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * Media type of the Smile binary JSON format, as named by Jackson
+     */
+    String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
 }
@@ -0,0 +1,26 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for profiling contention on accounts
+ *
+ * @param enabled whether contention is profiled at all
+ * @param sampleRate fraction, between 0 and 1, of writes whose lock
+ *                   wait is timed. Conflicts are always counted.
+ * @param maxAccounts maximum number of accounts tracked at once. Once
+ *                    reached, further accounts displace the least
+ *                    contended.
+ * @param decayInterval interval at which all figures are halved
+ */
+@ConfigurationProperties(prefix = "bank.contention")
+public record ContentionProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("0.1") double sampleRate,
+    @DefaultValue("10000") int maxAccounts,
+    @DefaultValue("PT1M") Duration decayInterval
+) {}
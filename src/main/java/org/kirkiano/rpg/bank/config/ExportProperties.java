@@ -0,0 +1,18 @@
+package org.kirkiano.rpg.bank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for the export of all accounts
+ *
+ * @param fetchSize number of rows the JDBC driver fetches from the
+ *                  database cursor at a time. This, rather than the
+ *                  number of accounts, bounds the memory an export
+ *                  takes.
+ */
+@ConfigurationProperties(prefix = "bank.export")
+public record ExportProperties(
+    @DefaultValue("1000") int fetchSize
+) {}
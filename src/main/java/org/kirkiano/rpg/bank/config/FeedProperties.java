@@ -0,0 +1,30 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for the feed of balance changes, streamed to subscribers as
+ * server-sent events
+ *
+ * @param bufferSize number of changes held for each subscriber. Changes
+ *                   to a subscriber whose buffer is full are dropped.
+ * @param maxAccounts number of accounts a subscriber may follow
+ * @param heartbeatInterval how often idle subscribers are sent a
+ *                          comment, so that connections closed by
+ *                          clients are noticed. Must be in ISO-8601 form
+ *                          (eg, {@code PT15S}), as it also drives a
+ *                          schedule.
+ * @param timeout how long a subscription lasts before the client must
+ *                reconnect
+ */
+@ConfigurationProperties(prefix = "bank.feed")
+public record FeedProperties(
+    @DefaultValue("256") int bufferSize,
+    @DefaultValue("1000") int maxAccounts,
+    @DefaultValue("PT15S") Duration heartbeatInterval,
+    @DefaultValue("1h") Duration timeout
+) {}
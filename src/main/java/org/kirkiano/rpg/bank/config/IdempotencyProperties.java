@@ -0,0 +1,27 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for idempotency keys of balance changes
+ *
+ * @param ttl how long a key, and the outcome stored under it, is kept
+ * @param cacheSize maximum number of outcomes kept in memory. Older
+ *                  ones are then read back from the database.
+ * @param cacheStripes number of independently locked segments of the
+ *                     in-memory cache
+ * @param purgeInterval how often expired keys are deleted from the
+ *                      database. Must be in ISO-8601 form (eg,
+ *                      {@code PT1H}), as it also drives a schedule.
+ */
+@ConfigurationProperties(prefix = "bank.idempotency")
+public record IdempotencyProperties(
+    @DefaultValue("24h") Duration ttl,
+    @DefaultValue("10000") int cacheSize,
+    @DefaultValue("16") int cacheStripes,
+    @DefaultValue("PT1H") Duration purgeInterval
+) {}
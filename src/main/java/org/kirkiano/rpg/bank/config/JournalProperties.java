@@ -0,0 +1,26 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for the journal of account transactions
+ *
+ * @param managePartitions whether the application creates the monthly
+ *                         partitions of the journal table. Requires
+ *                         PostgreSQL.
+ * @param partitionsAhead number of months beyond the current one for
+ *                        which partitions are kept ready
+ * @param maintenanceInterval how often partitions are checked. Must be
+ *                            in ISO-8601 form (eg, {@code PT24H}), as it
+ *                            also drives a schedule.
+ */
+@ConfigurationProperties(prefix = "bank.journal")
+public record JournalProperties(
+    @DefaultValue("false") boolean managePartitions,
+    @DefaultValue("2") int partitionsAhead,
+    @DefaultValue("PT24H") Duration maintenanceInterval
+) {}
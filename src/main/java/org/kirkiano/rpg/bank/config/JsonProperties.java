@@ -0,0 +1,26 @@
+package org.kirkiano.rpg.bank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for JSON databinding
+ *
+ * @param indentOutput whether to prettify JSON output. Indentation
+ *                     inflates payloads and costs CPU, so it is for
+ *                     development only.
+ * @param blackbird whether to register Jackson's Blackbird module, which
+ *                  replaces reflective access to properties and
+ *                  constructors with generated lambdas
+ * @param streamingSerializers whether to read and write accounts, money
+ *                             and character IDs with the hand-written
+ *                             serializers of
+ *                             {@link org.kirkiano.rpg.bank.dto.AccountJsonModule}
+ */
+@ConfigurationProperties(prefix = "bank.json")
+public record JsonProperties(
+    @DefaultValue("false") boolean indentOutput,
+    @DefaultValue("true") boolean blackbird,
+    @DefaultValue("true") boolean streamingSerializers
+) {}
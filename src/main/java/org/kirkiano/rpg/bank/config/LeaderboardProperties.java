@@ -0,0 +1,28 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for the in-memory leaderboard of the richest accounts
+ *
+ * @param enabled whether the leaderboard is kept, and serves the
+ *                richest accounts
+ * @param size number of places served
+ * @param tracked number of accounts kept. The surplus over
+ *                {@link #size} absorbs accounts that fall out of the
+ *                top, whose successors would otherwise be unknown
+ *                until the next resync.
+ * @param resyncInterval how often the leaderboard is rebuilt from the
+ *                       database, which also corrects any drift
+ */
+@ConfigurationProperties(prefix = "bank.leaderboard")
+public record LeaderboardProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("100") int size,
+    @DefaultValue("200") int tracked,
+    @DefaultValue("1m") Duration resyncInterval
+) {}
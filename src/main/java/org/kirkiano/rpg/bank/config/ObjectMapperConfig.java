@@ -1,30 +1,103 @@
 package org.kirkiano.rpg.bank.config;
 
+import java.util.List;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import org.kirkiano.rpg.bank.dto.AccountJsonModule;
 
 
 /**
- * Config to prettify JSON
+ * Config of databinding, in JSON and in the binary formats CBOR and
+ * Smile. Clients choose among them through the {@code Accept} and
+ * {@code Content-Type} headers; JSON is the default.
  */
 @Configuration
-public class ObjectMapperConfig {
+public class ObjectMapperConfig implements WebMvcConfigurer {
 
     /**
      * Constructor
+     *
+     * @param props JSON settings
      */
-    public ObjectMapperConfig() {}
+    @Autowired
+    public ObjectMapperConfig(JsonProperties props) {
+        this.props = props;
+    }
 
 
     /**
-     * Prettify JSON, for example in HTTP responses
+     * Object mapper for JSON, for example in HTTP responses. Instants
+     * are written in ISO-8601 form. Output is compact unless
+     * {@code bank.json.indent-output} is set.
      *
      * @return object mapper bean
      */
     @Bean
     public ObjectMapper objectMapper() {
-        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        return create(this.props);
     }
+
+    /**
+     * Add converters for CBOR and Smile, configured as JSON is. They
+     * come after the JSON converter, so that JSON remains the default.
+     *
+     * @param converters converters configured so far
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+            configure(new CBORMapper(), this.props)));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+            configure(new SmileMapper(), this.props)));
+    }
+
+    /**
+     * Build an object mapper as the bean is built, for use outside the
+     * application context
+     *
+     * @param props JSON settings
+     * @return object mapper
+     */
+    public static ObjectMapper create(JsonProperties props) {
+        return configure(new ObjectMapper(), props)
+            .configure(SerializationFeature.INDENT_OUTPUT,
+                       props.indentOutput());
+    }
+
+    /**
+     * Configure an object mapper of any format
+     *
+     * @param mapper object mapper
+     * @param props JSON settings
+     * @return the mapper
+     */
+    public static ObjectMapper configure(ObjectMapper mapper,
+                                         JsonProperties props)
+    {
+        mapper.registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (props.blackbird()) mapper.registerModule(new BlackbirdModule());
+        if (props.streamingSerializers()) {
+            mapper.registerModule(new AccountJsonModule());
+        }
+        return mapper;
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private final JsonProperties props;
 }
@@ -0,0 +1,24 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for the in-memory index of accounts by wealth, from which
+ * characters' ranks are served
+ *
+ * @param enabled whether the index is kept. Otherwise ranks are
+ *                counted in the database.
+ * @param resyncInterval how often the index is rebuilt from the
+ *                       database, which also corrects any drift
+ * @param fetchSize number of rows to fetch at a time while rebuilding
+ */
+@ConfigurationProperties(prefix = "bank.rank")
+public record RankProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("10m") Duration resyncInterval,
+    @DefaultValue("1000") int fetchSize
+) {}
@@ -0,0 +1,117 @@
+package org.kirkiano.rpg.bank.config;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import org.kirkiano.rpg.bank.repository.ReadRoutingDataSource;
+import org.kirkiano.rpg.bank.repository.ReplicaMonitor;
+
+
+/**
+ * Config to route read-only transactions to a read replica, enabled by
+ * {@code bank.replica.enabled}.
+ * <p>
+ * Whether or not it is enabled, the data source is wrapped in a
+ * {@link LazyConnectionDataSourceProxy}, so that a read-only
+ * transaction checks out no connection until it issues a statement. A
+ * read served from the account cache then costs none, though it runs
+ * in a transaction. If enabled, the proxy wraps a
+ * {@link ReadRoutingDataSource}, which wraps the primary.
+ */
+@Slf4j
+@Configuration
+public class ReadReplicaConfig {
+
+    /**
+     * Constructor
+     */
+    public ReadReplicaConfig() {}
+
+
+    /**
+     * Monitor of the read replica, which owns its connection pool
+     *
+     * @param props replica settings
+     * @param registry meter registry
+     * @return the monitor
+     */
+    @Bean
+    @ConditionalOnProperty(name = "bank.replica.enabled", havingValue = "true")
+    public ReplicaMonitor replicaMonitor(ReplicaProperties props,
+                                         MeterRegistry registry)
+    {
+        if (props.url() == null) {
+            throw new IllegalStateException(
+                "bank.replica.url is required when bank.replica.enabled");
+        }
+        HikariDataSource replica = DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(props.url())
+            .username(props.username())
+            .password(props.password())
+            .build();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(props.maxPoolSize());
+        replica.setReadOnly(true);
+        log.info("Routing read-only transactions to replica at {}",
+                 props.url());
+        return new ReplicaMonitor(replica, props, registry);
+    }
+
+
+    /**
+     * Put the lazy proxy, and the router if enabled, in front of the
+     * data source. This runs after the JDBC admission gate, if any, so
+     * that the gate guards real connections.
+     *
+     * @param monitor monitor of the replica, if enabled
+     * @param registry meter registry
+     * @return the post-processor
+     */
+    @Bean
+    public static BeanPostProcessor readRouting(
+        ObjectProvider<ReplicaMonitor> monitor,
+        ObjectProvider<MeterRegistry> registry
+    )
+    {
+        return new Router(monitor, registry);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private record Router(ObjectProvider<ReplicaMonitor> monitor,
+                          ObjectProvider<MeterRegistry> registry)
+        implements BeanPostProcessor, Ordered
+    {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String name) {
+            if (!(bean instanceof DataSource ds) ||
+                bean instanceof LazyConnectionDataSourceProxy)
+            {
+                return bean;
+            }
+            ReplicaMonitor m = this.monitor.getIfAvailable();
+            if (m != null) {
+                ds = new ReadRoutingDataSource(ds, m, this.registry.getObject());
+            }
+            return new LazyConnectionDataSourceProxy(ds);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.lang.Nullable;
+
+
+/**
+ * Settings for the read replica
+ *
+ * @param enabled whether read-only transactions should be routed to the
+ *                replica
+ * @param url JDBC URL of the replica
+ * @param username user name on the replica
+ * @param password password on the replica
+ * @param maxPoolSize maximum number of connections to the replica
+ * @param maxLag how far the replica may lag behind the primary before
+ *               reads fall back to the primary
+ * @param lagCheckInterval how often to measure the replica's lag. Reads
+ *                         also fall back to the primary if the lag has
+ *                         not been measured for three such intervals.
+ * @param lagQuery query, run on the replica, giving its lag in seconds.
+ *                 The default is PostgreSQL's, and reads as no lag on a
+ *                 replica that has replayed all it has received, or on
+ *                 a server that is not a replica at all.
+ */
+@ConfigurationProperties(prefix = "bank.replica")
+public record ReplicaProperties(
+    @DefaultValue("false") boolean enabled,
+    @Nullable String url,
+    @Nullable String username,
+    @Nullable String password,
+    @DefaultValue("10") int maxPoolSize,
+    @DefaultValue("5s") Duration maxLag,
+    @DefaultValue("5s") Duration lagCheckInterval,
+    @DefaultValue(POSTGRES_LAG_QUERY) String lagQuery
+)
+{
+    /**
+     * Lag of a PostgreSQL standby, in seconds
+     */
+    public static final String POSTGRES_LAG_QUERY =
+        "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() " +
+        "then 0 " +
+        "else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+}
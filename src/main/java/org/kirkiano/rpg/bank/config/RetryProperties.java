@@ -0,0 +1,78 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.lang.Nullable;
+
+
+/**
+ * Settings for retrying service write methods that fail on a concurrent
+ * modification, such as an optimistic-locking conflict or a deadlock
+ *
+ * @param maxAttempts total number of attempts, including the first
+ * @param backoff delay before the first retry. Each further retry
+ *                doubles it, up to {@code maxBackoff}.
+ * @param maxBackoff upper bound of the delay before any retry
+ * @param jitter fraction, between 0 and 1, of each delay that is
+ *               randomized, so that colliding writers do not collide
+ *               again on their next attempts
+ * @param methods overrides keyed by service method name. Unset fields
+ *                of an override fall back to the settings above.
+ */
+@ConfigurationProperties(prefix = "bank.retry")
+public record RetryProperties(
+    @DefaultValue("3") int maxAttempts,
+    @DefaultValue("5ms") Duration backoff,
+    @DefaultValue("200ms") Duration maxBackoff,
+    @DefaultValue("0.5") double jitter,
+    @DefaultValue Map<String, MethodSettings> methods
+)
+{
+    /**
+     * Retry settings for one method; any of them may be unset
+     *
+     * @param maxAttempts total number of attempts, including the first
+     * @param backoff delay before the first retry
+     * @param maxBackoff upper bound of the delay before any retry
+     * @param jitter randomized fraction of each delay
+     */
+    public record MethodSettings(@Nullable Integer maxAttempts,
+                                 @Nullable Duration backoff,
+                                 @Nullable Duration maxBackoff,
+                                 @Nullable Double jitter) {}
+
+    /**
+     * Fully resolved retry settings
+     *
+     * @param maxAttempts total number of attempts, including the first
+     * @param backoff delay before the first retry
+     * @param maxBackoff upper bound of the delay before any retry
+     * @param jitter randomized fraction of each delay
+     */
+    public record Policy(int maxAttempts,
+                         Duration backoff,
+                         Duration maxBackoff,
+                         double jitter) {}
+
+    /**
+     * The settings that apply to a method
+     *
+     * @param method method name
+     * @return the settings
+     */
+    public Policy policyFor(String method) {
+        MethodSettings o = this.methods.get(method);
+        if (o == null) {
+            return new Policy(maxAttempts, backoff, maxBackoff, jitter);
+        }
+        return new Policy(
+            o.maxAttempts() != null ? o.maxAttempts() : maxAttempts,
+            o.backoff() != null ? o.backoff() : backoff,
+            o.maxBackoff() != null ? o.maxBackoff() : maxBackoff,
+            o.jitter() != null ? o.jitter() : jitter
+        );
+    }
+}
@@ -0,0 +1,27 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+
+/**
+ * Settings for the threads that serve requests
+ *
+ * @param virtualThreads whether requests are served on virtual threads
+ *                       rather than on Tomcat's pool of platform threads.
+ *                       Doing so also puts the JDBC admission gate in
+ *                       front of the connection pool.
+ * @param jdbcPermits number of threads that may hold a JDBC connection
+ *                    at once. If not positive, the size of the
+ *                    connection pool.
+ * @param jdbcAdmissionTimeout how long a thread waits to be admitted
+ *                             before its request fails
+ */
+@ConfigurationProperties(prefix = "bank.threading")
+public record ThreadingProperties(
+    @DefaultValue("false") boolean virtualThreads,
+    @DefaultValue("0") int jdbcPermits,
+    @DefaultValue("5s") Duration jdbcAdmissionTimeout
+) {}
@@ -0,0 +1,115 @@
+package org.kirkiano.rpg.bank.config;
+
+import java.util.concurrent.Executors;
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import org.kirkiano.rpg.bank.repository.AdmissionGateDataSource;
+
+
+/**
+ * Config to serve requests on virtual threads, enabled by
+ * {@code bank.threading.virtual-threads}.
+ * <p>
+ * Tomcat then runs each request on a virtual thread of its own instead
+ * of on its bounded pool, so that slow clients no longer tie up scarce
+ * platform threads. Since nothing then bounds the number of threads
+ * reaching the database, the data source is wrapped in an
+ * {@link AdmissionGateDataSource}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "bank.threading.virtual-threads",
+                       havingValue = "true")
+public class VirtualThreadConfig {
+
+    /**
+     * Constructor
+     */
+    public VirtualThreadConfig() {}
+
+
+    /**
+     * Run Tomcat's request processing on virtual threads
+     *
+     * @return the customizer
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutor() {
+        log.info("Serving requests on virtual threads");
+        return handler ->
+            handler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+
+    /**
+     * Put the JDBC admission gate in front of the data source
+     *
+     * @param props threading settings
+     * @param registry meter registry
+     * @return the post-processor
+     */
+    @Bean
+    public static BeanPostProcessor jdbcAdmissionGate(
+        ObjectProvider<ThreadingProperties> props,
+        ObjectProvider<MeterRegistry> registry
+    )
+    {
+        return new AdmissionGate(props, registry);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Wraps data sources in the gate. It is ordered first, so that it
+     * wraps them before any proxy does.
+     */
+    private record AdmissionGate(ObjectProvider<ThreadingProperties> props,
+                                 ObjectProvider<MeterRegistry> registry)
+        implements BeanPostProcessor, Ordered
+    {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String name) {
+            if (!(bean instanceof DataSource ds) ||
+                bean instanceof AdmissionGateDataSource)
+            {
+                return bean;
+            }
+            ThreadingProperties p = this.props.getObject();
+            int permits = p.jdbcPermits();
+            // Hikari reports its pool size as unset until the pool
+            // starts, in which case it falls back to its default.
+            if (permits <= 0 && ds instanceof HikariDataSource h) {
+                permits = h.getMaximumPoolSize();
+            }
+            if (permits <= 0) permits = DEFAULT_POOL_SIZE;
+            log.info("Admitting {} threads at a time to data source {}",
+                     permits, name);
+            return new AdmissionGateDataSource(ds,
+                                               permits,
+                                               p.jdbcAdmissionTimeout(),
+                                               this.registry.getObject());
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+
+    /**
+     * Hikari's default maximum pool size
+     */
+    private static final int DEFAULT_POOL_SIZE = 10;
+}
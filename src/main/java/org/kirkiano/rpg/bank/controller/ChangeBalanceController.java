@@ -1,21 +1,30 @@
 package org.kirkiano.rpg.bank.controller;
 
+import java.util.List;
+
 import lombok.extern.slf4j.Slf4j;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
-import org.kirkiano.rpg.bank.dto.AccountMapper;
-import org.kirkiano.rpg.bank.dto.BalanceDTO;
-import org.kirkiano.rpg.bank.dto.ChangeBalanceDTO;
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.controller.error.ErrorCode;
+import org.kirkiano.rpg.bank.dto.*;
+import org.kirkiano.rpg.bank.exn.InvalidIdempotencyKeyException;
 import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
 import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.model.BalanceChange;
 import org.kirkiano.rpg.bank.model.Money;
 import org.kirkiano.rpg.bank.service.AccountService;
+import org.kirkiano.rpg.bank.service.AccountService.BalanceChangeOutcome;
 
 
 /**
@@ -24,8 +33,12 @@ import org.kirkiano.rpg.bank.service.AccountService;
 @Slf4j
 @RestController
 @RequestMapping(path = "/v${api.version}/${api.accounts}",
-                produces = APPLICATION_JSON_VALUE,
-                consumes = APPLICATION_JSON_VALUE)
+                produces = {APPLICATION_JSON_VALUE,
+                            APPLICATION_CBOR_VALUE,
+                            Constants.APPLICATION_SMILE_VALUE},
+                consumes = {APPLICATION_JSON_VALUE,
+                            APPLICATION_CBOR_VALUE,
+                            Constants.APPLICATION_SMILE_VALUE})
 public class ChangeBalanceController extends BaseController {
 
     @Autowired
@@ -39,29 +52,103 @@ public class ChangeBalanceController extends BaseController {
     /**
      * Change balance. In case of overdraft, throw
      * {@link NegativeBalanceException}.
+     * <p>
+     * If the request carries an {@value Constants#IDEMPOTENCY_KEY_HEADER}
+     * header, a repeat of it under the same key is not applied again,
+     * but answered with the balance the original request left.
      *
      * @param id account ID
+     * @param idempotencyKey optional key identifying the request
      * @param dto request to change balance
      * @return new balance
      * @throws NoSuchAccountIdException In case account does not exist
      * @throws NegativeBalanceException Guards against overdraft
+     * @throws InvalidIdempotencyKeyException In case the key is malformed
+     *                                        or was used for another change
      */
     @Operation(summary = "Change the balance of a bank account",
-               description = "Must not result in overdraft")
+               description = "Must not result in overdraft. Idempotent " +
+                             "if an Idempotency-Key header is given.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK"),
         @ApiResponse(responseCode = "400", description = "Malformed request"),
         @ApiResponse(responseCode = "404", description = "No such account"),
-        @ApiResponse(responseCode = "422", description = "Overdraft attempt")
+        @ApiResponse(responseCode = "422",
+                     description = "Overdraft attempt or bad idempotency key")
     })
     @PatchMapping(value = "/{id}")
-    public BalanceDTO changeBalance(@PathVariable long id,
-                                    @Valid @RequestBody ChangeBalanceDTO dto)
+    public BalanceDTO changeBalance(
+        @PathVariable long id,
+        @RequestHeader(value = Constants.IDEMPOTENCY_KEY_HEADER,
+                       required = false)
+        @Nullable String idempotencyKey,
+        @Valid @RequestBody ChangeBalanceDTO dto
+    )
         throws NoSuchAccountIdException,
-               NegativeBalanceException
+               NegativeBalanceException,
+               InvalidIdempotencyKeyException
     {
-        Money newBalance = this.accountService.changeBalance(id, dto.delta());
+        Money newBalance = idempotencyKey == null ?
+            this.accountService.changeBalance(id, dto.delta()) :
+            this.accountService.changeBalance(id, dto.delta(), idempotencyKey);
         return new BalanceDTO(newBalance);
     }
 
+
+    /**
+     * Change the balances of many accounts in one transaction. The
+     * response lists, for each requested change and in the same order,
+     * either the balance it left or the code of the error that kept it
+     * from being applied.
+     *
+     * @param dto the changes, and how to treat individual failures
+     * @return outcome of each change. The status is
+     *         {@link HttpStatus#UNPROCESSABLE_ENTITY} if an all-or-nothing
+     *         batch was rolled back, and {@link HttpStatus#OK} otherwise.
+     */
+    @Operation(summary = "Change the balances of many bank accounts",
+               description = "All-or-nothing unless mode is BEST_EFFORT")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "400", description = "Malformed request"),
+        @ApiResponse(responseCode = "422", description = "Batch rolled back")
+    })
+    @PatchMapping
+    public ResponseEntity<List<BalanceChangeResultDTO>> changeBalances(
+        @Valid @RequestBody BatchChangeBalanceDTO dto
+    )
+    {
+        boolean allOrNothing =
+            dto.mode() != BatchChangeBalanceDTO.Mode.BEST_EFFORT;
+        List<BalanceChange> changes = dto.changes()
+            .stream()
+            .map(c -> new BalanceChange(c.id(), c.delta()))
+            .toList();
+        List<BalanceChangeOutcome> outcomes =
+            this.accountService.changeBalances(changes, allOrNothing);
+
+        boolean rolledBack = allOrNothing &&
+            outcomes.stream().anyMatch(o -> o.failure() != null);
+        var status = rolledBack ? HttpStatus.UNPROCESSABLE_ENTITY
+                                : HttpStatus.OK;
+        var results = outcomes.stream()
+            .map(ChangeBalanceController::toResultDTO)
+            .toList();
+        return new ResponseEntity<>(results, status);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static BalanceChangeResultDTO toResultDTO(BalanceChangeOutcome o) {
+        if (o.failure() == null) {
+            return new BalanceChangeResultDTO(o.id(), o.balance(), null, null);
+        }
+        ErrorCode code = ErrorCode.of(o.failure());
+        return new BalanceChangeResultDTO(o.id(),
+                                          null,
+                                          code.getName(),
+                                          code.getNumber());
+    }
+
 }
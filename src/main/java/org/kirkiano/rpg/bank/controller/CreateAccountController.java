@@ -7,8 +7,10 @@ import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
+import org.kirkiano.rpg.bank.config.Constants;
 import org.kirkiano.rpg.bank.dto.*;
 import org.kirkiano.rpg.bank.exn.AccountAlreadyExistsException;
 import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
@@ -24,7 +26,9 @@ import org.kirkiano.rpg.bank.service.AccountService;
 @Slf4j
 @RestController
 @RequestMapping(path = "/v${api.version}/${api.accounts}",
-                produces = APPLICATION_JSON_VALUE)
+                produces = {APPLICATION_JSON_VALUE,
+                            APPLICATION_CBOR_VALUE,
+                            Constants.APPLICATION_SMILE_VALUE})
 public class CreateAccountController extends BaseController {
 
     @SuppressWarnings("unused")
@@ -57,8 +61,12 @@ public class CreateAccountController extends BaseController {
         @ApiResponse(responseCode = "422",
                      description  = "Account already exists")
     })
-    @PostMapping(consumes = APPLICATION_JSON_VALUE,
-                 produces = APPLICATION_JSON_VALUE)
+    @PostMapping(consumes = {APPLICATION_JSON_VALUE,
+                             APPLICATION_CBOR_VALUE,
+                             Constants.APPLICATION_SMILE_VALUE},
+                 produces = {APPLICATION_JSON_VALUE,
+                             APPLICATION_CBOR_VALUE,
+                             Constants.APPLICATION_SMILE_VALUE})
     public AccountDTO createAccount(
         @Valid @RequestBody CreateAccountDTO createAccount
     )
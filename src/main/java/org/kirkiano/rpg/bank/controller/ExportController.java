@@ -0,0 +1,84 @@
+package org.kirkiano.rpg.bank.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.AccountMapper;
+import org.kirkiano.rpg.bank.service.AccountService;
+
+
+/**
+ * REST controller that exports all accounts at once
+ */
+@Slf4j
+@RestController
+@RequestMapping(path = "/v${api.version}/${api.accounts}",
+                produces = APPLICATION_NDJSON_VALUE)
+public class ExportController extends BaseController {
+
+    @Autowired
+    ExportController(AccountService accountService,
+                     AccountMapper mapper,
+                     ObjectMapper objectMapper)
+    {
+        super(accountService, mapper);
+        this.writer = objectMapper
+            .writerFor(AccountDTO.class)
+            .without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+
+    /**
+     * Stream every account, in order of ID, as newline-delimited JSON.
+     * Unlike paging through the listing, this reads one consistent
+     * snapshot, in one query. Each account is written as its row
+     * arrives, so neither end need hold the whole set. If the client
+     * disconnects, the next write fails, which ends the query.
+     *
+     * @return the response body, written asynchronously
+     */
+    @Operation(summary = "Export all bank accounts as NDJSON")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK")
+    })
+    @GetMapping(value = "/export")
+    public StreamingResponseBody exportAccounts() {
+        return out -> {
+            try {
+                long n = this.accountService.exportAccounts(account -> {
+                    try {
+                        out.write(this.writer.writeValueAsBytes(account));
+                        out.write('\n');
+                    }
+                    catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                out.flush();
+                log.info("Exported {} accounts", n);
+            }
+            catch (UncheckedIOException ex) {
+                log.info("Export aborted: {}", ex.getCause().getMessage());
+                throw ex.getCause();
+            }
+        };
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private final ObjectWriter writer;
+}
@@ -0,0 +1,157 @@
+package org.kirkiano.rpg.bank.controller;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.config.FeedProperties;
+import org.kirkiano.rpg.bank.dto.AccountMapper;
+import org.kirkiano.rpg.bank.dto.BalanceEventDTO;
+import org.kirkiano.rpg.bank.dto.DroppedEventsDTO;
+import org.kirkiano.rpg.bank.exn.InvalidSubscriptionException;
+import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.exn.UnknownCharIdException;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.service.AccountService;
+import org.kirkiano.rpg.bank.service.BalanceFeed;
+
+
+/**
+ * REST controller that streams changes to the balances of accounts, as
+ * server-sent events, so that clients need not poll for them
+ */
+@Slf4j
+@RestController
+@RequestMapping(path = "/v${api.version}/${api.accounts}")
+public class FeedController extends BaseController {
+
+    @Autowired
+    FeedController(AccountService accountService,
+                   AccountMapper mapper,
+                   BalanceFeed feed,
+                   FeedProperties props,
+                   ObjectMapper objectMapper)
+    {
+        super(accountService, mapper);
+        this.feed = feed;
+        this.props = props;
+        this.writer = objectMapper
+            .writer()
+            .without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+
+    /**
+     * Follow accounts, given by account ID or by owner's ID or both.
+     * Every committed change to their balances is sent as a
+     * {@code balance} event, whose data is a {@link BalanceEventDTO}.
+     * A client that falls behind by more than
+     * {@link FeedProperties#bufferSize()} changes misses some, and is
+     * then sent a {@code dropped} event, whose data is a
+     * {@link DroppedEventsDTO}. Idle streams carry a comment every
+     * {@link FeedProperties#heartbeatInterval()}. Streams end after
+     * {@link FeedProperties#timeout()}, whereupon clients should
+     * reconnect, and fetch afresh the balances they follow.
+     *
+     * @param ids account IDs
+     * @param charIds owners' IDs
+     * @return the stream of events
+     * @throws InvalidSubscriptionException if no accounts, or too many,
+     *         are given
+     * @throws NoSuchAccountIdException if an account ID is of no account
+     * @throws UnknownCharIdException if an owner's ID is of no account
+     */
+    @Operation(summary = "Stream changes to bank accounts' balances")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "400",
+                     description = "No accounts, or too many"),
+        @ApiResponse(responseCode = "404", description = "No such account")
+    })
+    @GetMapping(value = "/feed")
+    public SseEmitter followAccounts(
+        @RequestParam(name = "id", required = false)
+        @Nullable List<Long> ids,
+        @RequestParam(name = Constants.CHAR_ID_KEY, required = false)
+        @Nullable List<CharId> charIds
+    )
+        throws InvalidSubscriptionException,
+               NoSuchAccountIdException,
+               UnknownCharIdException
+    {
+        ids = ids == null ? List.of() : ids;
+        charIds = charIds == null ? List.of() : charIds;
+        int keys = ids.size() + charIds.size();
+        if (keys == 0) {
+            throw new InvalidSubscriptionException("follows no accounts");
+        }
+        if (keys > this.props.maxAccounts()) {
+            throw new InvalidSubscriptionException(
+                "follows more than " + this.props.maxAccounts() + " accounts");
+        }
+        AccountService.Lookup lookup =
+            this.accountService.getAccounts(ids, charIds, false);
+        if (!lookup.missingIds().isEmpty()) {
+            throw new NoSuchAccountIdException(lookup.missingIds().get(0));
+        }
+        if (!lookup.missingCharIds().isEmpty()) {
+            throw new UnknownCharIdException(lookup.missingCharIds().get(0));
+        }
+
+        var emitter = new SseEmitter(this.props.timeout().toMillis());
+        BalanceFeed.Subscription sub =
+            this.feed.subscribe(lookup.accounts(), this.listener(emitter));
+        emitter.onCompletion(sub::cancel);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> sub.cancel());
+        return emitter;
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Listener that sends what it receives as events of the emitter
+     */
+    private BalanceFeed.Listener listener(SseEmitter emitter) {
+        return new BalanceFeed.Listener() {
+            @Override
+            public void onChange(BalanceEventDTO event) throws IOException {
+                emitter.send(SseEmitter.event()
+                    .name("balance")
+                    .data(writer.writeValueAsString(event)));
+            }
+
+            @Override
+            public void onDropped(long count) throws IOException {
+                var dropped = new DroppedEventsDTO(count);
+                emitter.send(SseEmitter.event()
+                    .name("dropped")
+                    .data(writer.writeValueAsString(dropped)));
+            }
+
+            @Override
+            public void onHeartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        };
+    }
+
+    private final BalanceFeed feed;
+
+    private final FeedProperties props;
+
+    private final ObjectWriter writer;
+}
@@ -1,22 +1,36 @@
 package org.kirkiano.rpg.bank.controller;
 
 import java.util.List;
-import static java.util.stream.Collectors.toList;
+import java.util.Optional;
 
 import lombok.extern.slf4j.Slf4j;
+import jakarta.validation.Valid;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.exn.InvalidCursorException;
 import org.kirkiano.rpg.bank.exn.UnknownCharIdException;
-import org.kirkiano.rpg.bank.model.Account;
 import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.dto.AccountCountDTO;
 import org.kirkiano.rpg.bank.dto.AccountDTO;
 import org.kirkiano.rpg.bank.dto.AccountMapper;
+import org.kirkiano.rpg.bank.dto.AccountVersion;
+import org.kirkiano.rpg.bank.dto.LookupAccountsDTO;
+import org.kirkiano.rpg.bank.dto.LookupResultDTO;
+import org.kirkiano.rpg.bank.dto.RankDTO;
+import org.kirkiano.rpg.bank.dto.VersionedAccount;
 import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
 import org.kirkiano.rpg.bank.service.AccountService;
 
@@ -27,7 +41,9 @@ import org.kirkiano.rpg.bank.service.AccountService;
 @Slf4j
 @RestController
 @RequestMapping(path = "/v${api.version}/${api.accounts}",
-                produces = APPLICATION_JSON_VALUE)
+                produces = {APPLICATION_JSON_VALUE,
+                            APPLICATION_CBOR_VALUE,
+                            Constants.APPLICATION_SMILE_VALUE})
 public class GetAccountController extends BaseController {
 
     @Autowired
@@ -40,46 +56,117 @@ public class GetAccountController extends BaseController {
 
     /**
      * Return a page from the set of all bank accounts.
+     * <p>
+     * Pages may be addressed by number, which suits shallow pages, or,
+     * if a {@code cursor} parameter is given, by keyset: an empty cursor
+     * asks for the first page, and each page's response carries the
+     * cursor to the next in header {@value Constants#NEXT_CURSOR_HEADER},
+     * absent after the last page. Keyset pages cost the same however
+     * deep, but may be sorted only by {@code id}, {@code balance} or
+     * {@code charId}.
      *
-     * @param pageNumber page number
+     * @param pageNumber page number, unless a cursor is given
      * @param pageLength number of accounts per page
      * @param sortBy account field on which to sort
      * @param sortOrder sort order. If this value is not {@code DESC},
      *                  the sort order will be understood to be ascending.
+     * @param cursor cursor to the page, for keyset pagination
      * @return accounts
+     * @throws InvalidCursorException In case the cursor is malformed, or
+     *                                was issued for another sort order
      */
     @Operation(summary = "Get all bank accounts, in pages")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200",
                      description = "OK"),
         @ApiResponse(responseCode = "400",
-                     description = "Parse error"),
+                     description = "Parse error or invalid cursor"),
         @ApiResponse(responseCode = "422",
                      description = "Unrecognized sort field")
     })
     @GetMapping
-    public List<AccountDTO> getAccountsPage(
+    public ResponseEntity<List<AccountDTO>> getAccountsPage(
         @RequestParam(defaultValue = "0") int pageNumber,
         @RequestParam(defaultValue = "10") int pageLength,
         @RequestParam(defaultValue = Constants.BALANCE_KEY) String sortBy,
-        @RequestParam(defaultValue = "DESC") String sortOrder
+        @RequestParam(defaultValue = "DESC") String sortOrder,
+        @RequestParam(name = Constants.CURSOR_KEY, required = false)
+        @Nullable String cursor
     )
+        throws InvalidCursorException
     {
         boolean isDescending = sortOrder.equals("DESC");
-        return this.accountService.getAccountsPage(pageNumber,
-                                                   pageLength,
-                                                   sortBy,
-                                                   isDescending)
-            .stream()
-            .map(mapper::toDTO)
-            .collect(toList());
+        if (cursor == null) {
+            return ResponseEntity.ok(this.accountService.getAccountsPage(
+                pageNumber, pageLength, sortBy, isDescending));
+        }
+
+        AccountService.Keyset keyset = this.accountService.getAccountsAfter(
+            cursor.isEmpty() ? null : cursor,
+            pageLength,
+            sortBy,
+            isDescending);
+        var response = ResponseEntity.ok();
+        if (keyset.nextCursor() != null) {
+            response.header(Constants.NEXT_CURSOR_HEADER, keyset.nextCursor());
+        }
+        return response.body(keyset.accounts());
+    }
+
+
+    /**
+     * Estimate the number of accounts. Listings do not count the
+     * accounts, as that would cost a scan of all of them; clients that
+     * want a total may ask for this estimate separately.
+     *
+     * @return the estimate, and when it was last refreshed
+     */
+    @Operation(summary = "Estimate the number of bank accounts")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK")
+    })
+    @GetMapping(value = "/count")
+    public AccountCountDTO getAccountCount() {
+        var estimate = this.accountService.estimateAccountCount();
+        return new AccountCountDTO(estimate.count(), estimate.asOf());
+    }
+
+
+    /**
+     * Return the richest accounts, served from memory without touching
+     * the database
+     *
+     * @param n number of accounts. At most {@code bank.leaderboard.size}
+     *          are returned.
+     * @return accounts, richest first, ties broken by ID
+     */
+    @Operation(summary = "Get the richest bank accounts")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK")
+    })
+    @GetMapping(value = "/leaderboard")
+    public List<AccountDTO> getLeaderboard(
+        @RequestParam(defaultValue = "10") int n)
+    {
+        return this.accountService.getRichestAccounts(n);
     }
 
 
     /**
-     * Fetch an account by account ID
+     * Fetch an account by account ID. A {@code Cache-Control: no-cache}
+     * header asks for the account's committed state, bypassing the
+     * server's cache.
+     * <p>
+     * The response of an unsharded account carries an entity tag
+     * derived from the version of its row. A request whose
+     * {@code If-None-Match} header names the current tag is answered
+     * with {@link HttpStatus#NOT_MODIFIED}, after reading only the
+     * version.
      *
      * @param id account ID
+     * @param cacheControl value of the {@code Cache-Control} header, if any
+     * @param ifNoneMatch value of the {@code If-None-Match} header, if any
+     * @param request the request
      * @return account
      * @throws NoSuchAccountIdException In case of non-existent account
      */
@@ -87,21 +174,42 @@ public class GetAccountController extends BaseController {
                description = "Account must exist")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "304", description = "Not modified"),
         @ApiResponse(responseCode = "400", description = "Bad ID"),
         @ApiResponse(responseCode = "404", description = "No such account")
     })
     @GetMapping(value = "/{id}")
-    public AccountDTO getAccountById(@PathVariable long id)
+    public ResponseEntity<AccountDTO> getAccountById(
+        @PathVariable long id,
+        @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+        @Nullable String cacheControl,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+        @Nullable String ifNoneMatch,
+        WebRequest request
+    )
         throws NoSuchAccountIdException
     {
-        return mapper.toDTO(this.accountService.getAccountById(id));
+        if (ifNoneMatch != null) {
+            Optional<AccountVersion> version =
+                this.accountService.getAccountVersion(id);
+            if (isNotModified(version, request)) {
+                return notModified(version.get());
+            }
+        }
+        boolean fresh = isNoCache(cacheControl);
+        return withETag(this.accountService.getVersionedAccountById(id, fresh));
     }
 
 
     /**
-     * Fetch an account by character ID
+     * Fetch an account by character ID. A {@code Cache-Control: no-cache}
+     * header asks for the account's committed state, bypassing the
+     * server's cache. Entity tags are as for {@link #getAccountById}.
      *
      * @param charId character ID
+     * @param cacheControl value of the {@code Cache-Control} header, if any
+     * @param ifNoneMatch value of the {@code If-None-Match} header, if any
+     * @param request the request
      * @return account
      * @throws UnknownCharIdException when {@code charId} is not found
      */
@@ -109,16 +217,152 @@ public class GetAccountController extends BaseController {
                description = "Account must exist")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "304", description = "Not modified"),
         @ApiResponse(responseCode = "400", description = "Bad ID"),
         @ApiResponse(responseCode = "404", description = "No such account")
     })
     @GetMapping("/of/{" + Constants.CHAR_ID_KEY + "}")
-    public AccountDTO getAccountByCharId(
-        @PathVariable(Constants.CHAR_ID_KEY) CharId charId
+    public ResponseEntity<AccountDTO> getAccountByCharId(
+        @PathVariable(Constants.CHAR_ID_KEY) CharId charId,
+        @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+        @Nullable String cacheControl,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+        @Nullable String ifNoneMatch,
+        WebRequest request
     )
         throws UnknownCharIdException
     {
-        Account a = this.accountService.getAccountByCharId(charId);
-        return mapper.toDTO(a);
+        if (ifNoneMatch != null) {
+            Optional<AccountVersion> version =
+                this.accountService.getAccountVersion(charId);
+            if (isNotModified(version, request)) {
+                return notModified(version.get());
+            }
+        }
+        boolean fresh = isNoCache(cacheControl);
+        return withETag(
+            this.accountService.getVersionedAccountByCharId(charId, fresh));
+    }
+
+
+    /**
+     * Return a character's rank by wealth, served from memory
+     *
+     * @param charId character ID
+     * @return the rank, counting from 1 for the richest, and the number
+     *         of accounts ranked
+     * @throws UnknownCharIdException In case the character has no account
+     */
+    @Operation(summary = "Get a character's rank by wealth")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "404", description = "No such account")
+    })
+    @GetMapping("/of/{" + Constants.CHAR_ID_KEY + "}/rank")
+    public RankDTO getRank(@PathVariable(Constants.CHAR_ID_KEY) CharId charId)
+        throws UnknownCharIdException
+    {
+        return this.accountService.getRank(charId);
+    }
+
+
+    /**
+     * Fetch many accounts at once, by account ID or by owner's ID or
+     * both, such as those of a party or guild. Keys of no account are
+     * listed in the response, rather than failing the request. A
+     * {@code Cache-Control: no-cache} header asks for the accounts'
+     * committed state, bypassing the server's cache.
+     *
+     * @param dto the keys
+     * @param cacheControl value of the {@code Cache-Control} header, if any
+     * @return the accounts found, and the keys of those not
+     */
+    @Operation(summary = "Get many accounts by ID or character ID",
+               description = "At most " + LookupAccountsDTO.MAX_KEYS +
+                             " keys of each kind")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "400",
+                     description = "Malformed request or too many keys")
+    })
+    @PostMapping(value = "/lookup",
+                 consumes = {APPLICATION_JSON_VALUE,
+                             APPLICATION_CBOR_VALUE,
+                             Constants.APPLICATION_SMILE_VALUE})
+    public LookupResultDTO lookupAccounts(
+        @Valid @RequestBody LookupAccountsDTO dto,
+        @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+        @Nullable String cacheControl
+    )
+    {
+        AccountService.Lookup lookup = this.accountService.getAccounts(
+            dto.ids() == null ? List.of() : dto.ids(),
+            dto.charIds() == null ? List.of() : dto.charIds(),
+            isNoCache(cacheControl));
+        return new LookupResultDTO(lookup.accounts(),
+                                   lookup.missingIds(),
+                                   lookup.missingCharIds());
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Render an account version as an entity tag. An account's version
+     * fixes its content, but not its bytes, which depend on the format
+     * negotiated, so the tag is weak.
+     */
+    private static String eTag(AccountVersion version) {
+        return "W/\"" + version.id() + "." + version.version() + "\"";
+    }
+
+    /**
+     * Indicates whether the request's {@code If-None-Match} header names
+     * the given version. If so, the response's status and headers are
+     * set accordingly.
+     */
+    private static boolean isNotModified(Optional<AccountVersion> version,
+                                         WebRequest request)
+    {
+        return version.isPresent() &&
+               request.checkNotModified(eTag(version.get()));
+    }
+
+    private static ResponseEntity<AccountDTO> notModified(
+        AccountVersion version)
+    {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(eTag(version))
+            .cacheControl(CacheControl.noCache())
+            .varyBy(HttpHeaders.ACCEPT)
+            .build();
+    }
+
+    /**
+     * Respond with an account, tagged with its version if that
+     * identifies its state. (Spring answers a matching
+     * {@code If-None-Match} from the tag too, but only after the
+     * account has been read.)
+     */
+    private static ResponseEntity<AccountDTO> withETag(
+        VersionedAccount account)
+    {
+        var response = ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache())
+            .varyBy(HttpHeaders.ACCEPT);
+        if (account.isVersioned()) {
+            response.eTag(eTag(account.accountVersion()));
+        }
+        return response.body(account.account());
+    }
+
+    private static boolean isNoCache(@Nullable String cacheControl) {
+        if (cacheControl == null) return false;
+        for (String directive: cacheControl.split(",")) {
+            String d = directive.trim();
+            if (d.equalsIgnoreCase("no-cache") ||
+                d.equalsIgnoreCase("no-store")) return true;
+        }
+        return false;
     }
 }
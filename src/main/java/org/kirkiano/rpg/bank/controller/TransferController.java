@@ -0,0 +1,80 @@
+package org.kirkiano.rpg.bank.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.dto.AccountMapper;
+import org.kirkiano.rpg.bank.dto.BalanceDTO;
+import org.kirkiano.rpg.bank.dto.TransferDTO;
+import org.kirkiano.rpg.bank.dto.TransferResultDTO;
+import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
+import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.exn.SelfTransferException;
+import org.kirkiano.rpg.bank.service.AccountService;
+import org.kirkiano.rpg.bank.service.AccountService.TransferOutcome;
+
+
+/**
+ * REST controller for moving money between accounts
+ */
+@Slf4j
+@RestController
+@RequestMapping(path = "/v${api.version}/${api.accounts}",
+                produces = {APPLICATION_JSON_VALUE,
+                            APPLICATION_CBOR_VALUE,
+                            Constants.APPLICATION_SMILE_VALUE},
+                consumes = {APPLICATION_JSON_VALUE,
+                            APPLICATION_CBOR_VALUE,
+                            Constants.APPLICATION_SMILE_VALUE})
+public class TransferController extends BaseController {
+
+    @Autowired
+    TransferController(AccountService accountService,
+                       AccountMapper mapper)
+    {
+        super(accountService, mapper);
+    }
+
+
+    /**
+     * Debit one account and credit another, atomically. In case of
+     * overdraft of the debited account, throw
+     * {@link NegativeBalanceException} and change neither account.
+     *
+     * @param dto request to transfer
+     * @return balances of both accounts after the transfer
+     * @throws NoSuchAccountIdException In case either account does not exist
+     * @throws NegativeBalanceException Guards against overdraft
+     * @throws SelfTransferException In case both accounts are the same
+     */
+    @Operation(summary = "Transfer money between two bank accounts",
+               description = "Must not overdraw the debited account")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "400", description = "Malformed request"),
+        @ApiResponse(responseCode = "404", description = "No such account"),
+        @ApiResponse(responseCode = "422",
+                     description = "Overdraft attempt or transfer to self")
+    })
+    @PostMapping(value = "/transfers")
+    public TransferResultDTO transfer(@Valid @RequestBody TransferDTO dto)
+        throws NoSuchAccountIdException,
+               NegativeBalanceException,
+               SelfTransferException
+    {
+        TransferOutcome outcome = this.accountService.transfer(dto.from(),
+                                                               dto.to(),
+                                                               dto.amount());
+        return new TransferResultDTO(new BalanceDTO(outcome.fromBalance()),
+                                     new BalanceDTO(outcome.toBalance()));
+    }
+
+}
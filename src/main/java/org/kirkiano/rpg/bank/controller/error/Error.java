@@ -102,6 +102,105 @@ public abstract class Error {
     }
 
 
+    /**
+     * Client attempted to transfer money from an account to itself.
+     * This {@link Error} has {@link ErrorCode#SelfTransfer}.
+     */
+    @Getter @Setter @NoArgsConstructor
+    @EqualsAndHashCode(callSuper = true)
+    public static class SelfTransfer extends Error {
+        /**
+         * Constructor
+         * @param id ID of the account
+         */
+        public SelfTransfer(long id) {
+            super(ErrorCode.SelfTransfer);
+            this.id = id;
+        }
+
+        private long id;
+    }
+
+
+    /**
+     * Client sent a malformed idempotency key, or reused one for a
+     * different request.
+     * This {@link Error} has {@link ErrorCode#InvalidIdempotencyKey}.
+     */
+    @Getter @Setter @NoArgsConstructor
+    @EqualsAndHashCode(callSuper = true)
+    public static class InvalidIdempotencyKey extends Error {
+        /**
+         * Constructor
+         * @param key the idempotency key
+         */
+        public InvalidIdempotencyKey(String key) {
+            super(ErrorCode.InvalidIdempotencyKey);
+            this.key = key;
+        }
+
+        private String key;
+    }
+
+
+    /**
+     * Client sent a malformed pagination cursor, or one issued for a
+     * different sort order.
+     * This {@link Error} has {@link ErrorCode#InvalidCursor}.
+     */
+    @Getter @Setter @NoArgsConstructor
+    @EqualsAndHashCode(callSuper = true)
+    public static class InvalidCursor extends Error {
+        /**
+         * Constructor
+         * @param cursor the cursor
+         */
+        public InvalidCursor(String cursor) {
+            super(ErrorCode.InvalidCursor);
+            this.cursor = cursor;
+        }
+
+        private String cursor;
+    }
+
+
+    /**
+     * Client's subscription to the feed of balance changes followed no
+     * accounts, or too many.
+     * This {@link Error} has {@link ErrorCode#InvalidSubscription}.
+     */
+    @Getter @Setter @NoArgsConstructor
+    @EqualsAndHashCode(callSuper = true)
+    public static class InvalidSubscription extends Error {
+        /**
+         * Constructor
+         * @param reason what is wrong with the subscription
+         */
+        public InvalidSubscription(String reason) {
+            super(ErrorCode.InvalidSubscription);
+            this.reason = reason;
+        }
+
+        private String reason;
+    }
+
+
+    /**
+     * Client's write was given up after repeatedly conflicting with
+     * concurrent writes. It may be retried.
+     * This {@link Error} has {@link ErrorCode#Conflict}.
+     */
+    @EqualsAndHashCode(callSuper = true)
+    public static class Conflict extends Error {
+        /**
+         * Constructor
+         */
+        public Conflict() {
+            super(ErrorCode.Conflict);
+        }
+    }
+
+
     /**
      * Client did not provide a required {@link CharId}.
      * This {@link Error} has {@link ErrorCode#CharIdRequired}.
@@ -2,6 +2,17 @@ package org.kirkiano.rpg.bank.controller.error;
 
 import lombok.Getter;
 
+import org.kirkiano.rpg.bank.exn.AccountAlreadyExistsException;
+import org.kirkiano.rpg.bank.exn.AccountException;
+import org.kirkiano.rpg.bank.exn.BatchAbortedException;
+import org.kirkiano.rpg.bank.exn.InvalidCursorException;
+import org.kirkiano.rpg.bank.exn.InvalidIdempotencyKeyException;
+import org.kirkiano.rpg.bank.exn.InvalidSubscriptionException;
+import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
+import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.exn.SelfTransferException;
+import org.kirkiano.rpg.bank.exn.UnknownCharIdException;
+
 
 /**
  * Error codes to be included in HTTP REST error responses
@@ -52,11 +63,68 @@ public enum ErrorCode {
     /**
      * Client attempted to overdraw from an account
      */
-    InsufficientFunds(1010, "Insufficient funds")
+    InsufficientFunds(1010, "Insufficient funds"),
+
+    /**
+     * Change was rolled back because another change in its
+     * all-or-nothing batch failed
+     */
+    BatchAborted(1020, "Batch aborted"),
+
+    /**
+     * Client attempted to transfer money from an account to itself
+     */
+    SelfTransfer(1030, "Transfer to self"),
+
+    /**
+     * Client's write kept conflicting with concurrent writes to the
+     * same data, and was given up
+     */
+    Conflict(1040, "Concurrent modification"),
+
+    /**
+     * Client's idempotency key was malformed, or was already used for a
+     * different request
+     */
+    InvalidIdempotencyKey(1050, "Invalid idempotency key"),
+
+    /**
+     * Client's pagination cursor was malformed, or was issued for a
+     * different sort order
+     */
+    InvalidCursor(1060, "Invalid cursor"),
+
+    /**
+     * Client's subscription to the feed of balance changes followed no
+     * accounts, or too many
+     */
+    InvalidSubscription(1070, "Invalid subscription")
 
     ; // <--- putting the terminating semicolon here makes it
     // easier to add more enum constants
 
+    /**
+     * The error code corresponding to an {@link AccountException}, for
+     * reporting failures that are returned rather than thrown
+     *
+     * @param ex the exception
+     * @return the error code
+     */
+    public static ErrorCode of(AccountException ex) {
+        return switch (ex) {
+            case AccountAlreadyExistsException e -> AccountAlreadyExists;
+            case NoSuchAccountIdException e -> NoSuchAccountId;
+            case UnknownCharIdException e -> CharIdNotFound;
+            case NegativeBalanceException e -> InsufficientFunds;
+            case BatchAbortedException e -> BatchAborted;
+            case SelfTransferException e -> SelfTransfer;
+            case InvalidIdempotencyKeyException e -> InvalidIdempotencyKey;
+            case InvalidCursorException e -> InvalidCursor;
+            case InvalidSubscriptionException e -> InvalidSubscription;
+            default -> General;
+        };
+    }
+
     /**
      * {@link ErrorCode} enum constructor
      * @param number the code's numeric value
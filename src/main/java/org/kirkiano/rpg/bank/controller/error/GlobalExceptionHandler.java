@@ -7,6 +7,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.mapping.PropertyPath;
 import org.springframework.data.mapping.PropertyReferenceException;
 import org.springframework.http.ResponseEntity;
@@ -24,8 +25,12 @@ import org.springframework.http.HttpStatus;
 import org.kirkiano.rpg.bank.config.Constants;
 import org.kirkiano.rpg.bank.exn.UnknownCharIdException;
 import org.kirkiano.rpg.bank.exn.AccountAlreadyExistsException;
+import org.kirkiano.rpg.bank.exn.InvalidCursorException;
+import org.kirkiano.rpg.bank.exn.InvalidIdempotencyKeyException;
+import org.kirkiano.rpg.bank.exn.InvalidSubscriptionException;
 import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
 import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.exn.SelfTransferException;
 
 
 /*
@@ -181,6 +186,95 @@ public class GlobalExceptionHandler {
     }
 
 
+    /**
+     * Convert a {@link SelfTransferException} to an error response
+     *
+     * @param ex exception
+     * @return response
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(SelfTransferException.class)
+    public ErrorWrap handleSelfTransferException(SelfTransferException ex) {
+        var error = new Error.SelfTransfer(ex.id);
+        return wrap(error);
+    }
+
+
+    /**
+     * Convert a {@link InvalidIdempotencyKeyException} to an error response
+     *
+     * @param ex exception
+     * @return response
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ErrorWrap handleInvalidIdempotencyKeyException(
+        InvalidIdempotencyKeyException ex
+    )
+    {
+        log.warn(ex.getMessage());
+        var error = new Error.InvalidIdempotencyKey(ex.key);
+        return wrap(error);
+    }
+
+
+    /**
+     * Convert a {@link InvalidCursorException} to an error response
+     *
+     * @param ex exception
+     * @return response
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    public ErrorWrap handleInvalidCursorException(InvalidCursorException ex) {
+        log.warn(ex.getMessage());
+        var error = new Error.InvalidCursor(ex.cursor);
+        return wrap(error);
+    }
+
+
+    /**
+     * Convert an {@link InvalidSubscriptionException} to an error response
+     *
+     * @param ex exception
+     * @return response
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidSubscriptionException.class)
+    public ErrorWrap handleInvalidSubscriptionException(
+        InvalidSubscriptionException ex
+    )
+    {
+        log.warn(ex.getMessage());
+        var error = new Error.InvalidSubscription(ex.reason);
+        return wrap(error);
+    }
+
+
+    /**
+     * Convert a {@link ConcurrencyFailureException}, which survives only
+     * once retries are exhausted, to an error response
+     *
+     * @param ex exception
+     * @return response
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ErrorWrap handleConcurrencyFailureException(
+        ConcurrencyFailureException ex
+    )
+    {
+        log.warn("Giving up on conflicting write: {}", ex.getMessage());
+        var error = new Error.Conflict();
+        return wrap(error);
+    }
+
+
     /**
      * Convert a {@link PropertyReferenceException} to an error response
      *
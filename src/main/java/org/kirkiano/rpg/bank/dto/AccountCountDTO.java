@@ -0,0 +1,13 @@
+package org.kirkiano.rpg.bank.dto;
+
+import java.time.Instant;
+
+
+/**
+ * Data transfer object returned by server to estimate the number of
+ * accounts
+ *
+ * @param count Estimated number of accounts
+ * @param asOf When the estimate was last refreshed from the database
+ */
+public record AccountCountDTO(long count, Instant asOf) {}
@@ -0,0 +1,16 @@
+package org.kirkiano.rpg.bank.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Data transfer object submitted by client, as part of a
+ * {@link BatchChangeBalanceDTO}, to request a change to the balance
+ * of one account
+ *
+ * @param id account ID
+ * @param delta The requested change. A negative number means withdrawal.
+ */
+public record AccountDeltaDTO(@NotNull Long id, @NotNull Money delta) {}
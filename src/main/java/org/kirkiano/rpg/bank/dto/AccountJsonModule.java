@@ -0,0 +1,187 @@
+package org.kirkiano.rpg.bank.dto;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Hand-written serializers and deserializers for {@link AccountDTO},
+ * {@link Money} and {@link CharId}, the values of every account listing.
+ * They write the amounts and IDs to the generator as primitive longs,
+ * sparing the introspection of records and the {@code @JsonValue}
+ * lookups of the reflective path. Lists of accounts are written by
+ * Jackson's collection serializer, which resolves the serializer of
+ * {@link AccountDTO} here once per list.
+ * <p>
+ * Output is the same, byte for byte, as the reflective path's, and input
+ * is read leniently as it was: values are coerced and errors reported
+ * by Jackson's own deserializers for {@code long} whenever an amount or
+ * ID is not a plain integer.
+ */
+public class AccountJsonModule extends SimpleModule {
+
+    /**
+     * Default constructor
+     */
+    public AccountJsonModule() {
+        super(AccountJsonModule.class.getSimpleName());
+        this.addSerializer(Money.class, new MoneySerializer());
+        this.addDeserializer(Money.class, new MoneyDeserializer());
+        this.addSerializer(CharId.class, new CharIdSerializer());
+        this.addDeserializer(CharId.class, new CharIdDeserializer());
+        this.addSerializer(AccountDTO.class, new AccountSerializer());
+        this.addDeserializer(AccountDTO.class, new AccountDeserializer());
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString CHAR_ID =
+        new SerializedString("charId");
+
+    private static final SerializedString BALANCE =
+        new SerializedString("balance");
+
+    private static class MoneySerializer extends StdSerializer<Money> {
+        MoneySerializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value,
+                              JsonGenerator gen,
+                              SerializerProvider provider)
+            throws IOException
+        {
+            gen.writeNumber(value.longValue());
+        }
+    }
+
+    private static class MoneyDeserializer extends StdDeserializer<Money> {
+        MoneyDeserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException
+        {
+            return Money.from(readLong(p, ctxt));
+        }
+    }
+
+    private static class CharIdSerializer extends StdSerializer<CharId> {
+        CharIdSerializer() {
+            super(CharId.class);
+        }
+
+        @Override
+        public void serialize(CharId value,
+                              JsonGenerator gen,
+                              SerializerProvider provider)
+            throws IOException
+        {
+            gen.writeNumber(value.value());
+        }
+    }
+
+    private static class CharIdDeserializer extends StdDeserializer<CharId> {
+        CharIdDeserializer() {
+            super(CharId.class);
+        }
+
+        @Override
+        public CharId deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException
+        {
+            return new CharId(readLong(p, ctxt));
+        }
+    }
+
+    private static class AccountSerializer extends StdSerializer<AccountDTO> {
+        AccountSerializer() {
+            super(AccountDTO.class);
+        }
+
+        @Override
+        public void serialize(AccountDTO value,
+                              JsonGenerator gen,
+                              SerializerProvider provider)
+            throws IOException
+        {
+            gen.writeStartObject(value);
+            gen.writeFieldName(ID);
+            gen.writeNumber(value.id());
+            gen.writeFieldName(CHAR_ID);
+            if (value.charId() == null) gen.writeNull();
+            else gen.writeNumber(value.charId().value());
+            gen.writeFieldName(BALANCE);
+            if (value.balance() == null) gen.writeNull();
+            else gen.writeNumber(value.balance().longValue());
+            gen.writeEndObject();
+        }
+    }
+
+    private static class AccountDeserializer
+        extends StdDeserializer<AccountDTO>
+    {
+        AccountDeserializer() {
+            super(AccountDTO.class);
+        }
+
+        @Override
+        public AccountDTO deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException
+        {
+            JsonToken t = p.currentToken();
+            if (t == JsonToken.START_OBJECT) t = p.nextToken();
+            else if (t != JsonToken.FIELD_NAME && t != JsonToken.END_OBJECT) {
+                return (AccountDTO) ctxt.handleUnexpectedToken(AccountDTO.class, p);
+            }
+            long id = 0;
+            CharId charId = null;
+            Money balance = null;
+            for (; t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String name = p.currentName();
+                boolean isNull = p.nextToken() == JsonToken.VALUE_NULL;
+                switch (name) {
+                    case "id" -> id = readLong(p, ctxt);
+                    case "charId" ->
+                        charId = isNull ? null : new CharId(readLong(p, ctxt));
+                    case "balance" ->
+                        balance = isNull ? null : Money.from(readLong(p, ctxt));
+                    default -> ctxt.handleUnknownProperty(p, this,
+                                                          AccountDTO.class,
+                                                          name);
+                }
+            }
+            return new AccountDTO(id, charId, balance);
+        }
+    }
+
+    /**
+     * Read a long, straight from the parser if it holds a plain integer,
+     * or else as Jackson would, coercing or reporting the value
+     */
+    private static long readLong(JsonParser p, DeserializationContext ctxt)
+        throws IOException
+    {
+        return p.hasToken(JsonToken.VALUE_NUMBER_INT) ?
+            p.getLongValue() :
+            ctxt.readValue(p, Long.TYPE);
+    }
+}
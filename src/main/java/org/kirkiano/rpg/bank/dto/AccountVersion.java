@@ -0,0 +1,11 @@
+package org.kirkiano.rpg.bank.dto;
+
+
+/**
+ * Identifies the state of an unsharded account, as of a write to its
+ * row. Not itself sent to clients, but encoded in entity tags.
+ *
+ * @param id account ID
+ * @param version version of the account's row
+ */
+public record AccountVersion(long id, int version) {}
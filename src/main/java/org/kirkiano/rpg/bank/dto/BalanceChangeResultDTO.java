@@ -0,0 +1,25 @@
+package org.kirkiano.rpg.bank.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.lang.Nullable;
+
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Data transfer object returned by server to report the outcome of one
+ * change within a batch. Exactly one of {@code balance} and the
+ * {@code error} pair is present.
+ *
+ * @param id account ID
+ * @param balance the account's balance right after the change, if it
+ *                was applied
+ * @param error name of the error code, if the change was not applied
+ * @param errorNumber number of the error code, if the change was not
+ *                    applied
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BalanceChangeResultDTO(long id,
+                                     @Nullable Money balance,
+                                     @Nullable String error,
+                                     @Nullable Integer errorNumber) {}
@@ -0,0 +1,22 @@
+package org.kirkiano.rpg.bank.dto;
+
+import org.kirkiano.rpg.bank.model.AccountTxn;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Data transfer object pushed by server to a subscriber of the feed,
+ * once a change to the balance of a followed account is committed
+ *
+ * @param id account ID
+ * @param charId owner's ID
+ * @param kind kind of change
+ * @param delta the change. A negative number means withdrawal.
+ * @param balance the account's balance right after the change
+ */
+public record BalanceEventDTO(long id,
+                              CharId charId,
+                              AccountTxn.Kind kind,
+                              Money delta,
+                              Money balance) {}
@@ -0,0 +1,48 @@
+package org.kirkiano.rpg.bank.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.lang.Nullable;
+
+
+/**
+ * Data transfer object submitted by client to request changes to the
+ * balances of many accounts at once
+ *
+ * @param mode how to treat failure of individual changes. If null,
+ *             {@link Mode#ALL_OR_NOTHING}.
+ * @param changes the changes, to be applied in the given order
+ */
+public record BatchChangeBalanceDTO(
+
+    @Nullable
+    Mode mode,
+
+    @NotNull
+    @Size(min = 1, max = MAX_CHANGES)
+    List<@NotNull @Valid AccountDeltaDTO> changes
+)
+{
+    /**
+     * Maximum number of changes in one batch
+     */
+    public static final int MAX_CHANGES = 1000;
+
+    /**
+     * Treatment of individual failures within a batch
+     */
+    public enum Mode {
+        /**
+         * If any change fails, none is applied
+         */
+        ALL_OR_NOTHING,
+
+        /**
+         * Every change that can be applied is applied
+         */
+        BEST_EFFORT
+    }
+}
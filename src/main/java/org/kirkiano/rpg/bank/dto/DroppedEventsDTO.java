@@ -0,0 +1,11 @@
+package org.kirkiano.rpg.bank.dto;
+
+
+/**
+ * Data transfer object pushed by server to a subscriber of the feed
+ * that fell behind, to tell it how many changes it missed. Balances
+ * it follows should be fetched afresh.
+ *
+ * @param dropped number of changes not sent
+ */
+public record DroppedEventsDTO(long dropped) {}
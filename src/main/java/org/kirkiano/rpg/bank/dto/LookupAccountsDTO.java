@@ -0,0 +1,33 @@
+package org.kirkiano.rpg.bank.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.lang.Nullable;
+
+import org.kirkiano.rpg.bank.model.CharId;
+
+
+/**
+ * Data transfer object submitted by client to fetch many accounts at once
+ *
+ * @param ids account IDs. If null, none.
+ * @param charIds owners' IDs. If null, none.
+ */
+public record LookupAccountsDTO(
+
+    @Nullable
+    @Size(max = MAX_KEYS)
+    List<@NotNull Long> ids,
+
+    @Nullable
+    @Size(max = MAX_KEYS)
+    List<@NotNull CharId> charIds
+)
+{
+    /**
+     * Maximum number of keys of each kind in one lookup
+     */
+    public static final int MAX_KEYS = 100;
+}
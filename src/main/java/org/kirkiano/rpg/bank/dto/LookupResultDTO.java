@@ -0,0 +1,18 @@
+package org.kirkiano.rpg.bank.dto;
+
+import java.util.List;
+
+import org.kirkiano.rpg.bank.model.CharId;
+
+
+/**
+ * Data transfer object returned by server to answer a lookup of many
+ * accounts
+ *
+ * @param accounts the accounts found, each once
+ * @param missingIds requested account IDs of no account
+ * @param missingCharIds requested owners' IDs of no account
+ */
+public record LookupResultDTO(List<AccountDTO> accounts,
+                              List<Long> missingIds,
+                              List<CharId> missingCharIds) {}
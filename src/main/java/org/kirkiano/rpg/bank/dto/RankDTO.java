@@ -0,0 +1,15 @@
+package org.kirkiano.rpg.bank.dto;
+
+import org.kirkiano.rpg.bank.model.CharId;
+
+
+/**
+ * Data transfer object returned by server to give a character's rank
+ * by wealth
+ *
+ * @param charId character ID
+ * @param rank the character's place, counting from 1 for the richest.
+ *             Ties are broken by account ID.
+ * @param of number of accounts ranked
+ */
+public record RankDTO(CharId charId, long rank, long of) {}
@@ -0,0 +1,19 @@
+package org.kirkiano.rpg.bank.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Data transfer object submitted by client to request a transfer of
+ * money between two accounts
+ *
+ * @param from ID of the account to debit
+ * @param to ID of the account to credit
+ * @param amount amount to move. Must be positive.
+ */
+public record TransferDTO(@NotNull Long from,
+                          @NotNull Long to,
+                          @NotNull @Min(1) Money amount) {}
@@ -0,0 +1,11 @@
+package org.kirkiano.rpg.bank.dto;
+
+
+/**
+ * Data transfer object returned by server to inform client of the
+ * balances left by a transfer
+ *
+ * @param from balance of the debited account
+ * @param to balance of the credited account
+ */
+public record TransferResultDTO(BalanceDTO from, BalanceDTO to) {}
@@ -0,0 +1,66 @@
+package org.kirkiano.rpg.bank.dto;
+
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * An account as read from its row, with the row's version and number of
+ * shards. Not itself sent to clients, who get only {@link #account}.
+ * <p>
+ * The version changes with every write to the row, but not with writes
+ * to the account's other shards, so it identifies the state of the
+ * account only if the account is unsharded.
+ *
+ * @param account the account
+ * @param version version of the account's row
+ * @param shards number of shards of the account. 0 or 1 means unsharded.
+ */
+public record VersionedAccount(AccountDTO account, int version, int shards) {
+
+    /**
+     * Constructor, for query results
+     *
+     * @param id account ID
+     * @param charId owner's ID
+     * @param balance balance of the row, ie, of shard 0
+     * @param version version of the row
+     * @param shards number of shards
+     */
+    public VersionedAccount(long id,
+                            CharId charId,
+                            Money balance,
+                            int version,
+                            int shards)
+    {
+        this(new AccountDTO(id, charId, balance), version, shards);
+    }
+
+    /**
+     * Indicates whether {@link #version} identifies the account's state
+     *
+     * @return whether the account is unsharded
+     */
+    public boolean isVersioned() {
+        return this.shards <= 1;
+    }
+
+    /**
+     * Identify the state of the account, if {@link #isVersioned}
+     *
+     * @return the account ID and version
+     */
+    public AccountVersion accountVersion() {
+        return new AccountVersion(this.account.id(), this.version);
+    }
+
+    /**
+     * Replace the account, keeping the version
+     *
+     * @param account the replacement
+     * @return the result
+     */
+    public VersionedAccount withAccount(AccountDTO account) {
+        return new VersionedAccount(account, this.version, this.shards);
+    }
+}
@@ -0,0 +1,23 @@
+package org.kirkiano.rpg.bank.exn;
+
+
+/**
+ * Reason given for a change, within an all-or-nothing batch, that was
+ * rolled back because some other change in the batch failed
+ */
+public class BatchAbortedException extends AccountException {
+    /**
+     * Constructor
+     *
+     * @param id ID of the account whose change was rolled back
+     */
+    public BatchAbortedException(long id) {
+        super("batch aborted; change to account " + id + " rolled back");
+        this.id = id;
+    }
+
+    /**
+     * ID of the account whose change was rolled back
+     */
+    public final long id;
+}
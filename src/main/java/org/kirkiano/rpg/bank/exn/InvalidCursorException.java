@@ -0,0 +1,24 @@
+package org.kirkiano.rpg.bank.exn;
+
+
+/**
+ * Thrown when a pagination cursor is malformed, or was issued for a
+ * different sort order
+ */
+public class InvalidCursorException extends AccountException {
+    /**
+     * Constructor
+     *
+     * @param cursor the cursor
+     * @param reason what is wrong with it
+     */
+    public InvalidCursorException(String cursor, String reason) {
+        super("cursor '" + cursor + "' " + reason);
+        this.cursor = cursor;
+    }
+
+    /**
+     * The cursor
+     */
+    public final String cursor;
+}
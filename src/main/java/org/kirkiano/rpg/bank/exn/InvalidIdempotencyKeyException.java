@@ -0,0 +1,24 @@
+package org.kirkiano.rpg.bank.exn;
+
+
+/**
+ * Thrown when an idempotency key is malformed, or has already been used
+ * for a different request
+ */
+public class InvalidIdempotencyKeyException extends AccountException {
+    /**
+     * Constructor
+     *
+     * @param key the idempotency key
+     * @param reason what is wrong with it
+     */
+    public InvalidIdempotencyKeyException(String key, String reason) {
+        super("idempotency key '" + key + "' " + reason);
+        this.key = key;
+    }
+
+    /**
+     * The idempotency key
+     */
+    public final String key;
+}
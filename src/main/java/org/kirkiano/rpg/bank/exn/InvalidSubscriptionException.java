@@ -0,0 +1,23 @@
+package org.kirkiano.rpg.bank.exn;
+
+
+/**
+ * Thrown when a subscription to the feed of balance changes follows no
+ * accounts, or too many
+ */
+public class InvalidSubscriptionException extends AccountException {
+    /**
+     * Constructor
+     *
+     * @param reason what is wrong with the subscription
+     */
+    public InvalidSubscriptionException(String reason) {
+        super("subscription " + reason);
+        this.reason = reason;
+    }
+
+    /**
+     * What is wrong with the subscription
+     */
+    public final String reason;
+}
@@ -0,0 +1,22 @@
+package org.kirkiano.rpg.bank.exn;
+
+
+/**
+ * Thrown on an attempt to transfer money from an account to itself
+ */
+public class SelfTransferException extends AccountException {
+    /**
+     * Constructor
+     *
+     * @param id ID of the account
+     */
+    public SelfTransferException(long id) {
+        super("transfer from account " + id + " to itself");
+        this.id = id;
+    }
+
+    /**
+     * ID of the account
+     */
+    public final long id;
+}
@@ -3,6 +3,7 @@ package org.kirkiano.rpg.bank.model;
 import java.text.MessageFormat;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.*;
 
 import org.kirkiano.rpg.bank.config.Constants;
@@ -13,7 +14,9 @@ import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
  * JPA model of bank account
  */
 @Entity(name = "Account")
-@Table(name = "account")
+@Table(name = "account",
+       indexes = @Index(name = "account_balance_id",
+                        columnList = "balance, id"))
 @Getter @Setter @NoArgsConstructor
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class Account extends BaseEntity {
@@ -81,16 +84,26 @@ public class Account extends BaseEntity {
     }
 
 
-    @Convert(converter = CharIdLongConverter.class)
+    @Type(CharIdType.class)
     @Column(name = "cid",
             nullable = false,
             unique = true)
     private CharId charId;
 
 
-    @Convert(converter = MoneyLongConverter.class)
+    @Type(MoneyType.class)
     @Column(name = Constants.BALANCE_KEY,
             nullable = false)
     private Money balance;
 
+
+    /**
+     * Number of shards over which the balance is spread, counting this
+     * row's own balance as shard 0. 0 or 1 means unsharded. For a
+     * sharded account, {@link #balance} is only shard 0; the others are
+     * {@link AccountShard}s.
+     */
+    @Column(nullable = false)
+    private int shards;
+
 }
@@ -0,0 +1,51 @@
+package org.kirkiano.rpg.bank.model;
+
+import java.io.Serializable;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
+import lombok.*;
+
+import org.kirkiano.rpg.bank.config.Constants;
+
+
+/**
+ * JPA model of one shard of a sharded account's balance. Shard 0 is
+ * the balance column of the {@link Account} itself; shards 1 and up
+ * are rows of this table. Written only through
+ * {@link org.kirkiano.rpg.bank.repository.AccountRepositoryCustom}.
+ */
+@Entity(name = "AccountShard")
+@Table(name = "account_shard")
+@IdClass(AccountShard.Key.class)
+@Getter @NoArgsConstructor
+public class AccountShard {
+
+    /**
+     * Composite primary key
+     */
+    @Getter @Setter @NoArgsConstructor @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private long accountId;
+        private int shard;
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Id
+    @Column(name = "account_id", nullable = false)
+    private long accountId;
+
+
+    @Id
+    @Column(nullable = false)
+    private int shard;
+
+
+    @Type(MoneyType.class)
+    @Column(name = Constants.BALANCE_KEY, nullable = false)
+    private Money balance;
+
+}
@@ -0,0 +1,113 @@
+package org.kirkiano.rpg.bank.model;
+
+import java.text.MessageFormat;
+import java.time.Instant;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Type;
+
+
+/**
+ * JPA model of an entry in the append-only journal of account
+ * transactions. Entries are written in batches by
+ * {@link org.kirkiano.rpg.bank.service.AccountJournal}, never updated.
+ */
+@Entity(name = "AccountTxn")
+@Table(name = "account_txn",
+       indexes = @Index(name = "account_txn_account_created_at",
+                        columnList = "account_id, created_at"))
+@Immutable
+@Getter @NoArgsConstructor
+public class AccountTxn {
+
+    /**
+     * Kind of transaction
+     */
+    public enum Kind {
+        /**
+         * Opening of an account, with its initial balance
+         */
+        OPEN,
+
+        /**
+         * Deposit or withdrawal
+         */
+        CHANGE,
+
+        /**
+         * One side of a transfer between accounts
+         */
+        TRANSFER
+    }
+
+    /**
+     * Instantiate an entry not yet written
+     *
+     * @param accountId ID of the account
+     * @param kind kind of transaction
+     * @param delta change to the balance
+     * @param balance balance left by the transaction
+     * @return the entry
+     */
+    public static AccountTxn create(long accountId,
+                                    Kind kind,
+                                    Money delta,
+                                    Money balance)
+    {
+        return new AccountTxn(accountId, kind, delta, balance);
+    }
+
+    ///////////////////////////////////////////////////////
+    // toString
+
+    public String toString() {
+        String fmt = "{0} of {1} on account ID {2}, leaving {3}";
+        return MessageFormat.format(
+            fmt, this.kind, this.delta, this.accountId, this.balance);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private AccountTxn(long accountId, Kind kind, Money delta, Money balance) {
+        this.accountId = accountId;
+        this.kind = kind;
+        this.delta = delta;
+        this.balance = balance;
+    }
+
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id; // boxed for nullability
+
+
+    @Column(name = "account_id", nullable = false)
+    private long accountId;
+
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+
+    @Type(MoneyType.class)
+    @Column(nullable = false)
+    private Money delta;
+
+
+    @Type(MoneyType.class)
+    @Column(nullable = false)
+    private Money balance;
+
+
+    /**
+     * Set by the database when the entry is written
+     */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+}
@@ -0,0 +1,10 @@
+package org.kirkiano.rpg.bank.model;
+
+
+/**
+ * A requested change to the balance of an account
+ *
+ * @param id account ID
+ * @param delta the change. A negative amount means withdrawal.
+ */
+public record BalanceChange(long id, Money delta) {}
@@ -2,27 +2,22 @@ package org.kirkiano.rpg.bank.model;
 
 import java.io.Serializable;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
-import jakarta.persistence.Embeddable;
 
 
 /**
- * Character ID newtype
+ * Character ID newtype. Immutable, so that it may safely be shared and
+ * used as a key.
  */
-@Embeddable
-public class CharId implements Cloneable, Serializable {
+public final class CharId implements Serializable {
 
     /**
-     * Default constructor
-     */
-    protected CharId() {}
-
-
-    /**
-     * Constructor
+     * Constructor. Also makes character IDs out of JSON.
      *
      * @param val ID value
      */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
     public CharId(long val) {
         this.val = val;
     }
@@ -39,7 +34,7 @@ public class CharId implements Cloneable, Serializable {
     }
 
     public int hashCode() {
-        return Long.valueOf(this.val).hashCode();
+        return Long.hashCode(this.val);
     }
 
     /**
@@ -57,33 +52,14 @@ public class CharId implements Cloneable, Serializable {
         return this.val;
     }
 
-    @Override
-    public CharId clone() {
-        try {
-            return (CharId) super.clone();
-        }
-        catch (CloneNotSupportedException ex) {
-            throw new RuntimeException("Failed to clone " + this);
-        }
-    }
-
-    /**
-     * Destructively increments the value of this ID
-     *
-     * @return self, for easy chaining
-     */
-    public CharId increment() {
-        this.val++;
-        return this;
-    }
-
     ///////////////////////////////////////////////////////
-    // protected
+    // private
 
     /**
-     * Raw character ID value
+     * Raw character ID value. Must remain the first field declared; see
+     * {@link org.kirkiano.rpg.bank.controller.error.Error.Type#create}.
      */
     @JsonValue
-    private long val;
+    private final long val;
 
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package org.kirkiano.rpg.bank.model;
+
+
+/**
+ * Maps {@link CharId} to a {@code bigint} column
+ */
+public class CharIdType extends LongValueType<CharId> {
+
+    /**
+     * Constructor
+     */
+    public CharIdType() {
+        super(CharId.class);
+    }
+
+    @Override
+    protected CharId fromLong(long val) {
+        return new CharId(val);
+    }
+
+    @Override
+    protected long toLong(CharId value) {
+        return value.value();
+    }
+}
@@ -0,0 +1,78 @@
+package org.kirkiano.rpg.bank.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
+import lombok.*;
+
+
+/**
+ * JPA model of the outcome of a balance change made under an
+ * idempotency key, kept so that a replay of the same request can be
+ * answered without applying it again
+ */
+@Entity(name = "IdempotencyRecord")
+@Table(name = "idempotency_key")
+@Getter @NoArgsConstructor
+public class IdempotencyRecord extends BaseEntity {
+
+    /**
+     * Maximum length of an idempotency key
+     */
+    public static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Instantiate
+     *
+     * @param key idempotency key
+     * @param accountId ID of the changed account
+     * @param delta the change requested
+     * @param balance the balance left by the change
+     * @return the record
+     */
+    public static IdempotencyRecord create(String key,
+                                           long accountId,
+                                           Money delta,
+                                           Money balance)
+    {
+        return new IdempotencyRecord(key, accountId, delta, balance);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private IdempotencyRecord(String key,
+                              long accountId,
+                              Money delta,
+                              Money balance)
+    {
+        this.idemKey = key;
+        this.accountId = accountId;
+        this.delta = delta;
+        this.balance = balance;
+    }
+
+
+    @Column(name = "idem_key",
+            length = MAX_KEY_LENGTH,
+            nullable = false,
+            unique = true,
+            updatable = false)
+    private String idemKey;
+
+
+    @Column(name = "account_id",
+            nullable = false,
+            updatable = false)
+    private long accountId;
+
+
+    @Type(MoneyType.class)
+    @Column(nullable = false, updatable = false)
+    private Money delta;
+
+
+    @Type(MoneyType.class)
+    @Column(nullable = false, updatable = false)
+    private Money balance;
+
+}
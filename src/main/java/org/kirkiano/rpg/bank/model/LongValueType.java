@@ -0,0 +1,120 @@
+package org.kirkiano.rpg.bank.model;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+
+/*
+Regarding Hibernate's old way of converting custom types, see:
+* https://stackoverflow.com/a/76442375
+* https://www.baeldung.com/hibernate-custom-types
+*/
+
+/**
+ * Maps an immutable wrapper of a {@code long} to a {@code bigint}
+ * column. Unlike a JPA attribute converter, which must go through
+ * {@link Long}, it reads and binds the primitive directly.
+ *
+ * @param <T> the wrapper type
+ */
+abstract class LongValueType<T> implements UserType<T> {
+
+    /**
+     * Constructor
+     *
+     * @param type the wrapper type
+     */
+    protected LongValueType(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Wrap a value read from the database
+     *
+     * @param val the value
+     * @return the wrapper
+     */
+    protected abstract T fromLong(long val);
+
+    /**
+     * Unwrap a value to write to the database
+     *
+     * @param value the wrapper
+     * @return the value
+     */
+    protected abstract long toLong(T value);
+
+    @Override
+    public int getSqlType() {
+        return Types.BIGINT;
+    }
+
+    @Override
+    public Class<T> returnedClass() {
+        return this.type;
+    }
+
+    @Override
+    public boolean equals(T x, T y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(T x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public T nullSafeGet(ResultSet rs,
+                         int position,
+                         SharedSessionContractImplementor session,
+                         Object owner)
+        throws SQLException
+    {
+        long val = rs.getLong(position);
+        return rs.wasNull() ? null : this.fromLong(val);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st,
+                            T value,
+                            int index,
+                            SharedSessionContractImplementor session)
+        throws SQLException
+    {
+        if (value == null) st.setNull(index, Types.BIGINT);
+        else st.setLong(index, this.toLong(value));
+    }
+
+    @Override
+    public T deepCopy(T value) {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(T value) {
+        return (Serializable) value;
+    }
+
+    @Override
+    public T assemble(Serializable cached, Object owner) {
+        return this.type.cast(cached);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private final Class<T> type;
+}
@@ -2,11 +2,15 @@ package org.kirkiano.rpg.bank.model;
 
 import java.io.Serializable;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
 
 /**
- * Money type
+ * Money type. Immutable; amounts from {@value #CACHE_LOW} to
+ * {@value #CACHE_HIGH}, which most balance changes are, are shared
+ * instances, so making them allocates nothing. Arithmetic fails on
+ * overflow rather than wrapping around.
  */
 public class Money extends Number implements Serializable {
 
@@ -16,13 +20,26 @@ public class Money extends Number implements Serializable {
     public static final Money ZERO = Money.from(0);
 
     /**
-     * Make money out of an amount.
+     * Smallest amount of which the instance is shared
+     */
+    public static final long CACHE_LOW = -128;
+
+    /**
+     * Largest amount of which the instance is shared
+     */
+    public static final long CACHE_HIGH = 1024;
+
+    /**
+     * Make money out of an amount. Also makes money out of JSON.
      *
      * @param val amount
      * @return Money
      */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
     public static Money from(long val) {
-        return new Money(val);
+        return val >= CACHE_LOW && val <= CACHE_HIGH ?
+            Cache.AMOUNTS[(int) (val - CACHE_LOW)] :
+            new Money(val);
     }
 
     /**
@@ -31,9 +48,22 @@ public class Money extends Number implements Serializable {
      * @param m1 First {@link Money}
      * @param m2 Second {@link Money}
      * @return Sum {@link Money}
+     * @throws ArithmeticException In case the sum overflows
      */
     public static Money add(Money m1, Money m2) {
-        return Money.from(m1.longValue() + m2.longValue());
+        return Money.from(Math.addExact(m1.val, m2.val));
+    }
+
+    /**
+     * Subtracts one {@link Money} from another, leaving them unmutated.
+     *
+     * @param m1 {@link Money} to subtract from
+     * @param m2 {@link Money} to subtract
+     * @return Difference {@link Money}
+     * @throws ArithmeticException In case the difference overflows
+     */
+    public static Money subtract(Money m1, Money m2) {
+        return Money.from(Math.subtractExact(m1.val, m2.val));
     }
 
     ///////////////////////////////////////////////////////
@@ -49,6 +79,11 @@ public class Money extends Number implements Serializable {
         return other instanceof Money && val == ((Money) other).val;
     }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.val);
+    }
+
     ///////////////////////////////////////////////////////
     // instance methods
 
@@ -84,6 +119,20 @@ public class Money extends Number implements Serializable {
     /////////////////////////////////////////////////////
     // private
 
+    /**
+     * The shared instances, made on first use
+     */
+    private static class Cache {
+        static final Money[] AMOUNTS =
+            new Money[(int) (CACHE_HIGH - CACHE_LOW + 1)];
+
+        static {
+            for (int i = 0; i < AMOUNTS.length; i++) {
+                AMOUNTS[i] = new Money(CACHE_LOW + i);
+            }
+        }
+    }
+
     private Money(long val) {
         this.val = val;
     }
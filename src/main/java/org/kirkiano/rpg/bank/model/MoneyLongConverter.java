@@ -1,19 +0,0 @@
-package org.kirkiano.rpg.bank.model;
-
-import jakarta.persistence.AttributeConverter;
-import jakarta.persistence.Converter;
-
-
-@Converter
-class MoneyLongConverter implements AttributeConverter<Money, Long> {
-
-    @Override
-    public Long convertToDatabaseColumn(Money money) {
-        return money.longValue();
-    }
-
-    @Override
-    public Money convertToEntityAttribute(Long aLong) {
-        return Money.from(aLong);
-    }
-}
\ No newline at end of file
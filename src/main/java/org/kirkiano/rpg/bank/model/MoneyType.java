@@ -0,0 +1,25 @@
+package org.kirkiano.rpg.bank.model;
+
+
+/**
+ * Maps {@link Money} to a {@code bigint} column
+ */
+public class MoneyType extends LongValueType<Money> {
+
+    /**
+     * Constructor
+     */
+    public MoneyType() {
+        super(Money.class);
+    }
+
+    @Override
+    protected Money fromLong(long val) {
+        return Money.from(val);
+    }
+
+    @Override
+    protected long toLong(Money value) {
+        return value.longValue();
+    }
+}
@@ -1,14 +1,22 @@
 package org.kirkiano.rpg.bank.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.kirkiano.rpg.bank.model.CharId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 // import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.AccountVersion;
+import org.kirkiano.rpg.bank.dto.VersionedAccount;
 import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.Money;
 
 
 /**
@@ -16,7 +24,9 @@ import org.kirkiano.rpg.bank.model.Account;
  */
 // @RepositoryRestResource
 @Repository
-public interface AccountRepository extends JpaRepository<Account, Long> {
+public interface AccountRepository extends JpaRepository<Account, Long>,
+                                           AccountRepositoryCustom
+{
 
     /**
      * Retrieve an account by its owner's ID
@@ -25,4 +35,98 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      */
     @Query(value = "select a from Account a where a.charId = ?1")
     List<Account> findByCharId(CharId charId);
+
+    /**
+     * Retrieve an account, as a DTO built by the query itself, so that
+     * no entity is loaded into the persistence context. For a sharded
+     * account, the balance is only that of shard 0.
+     *
+     * @param id account ID
+     * @return the account, if it exists
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select new org.kirkiano.rpg.bank.dto.AccountDTO(" +
+                   "a.id, a.charId, a.balance) " +
+                   "from Account a where a.id = ?1")
+    Optional<AccountDTO> findDTOById(long id);
+
+    /**
+     * Like {@link #findDTOById}, but with the row's version and number
+     * of shards
+     *
+     * @param id account ID
+     * @return the account, if it exists
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select new org.kirkiano.rpg.bank.dto.VersionedAccount(" +
+                   "a.id, a.charId, a.balance, a.version, a.shards) " +
+                   "from Account a where a.id = ?1")
+    Optional<VersionedAccount> findVersionedById(long id);
+
+    /**
+     * Fetch only the version of an account's row, provided that the
+     * account is unsharded, so that a client's copy of it may be
+     * validated without reading the rest of it
+     *
+     * @param id account ID
+     * @return the version, or empty if the account does not exist or is
+     *         sharded
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select new org.kirkiano.rpg.bank.dto.AccountVersion(" +
+                   "a.id, a.version) " +
+                   "from Account a where a.id = ?1 and a.shards <= 1")
+    Optional<AccountVersion> findUnshardedVersion(long id);
+
+    /**
+     * Like {@link #findUnshardedVersion(long)}, but by owner's ID
+     *
+     * @param charId owner's ID
+     * @return the version, or empty if the account does not exist or is
+     *         sharded
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select new org.kirkiano.rpg.bank.dto.AccountVersion(" +
+                   "a.id, a.version) " +
+                   "from Account a where a.charId = ?1 and a.shards <= 1")
+    Optional<AccountVersion> findUnshardedVersion(CharId charId);
+
+    /**
+     * Like {@link #findVersionedById}, but by owner's ID
+     *
+     * @param charId owner's ID
+     * @return the account, if it exists
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select new org.kirkiano.rpg.bank.dto.VersionedAccount(" +
+                   "a.id, a.charId, a.balance, a.version, a.shards) " +
+                   "from Account a where a.charId = ?1")
+    Optional<VersionedAccount> findVersionedByCharId(CharId charId);
+
+    /**
+     * Count the accounts ranked ahead of the given balance and ID, by
+     * descending balance and then by ID. Sharded accounts are ranked
+     * by the balances of their rows.
+     *
+     * @param balance balance
+     * @param id account ID, to break ties
+     * @return number of accounts ahead
+     */
+    @Query(value = "select count(a) from Account a " +
+                   "where a.balance > ?1 or (a.balance = ?1 and a.id < ?2)")
+    long countRankedAhead(Money balance, long id);
+
+    /**
+     * Retrieve a page of accounts as DTOs, like {@link #findDTOById},
+     * without counting them all. (Spring Data fetches one more than the
+     * page length, to tell whether there is a next page.) The query is
+     * derived, rather than declared, so that Spring Data checks the
+     * sort properties; it builds the DTOs because their components are
+     * named after properties of {@link Account}.
+     *
+     * @param pageable page and sort order
+     * @return the page
+     */
+    @Transactional(readOnly = true)
+    Slice<AccountDTO> findAllProjectedBy(Pageable pageable);
 }
\ No newline at end of file
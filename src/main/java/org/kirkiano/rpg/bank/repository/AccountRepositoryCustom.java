@@ -0,0 +1,229 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.lang.Nullable;
+
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.VersionedAccount;
+import org.kirkiano.rpg.bank.model.BalanceChange;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Account store operations that bypass the JPA persistence context,
+ * for write paths where entity hydration would only cost round trips,
+ * and queries too dynamic for Spring Data to derive
+ */
+public interface AccountRepositoryCustom {
+
+    /**
+     * Atomically add {@code delta} to the balance of an unsharded
+     * account, but only if the result would not be negative. This is a
+     * single conditional {@code UPDATE}; the new balance is returned by
+     * the same statement, so no prior read is needed and concurrent
+     * writers cannot lose each other's updates. The row of a sharded
+     * account is left alone, since its balance is not the account's;
+     * see {@link #addToShard}.
+     *
+     * @param id account ID
+     * @param delta change to apply. A negative value means withdrawal.
+     * @return the new balance, or empty if no row was updated, ie, if
+     *         the account does not exist, is sharded, or would have
+     *         been overdrawn by the change
+     */
+    Optional<Money> addToBalance(long id, Money delta);
+
+    /**
+     * Like {@link #addToBalance}, but for many changes, sent to the
+     * database as one JDBC batch and applied in the given order, and to
+     * the rows of sharded accounts too. Callers must therefore have
+     * collected the shards of those accounts, under lock; see
+     * {@link #lockShardCounts}. The new balances are not returned; see
+     * {@link #findBalancesByIds}.
+     *
+     * @param changes the changes
+     * @return for each change, whether it was applied
+     * @throws org.springframework.dao.IncorrectUpdateSemanticsDataAccessException
+     *         if the driver does not report how many rows each change
+     *         updated, as some do when they rewrite batches; the
+     *         transaction should then be rolled back, as there is no
+     *         telling which changes were applied
+     */
+    boolean[] addToBalances(List<BalanceChange> changes);
+
+    /**
+     * Fetch the balances of many accounts in one query
+     *
+     * @param ids account IDs
+     * @return balances keyed by account ID. Nonexistent accounts are absent.
+     */
+    Map<Long, Money> findBalancesByIds(Collection<Long> ids);
+
+    /**
+     * Fetch many accounts in one query, as by
+     * {@link AccountRepository#findVersionedById}
+     *
+     * @param ids account IDs
+     * @return the accounts, in no particular order. Nonexistent
+     *         accounts are absent.
+     */
+    List<VersionedAccount> findVersionedByIds(Collection<Long> ids);
+
+    /**
+     * Fetch many accounts in one query, as DTOs built from their rows,
+     * as by {@link AccountRepository#findDTOById}
+     *
+     * @param charIds owners' IDs
+     * @return the accounts, in no particular order. Characters without
+     *         an account are absent.
+     */
+    List<AccountDTO> findDTOsByCharIds(Collection<CharId> charIds);
+
+    /**
+     * Fetch an account's balance and lock its row until the end of the
+     * current transaction
+     *
+     * @param id account ID
+     * @return the balance, or empty if the account does not exist
+     */
+    Optional<Money> findBalanceForUpdate(long id);
+
+    /**
+     * Fetch the accounts that follow a given position in a sort order,
+     * by seeking rather than by offset, so that a deep page costs what
+     * the first one does. Ties in the sort property are broken by ID.
+     * The accounts are built as DTOs by the query, as by
+     * {@link AccountRepository#findDTOById}.
+     *
+     * @param property the sort property; one of {@code id},
+     *                 {@code balance} and {@code charId}
+     * @param descending whether the order is descending
+     * @param afterKey value of the sort property at the position, in
+     *                 the property's own type, or null to start from
+     *                 the beginning
+     * @param afterId account ID at the position
+     * @param limit maximum number of accounts to fetch
+     * @return the accounts, in order
+     */
+    List<AccountDTO> findPageAfter(String property,
+                                boolean descending,
+                                @Nullable Object afterKey,
+                                long afterId,
+                                int limit);
+
+    /**
+     * Stream every account, in order of ID, from a single query whose
+     * rows the driver fetches in batches, through a server-side cursor
+     * on PostgreSQL. The accounts are built as DTOs, as by
+     * {@link AccountRepository#findDTOById}, so the persistence context
+     * does not grow. Must be called, and the stream consumed and
+     * closed, within a transaction.
+     *
+     * @param fetchSize number of rows to fetch at a time
+     * @return the accounts
+     */
+    Stream<AccountDTO> streamAll(int fetchSize);
+
+    /**
+     * Estimate the number of accounts cheaply. On PostgreSQL this is
+     * the planner's estimate, as of the table's last {@code ANALYZE};
+     * elsewhere, or if the table has never been analyzed, it is an
+     * exact count.
+     *
+     * @return the estimate
+     */
+    long estimateCount();
+
+    ///////////////////////////////////////////////////////
+    // shards
+
+    /**
+     * Fetch the number of shards of an account
+     *
+     * @param id account ID
+     * @return the number of shards, or empty if the account does not exist
+     */
+    Optional<Integer> findShardCount(long id);
+
+    /**
+     * Fetch the number of shards of every sharded account
+     *
+     * @return numbers of shards keyed by account ID
+     */
+    Map<Long, Integer> findShardCounts();
+
+    /**
+     * Like {@link #findShardCounts()}, but only among the given accounts
+     *
+     * @param ids account IDs
+     * @return numbers of shards of the sharded ones, keyed by account ID
+     */
+    Map<Long, Integer> findShardCounts(Collection<Long> ids);
+
+    /**
+     * Lock the rows of the given accounts, in order of ID, until the
+     * end of the current transaction, and fetch their numbers of shards.
+     * Accounts cannot be resharded while their rows are locked.
+     *
+     * @param ids account IDs
+     * @return numbers of shards keyed by account ID. Nonexistent
+     *         accounts are absent.
+     */
+    Map<Long, Integer> lockShardCounts(Collection<Long> ids);
+
+    /**
+     * Like {@link #addToBalance}, but on one shard of an account,
+     * sharded or not. Shard 0 is the account's row. On shards 1 and up,
+     * neither the version nor the modification time of the account
+     * changes, so that writes to different shards do not contend on the
+     * account's row.
+     *
+     * @param id account ID
+     * @param shard shard number
+     * @param delta change to apply. A negative value means withdrawal.
+     * @return whether the shard was changed
+     */
+    boolean addToShard(long id, int shard, Money delta);
+
+    /**
+     * Fetch the sum of shards 1 and up of an account
+     *
+     * @param id account ID
+     * @return the sum; zero if the account is not sharded
+     */
+    Money sumShards(long id);
+
+    /**
+     * Fetch an account's total balance, across all its shards
+     *
+     * @param id account ID
+     * @return the balance, or empty if the account does not exist
+     */
+    Optional<Money> findTotalBalance(long id);
+
+    /**
+     * Move the balances of shards 1 and up of an account into shard 0,
+     * within the current transaction. The account's row, then its shard
+     * rows, are locked until the end of the transaction.
+     *
+     * @param id account ID
+     * @return whether the account exists
+     */
+    boolean collectShards(long id);
+
+    /**
+     * Collect an account's shards, as by {@link #collectShards}, then
+     * spread it over the given number of shards, all but shard 0 empty
+     *
+     * @param id account ID
+     * @param shards number of shards. 0 or 1 means unsharded.
+     * @return whether the account exists
+     */
+    boolean reshard(long id, int shards);
+}
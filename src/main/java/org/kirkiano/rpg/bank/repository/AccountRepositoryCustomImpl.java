@@ -0,0 +1,427 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.lang.Nullable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.VersionedAccount;
+import org.kirkiano.rpg.bank.model.BalanceChange;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * JDBC implementation of {@link AccountRepositoryCustom}, but for
+ * {@link #findPageAfter} and {@link #streamAll}, which are JPQL.
+ * Spring Data mixes it into {@link AccountRepository}.
+ */
+class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
+
+    @Autowired
+    AccountRepositoryCustomImpl(JdbcTemplate jdbc, EntityManager em) {
+        this.jdbc = jdbc;
+        this.em = em;
+    }
+
+    @Override
+    public Optional<Money> addToBalance(long id, Money delta) {
+        // Asking for the balance column as a "generated key" makes the
+        // PostgreSQL driver append RETURNING to the UPDATE, so the new
+        // balance comes back in the same round trip.
+        var keys = new GeneratedKeyHolder();
+        int updated = this.jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(ADD_TO_BALANCE,
+                                                        RETURNED_COLUMNS);
+            ps.setLong(1, delta.longValue());
+            ps.setLong(2, id);
+            ps.setLong(3, delta.longValue());
+            return ps;
+        }, keys);
+        if (updated == 0) return Optional.empty();
+        // Drivers differ in the case of the returned column name, but
+        // there is only one column.
+        Number balance = (Number) keys.getKeys().values().iterator().next();
+        return Optional.of(Money.from(balance.longValue()));
+    }
+
+    @Override
+    public boolean[] addToBalances(List<BalanceChange> changes) {
+        int[] counts = this.jdbc.batchUpdate(ADD_TO_ROW,
+                                             new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i)
+                throws SQLException
+            {
+                BalanceChange change = changes.get(i);
+                ps.setLong(1, change.delta().longValue());
+                ps.setLong(2, change.id());
+                ps.setLong(3, change.delta().longValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+        var applied = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            // A change that updated no row was refused by the UPDATE's
+            // guard, but without a count the outcome is unknown.
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IncorrectUpdateSemanticsDataAccessException(
+                    "JDBC driver reported no update count for change " + i +
+                    " of a batch; disable batch rewriting for UPDATEs");
+            }
+            applied[i] = counts[i] > 0;
+        }
+        return applied;
+    }
+
+    @Override
+    public Map<Long, Money> findBalancesByIds(Collection<Long> ids) {
+        var balances = new HashMap<Long, Money>();
+        this.jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BALANCES);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, rs -> {
+            balances.put(rs.getLong(1), Money.from(rs.getLong(2)));
+        });
+        return balances;
+    }
+
+    @Override
+    public List<VersionedAccount> findVersionedByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        return this.jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BY_IDS);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, (rs, i) -> new VersionedAccount(rs.getLong(1),
+                                           new CharId(rs.getLong(2)),
+                                           Money.from(rs.getLong(3)),
+                                           rs.getInt(4),
+                                           rs.getInt(5)));
+    }
+
+    @Override
+    public List<AccountDTO> findDTOsByCharIds(Collection<CharId> charIds) {
+        if (charIds.isEmpty()) return List.of();
+        Object[] keys = charIds.stream().map(CharId::value).toArray();
+        return this.jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BY_CHAR_IDS);
+            ps.setArray(1, con.createArrayOf("bigint", keys));
+            return ps;
+        }, (rs, i) -> new AccountDTO(rs.getLong(1),
+                                     new CharId(rs.getLong(2)),
+                                     Money.from(rs.getLong(3))));
+    }
+
+    @Override
+    public Optional<Money> findBalanceForUpdate(long id) {
+        return this.jdbc.query(FIND_BALANCE_FOR_UPDATE,
+                               rs -> rs.next() ?
+                                   Optional.of(Money.from(rs.getLong(1))) :
+                                   Optional.<Money>empty(),
+                               id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AccountDTO> findPageAfter(String property,
+                                       boolean descending,
+                                       @Nullable Object afterKey,
+                                       long afterId,
+                                       int limit)
+    {
+        if (!SEEKABLE_PROPERTIES.contains(property)) {
+            throw new IllegalArgumentException("Cannot seek on " + property);
+        }
+        String cmp = descending ? "<" : ">";
+        String dir = descending ? "desc" : "asc";
+        String p = "a." + property;
+        var jpql = new StringBuilder(
+            "select new org.kirkiano.rpg.bank.dto.AccountDTO(" +
+            "a.id, a.charId, a.balance) from Account a");
+        if (afterKey != null) {
+            jpql.append(" where ").append(p).append(' ').append(cmp)
+                .append(" :key or (").append(p).append(" = :key and a.id ")
+                .append(cmp).append(" :id)");
+        }
+        jpql.append(" order by ").append(p).append(' ').append(dir)
+            .append(", a.id ").append(dir);
+        TypedQuery<AccountDTO> query = this.em
+            .createQuery(jpql.toString(), AccountDTO.class)
+            .setMaxResults(limit);
+        if (afterKey != null) {
+            query.setParameter("key", afterKey).setParameter("id", afterId);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public Stream<AccountDTO> streamAll(int fetchSize) {
+        return this.em
+            .createQuery(STREAM_ALL, AccountDTO.class)
+            .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+            .setHint(AvailableHints.HINT_READ_ONLY, true)
+            .getResultStream();
+    }
+
+    @Override
+    public long estimateCount() {
+        if (this.isPostgres()) {
+            Long estimate = this.jdbc.queryForObject(ESTIMATE_COUNT, Long.class);
+            if (estimate != null && estimate >= 0) return estimate;
+        }
+        Long count = this.jdbc.queryForObject(COUNT, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    ///////////////////////////////////////////////////////
+    // shards
+
+    @Override
+    public Optional<Integer> findShardCount(long id) {
+        return this.jdbc.query(FIND_SHARD_COUNT,
+                               rs -> rs.next() ?
+                                   Optional.of(rs.getInt(1)) :
+                                   Optional.<Integer>empty(),
+                               id);
+    }
+
+    @Override
+    public Map<Long, Integer> findShardCounts() {
+        var counts = new HashMap<Long, Integer>();
+        this.jdbc.query(FIND_SHARD_COUNTS, rs -> {
+            counts.put(rs.getLong(1), rs.getInt(2));
+        });
+        return counts;
+    }
+
+    @Override
+    public Map<Long, Integer> findShardCounts(Collection<Long> ids) {
+        return this.shardCounts(FIND_SHARD_COUNTS_AMONG, ids);
+    }
+
+    @Override
+    public Map<Long, Integer> lockShardCounts(Collection<Long> ids) {
+        return this.shardCounts(LOCK_SHARD_COUNTS, ids);
+    }
+
+    @Override
+    public boolean addToShard(long id, int shard, Money delta) {
+        if (shard == 0) {
+            return this.jdbc.update(ADD_TO_ROW,
+                                    delta.longValue(),
+                                    id,
+                                    delta.longValue()) > 0;
+        }
+        return this.jdbc.update(ADD_TO_SHARD,
+                                delta.longValue(),
+                                id,
+                                shard,
+                                delta.longValue()) > 0;
+    }
+
+    @Override
+    public Money sumShards(long id) {
+        Long sum = this.jdbc.queryForObject(SUM_SHARDS, Long.class, id);
+        return Money.from(sum == null ? 0 : sum);
+    }
+
+    @Override
+    public Optional<Money> findTotalBalance(long id) {
+        return this.jdbc.query(FIND_TOTAL_BALANCE,
+                               rs -> rs.next() ?
+                                   Optional.of(Money.from(rs.getLong(1))) :
+                                   Optional.<Money>empty(),
+                               id);
+    }
+
+    @Override
+    public boolean collectShards(long id) {
+        // Lock the account's row before its shards, always, so that
+        // concurrent collections cannot deadlock.
+        if (this.findBalanceForUpdate(id).isEmpty()) return false;
+        List<Long> shards = this.jdbc.queryForList(LOCK_SHARDS, Long.class, id);
+        long sum = shards.stream().mapToLong(Long::longValue).sum();
+        if (sum != 0) {
+            this.jdbc.update(EMPTY_SHARDS, id);
+            this.jdbc.update(ADD_TO_ROW, sum, id, sum);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean reshard(long id, int shards) {
+        if (!this.collectShards(id)) return false;
+        this.jdbc.update(DELETE_SHARDS, id);
+        if (shards > 1) {
+            this.jdbc.batchUpdate(INSERT_SHARD, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i)
+                    throws SQLException
+                {
+                    ps.setLong(1, id);
+                    ps.setInt(2, i + 1);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return shards - 1;
+                }
+            });
+        }
+        this.jdbc.update(SET_SHARD_COUNT, Math.max(shards, 0), id);
+        return true;
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private boolean isPostgres() {
+        Boolean isPostgres = this.isPostgres;
+        if (isPostgres == null) {
+            String product = this.jdbc.execute((ConnectionCallback<String>)
+                con -> con.getMetaData().getDatabaseProductName());
+            isPostgres = "PostgreSQL".equals(product);
+            this.isPostgres = isPostgres;
+        }
+        return isPostgres;
+    }
+
+    /**
+     * Body of {@link #findShardCounts(Collection)} and
+     * {@link #lockShardCounts}
+     */
+    private Map<Long, Integer> shardCounts(String sql, Collection<Long> ids) {
+        var counts = new HashMap<Long, Integer>();
+        if (ids.isEmpty()) return counts;
+        this.jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, rs -> {
+            counts.put(rs.getLong(1), rs.getInt(2));
+        });
+        return counts;
+    }
+
+    // The row of a sharded account holds only shard 0, so the guard on
+    // shards keeps callers with a stale idea of the account's sharding
+    // from taking that for the account's balance.
+    private static final String ADD_TO_BALANCE =
+        "update account " +
+        "set balance = balance + ?, " +
+            "version = version + 1, " +
+            "modified_at = current_timestamp " +
+        "where id = ? and balance + ? >= 0 and shards <= 1";
+
+    private static final String ADD_TO_ROW =
+        "update account " +
+        "set balance = balance + ?, " +
+            "version = version + 1, " +
+            "modified_at = current_timestamp " +
+        "where id = ? and balance + ? >= 0";
+
+    private static final String FIND_BALANCES =
+        "select id, balance from account where id = any(?)";
+
+    private static final String FIND_BY_IDS =
+        "select id, cid, balance, version, shards from account " +
+        "where id = any(?)";
+
+    private static final String FIND_BY_CHAR_IDS =
+        "select id, cid, balance from account where cid = any(?)";
+
+    private static final String FIND_BALANCE_FOR_UPDATE =
+        "select balance from account where id = ? for update";
+
+    private static final String STREAM_ALL =
+        "select new org.kirkiano.rpg.bank.dto.AccountDTO(" +
+        "a.id, a.charId, a.balance) from Account a order by a.id";
+
+    // reltuples is -1 until the table is first analyzed.
+    private static final String ESTIMATE_COUNT =
+        "select reltuples::bigint from pg_class " +
+        "where oid = to_regclass('account')";
+
+    private static final String COUNT = "select count(*) from account";
+
+    private static final String FIND_SHARD_COUNT =
+        "select shards from account where id = ?";
+
+    private static final String FIND_SHARD_COUNTS =
+        "select id, shards from account where shards > 1";
+
+    private static final String FIND_SHARD_COUNTS_AMONG =
+        "select id, shards from account where id = any(?) and shards > 1";
+
+    private static final String LOCK_SHARD_COUNTS =
+        "select id, shards from account where id = any(?) " +
+        "order by id for update";
+
+    private static final String ADD_TO_SHARD =
+        "update account_shard set balance = balance + ? " +
+        "where account_id = ? and shard = ? and balance + ? >= 0";
+
+    private static final String SUM_SHARDS =
+        "select coalesce(sum(balance), 0) from account_shard " +
+        "where account_id = ?";
+
+    private static final String FIND_TOTAL_BALANCE =
+        "select a.balance + coalesce((select sum(s.balance) " +
+                                     "from account_shard s " +
+                                     "where s.account_id = a.id), 0) " +
+        "from account a where a.id = ?";
+
+    private static final String LOCK_SHARDS =
+        "select balance from account_shard where account_id = ? " +
+        "order by shard for update";
+
+    private static final String EMPTY_SHARDS =
+        "update account_shard set balance = 0 where account_id = ?";
+
+    private static final String DELETE_SHARDS =
+        "delete from account_shard where account_id = ?";
+
+    private static final String INSERT_SHARD =
+        "insert into account_shard (account_id, shard, balance) " +
+        "values (?, ?, 0)";
+
+    private static final String SET_SHARD_COUNT =
+        "update account set shards = ?, version = version + 1 where id = ?";
+
+    private static final String[] RETURNED_COLUMNS = {Constants.BALANCE_KEY};
+
+    private static final List<String> SEEKABLE_PROPERTIES =
+        List.of("id", Constants.BALANCE_KEY, Constants.CHAR_ID_KEY);
+
+    private final JdbcTemplate jdbc;
+
+    private final EntityManager em;
+
+    @Nullable
+    private volatile Boolean isPostgres;
+}
@@ -0,0 +1,35 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import org.kirkiano.rpg.bank.model.AccountTxn;
+
+
+/**
+ * The journal of account transactions
+ */
+@Repository
+public interface AccountTxnRepository extends JpaRepository<AccountTxn, Long>,
+                                              AccountTxnRepositoryCustom
+{
+    /**
+     * Retrieve the journal entries of an account within a time range,
+     * in the order they were written. Bounding the time range lets the
+     * database skip the partitions outside it.
+     *
+     * @param accountId account ID
+     * @param from start of the range, inclusive
+     * @param to end of the range, exclusive
+     * @return the entries
+     */
+    @Query(value = "select t from AccountTxn t " +
+                   "where t.accountId = ?1 " +
+                   "and t.createdAt >= ?2 and t.createdAt < ?3 " +
+                   "order by t.createdAt, t.id")
+    List<AccountTxn> findByAccountId(long accountId, Instant from, Instant to);
+}
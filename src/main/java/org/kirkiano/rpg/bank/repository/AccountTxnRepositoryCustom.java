@@ -0,0 +1,30 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.kirkiano.rpg.bank.model.AccountTxn;
+
+
+/**
+ * Journal operations that bypass JPA
+ */
+public interface AccountTxnRepositoryCustom {
+
+    /**
+     * Append entries to the journal as a single JDBC batch, within the
+     * current transaction. Each entry is stamped with the time of the
+     * transaction.
+     *
+     * @param entries entries not yet written
+     */
+    void appendAll(List<AccountTxn> entries);
+
+    /**
+     * Make sure the journal has a partition for the month containing a
+     * given day. Supported by PostgreSQL only.
+     *
+     * @param day the day
+     */
+    void ensurePartition(LocalDate day);
+}
@@ -0,0 +1,68 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import org.kirkiano.rpg.bank.model.AccountTxn;
+
+
+/**
+ * JDBC implementation of {@link AccountTxnRepositoryCustom}. Spring Data
+ * mixes it into {@link AccountTxnRepository}.
+ */
+class AccountTxnRepositoryCustomImpl implements AccountTxnRepositoryCustom {
+
+    @Autowired
+    AccountTxnRepositoryCustomImpl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void appendAll(List<AccountTxn> entries) {
+        if (entries.isEmpty()) return;
+        this.jdbc.batchUpdate(APPEND, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i)
+                throws SQLException
+            {
+                AccountTxn entry = entries.get(i);
+                ps.setLong(1, entry.getAccountId());
+                ps.setString(2, entry.getKind().name());
+                ps.setLong(3, entry.getDelta().longValue());
+                ps.setLong(4, entry.getBalance().longValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    @Override
+    public void ensurePartition(LocalDate day) {
+        this.jdbc.query(ENSURE_PARTITION,
+                        rs -> null,
+                        Date.valueOf(day));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final String APPEND =
+        "insert into account_txn " +
+        "(account_id, kind, delta, balance, created_at) " +
+        "values (?, ?, ?, ?, current_timestamp)";
+
+    private static final String ENSURE_PARTITION =
+        "select account_txn_ensure_partition(?)";
+
+    private final JdbcTemplate jdbc;
+}
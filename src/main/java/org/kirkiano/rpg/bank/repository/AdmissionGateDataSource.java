@@ -0,0 +1,153 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+
+/**
+ * Admits a bounded number of threads at a time to the connection pool,
+ * in FIFO order.
+ * <p>
+ * Every repository call, whether through JPA or JDBC, checks out a
+ * connection here first. Virtual threads are cheap enough that
+ * thousands of them may want a connection at once; without this gate
+ * they would all pile up inside the pool, which is built for a few
+ * dozen waiters. Here they park on a fair semaphore instead, holding a
+ * permit from checkout until the connection is closed, and give up
+ * after a timeout.
+ * <p>
+ * Metrics: {@code bank.jdbc.gate.wait} times admission,
+ * {@code bank.jdbc.gate.waiting} counts waiting threads, and
+ * {@code bank.jdbc.gate.rejected} counts timeouts.
+ */
+public class AdmissionGateDataSource extends DelegatingDataSource {
+
+    /**
+     * Constructor
+     *
+     * @param target the data source to guard
+     * @param permits number of threads admitted at once
+     * @param timeout how long a thread waits to be admitted
+     * @param registry meter registry
+     */
+    public AdmissionGateDataSource(DataSource target,
+                                   int permits,
+                                   Duration timeout,
+                                   MeterRegistry registry)
+    {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.timeoutNanos = timeout.toNanos();
+        this.waits = Timer.builder("bank.jdbc.gate.wait")
+            .description("Time spent waiting for admission to the pool")
+            .register(registry);
+        this.rejections = Counter.builder("bank.jdbc.gate.rejected")
+            .description("Threads that timed out awaiting admission")
+            .register(registry);
+        Gauge.builder("bank.jdbc.gate.waiting", this.permits,
+                      Semaphore::getQueueLength)
+            .description("Threads awaiting admission to the pool")
+            .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        this.admit();
+        try {
+            return this.released(super.getConnection());
+        }
+        catch (SQLException | RuntimeException ex) {
+            this.permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+        throws SQLException
+    {
+        this.admit();
+        try {
+            return this.released(super.getConnection(username, password));
+        }
+        catch (SQLException | RuntimeException ex) {
+            this.permits.release();
+            throw ex;
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private void admit() throws SQLException {
+        long t0 = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = this.permits.tryAcquire(this.timeoutNanos,
+                                               TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException(
+                "Interrupted awaiting admission to the connection pool", ex);
+        }
+        this.waits.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        if (!admitted) {
+            this.rejections.increment();
+            throw new SQLTransientConnectionException(
+                "Timed out awaiting admission to the connection pool");
+        }
+    }
+
+    /**
+     * Wrap a connection so that closing it returns the permit, once
+     */
+    private Connection released(Connection con) {
+        var closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("close") &&
+                    closed.compareAndSet(false, true))
+                {
+                    try {
+                        con.close();
+                    }
+                    finally {
+                        this.permits.release();
+                    }
+                    return null;
+                }
+                try {
+                    return method.invoke(con, args);
+                }
+                catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            });
+    }
+
+    private final Semaphore permits;
+
+    private final long timeoutNanos;
+
+    private final Timer waits;
+
+    private final Counter rejections;
+}
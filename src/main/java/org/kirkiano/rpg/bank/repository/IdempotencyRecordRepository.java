@@ -0,0 +1,41 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.kirkiano.rpg.bank.model.IdempotencyRecord;
+
+
+/**
+ * The data store of outcomes of idempotent balance changes
+ */
+@Repository
+public interface IdempotencyRecordRepository
+    extends JpaRepository<IdempotencyRecord, Long>
+{
+    /**
+     * Retrieve the record of an idempotency key
+     *
+     * @param key idempotency key
+     * @return the record, if the key has been used
+     */
+    @Query(value = "select r from IdempotencyRecord r where r.idemKey = ?1")
+    Optional<IdempotencyRecord> findByKey(String key);
+
+    /**
+     * Delete the records created before an instant
+     *
+     * @param cutoff the instant
+     * @return number of records deleted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "delete from IdempotencyRecord r where r.createdAt < ?1")
+    int deleteCreatedBefore(Instant cutoff);
+}
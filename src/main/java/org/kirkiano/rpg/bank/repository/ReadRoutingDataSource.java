@@ -0,0 +1,121 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.util.Map;
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+/**
+ * Routes the connections of read-only transactions to the read replica,
+ * and all others to the primary.
+ * <p>
+ * A transaction is known to be read-only only once it has begun, which
+ * is after the transaction manager has asked for its connection. This
+ * must therefore be wrapped in a {@link LazyConnectionDataSourceProxy},
+ * which defers the choice until the first statement.
+ * <p>
+ * Read-only transactions go to the primary nonetheless while the
+ * {@link ReplicaMonitor} finds the replica too far behind, and within
+ * {@link #pinToPrimary}, for reads that must see the latest writes.
+ * <p>
+ * Metrics: {@code bank.replica.reads} counts the connections of
+ * read-only transactions, tagged by {@code target} (replica or primary).
+ */
+public class ReadRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Where a connection comes from
+     */
+    public enum Target {
+        /**
+         * The primary, which takes all writes
+         */
+        PRIMARY,
+
+        /**
+         * The read replica
+         */
+        REPLICA
+    }
+
+    /**
+     * Constructor
+     *
+     * @param primary the primary
+     * @param monitor monitor of the replica, which it also provides
+     * @param registry meter registry
+     */
+    public ReadRoutingDataSource(DataSource primary,
+                                 ReplicaMonitor monitor,
+                                 MeterRegistry registry)
+    {
+        this.monitor = monitor;
+        this.setTargetDataSources(Map.of(Target.PRIMARY, primary,
+                                         Target.REPLICA, monitor.getReplica()));
+        this.setDefaultTargetDataSource(primary);
+        this.afterPropertiesSet();
+        this.replicaReads = registry.counter(
+            "bank.replica.reads", "target", "replica");
+        this.primaryReads = registry.counter(
+            "bank.replica.reads", "target", "primary");
+    }
+
+    /**
+     * Send the read-only transactions begun by this thread to the
+     * primary, until the returned pin is closed
+     *
+     * @return the pin
+     */
+    public static Pin pinToPrimary() {
+        var pin = new Pin(PINNED.get());
+        PINNED.set(true);
+        return pin;
+    }
+
+    /**
+     * Scope of {@link #pinToPrimary}
+     */
+    public static final class Pin implements AutoCloseable {
+        private Pin(boolean wasPinned) {
+            this.wasPinned = wasPinned;
+        }
+
+        @Override
+        public void close() {
+            if (this.wasPinned) PINNED.set(true);
+            else PINNED.remove();
+        }
+
+        private final boolean wasPinned;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.PRIMARY;
+        }
+        if (PINNED.get() || !this.monitor.isCaughtUp()) {
+            this.primaryReads.increment();
+            return Target.PRIMARY;
+        }
+        this.replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final ThreadLocal<Boolean> PINNED =
+        ThreadLocal.withInitial(() -> false);
+
+    private final ReplicaMonitor monitor;
+
+    private final Counter replicaReads;
+
+    private final Counter primaryReads;
+}
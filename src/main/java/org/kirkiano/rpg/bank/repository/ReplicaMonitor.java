@@ -0,0 +1,115 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import org.kirkiano.rpg.bank.config.ReplicaProperties;
+
+
+/**
+ * Measures how far the read replica lags behind the primary, so that
+ * {@link ReadRoutingDataSource} may send reads to the primary instead
+ * while the replica is too far behind, unreachable, or unmeasured.
+ * <p>
+ * Metrics: {@code bank.replica.lag} is the last measured lag, in
+ * seconds, or -1 if the last measurement failed.
+ */
+@Slf4j
+public class ReplicaMonitor implements Closeable {
+
+    /**
+     * Constructor
+     *
+     * @param replica the replica, which this monitor owns and closes
+     * @param props replica settings
+     * @param registry meter registry
+     */
+    public ReplicaMonitor(DataSource replica,
+                          ReplicaProperties props,
+                          MeterRegistry registry)
+    {
+        this.replica = replica;
+        this.jdbc = new JdbcTemplate(replica);
+        this.props = props;
+        Gauge.builder("bank.replica.lag", this, m -> m.lagSeconds)
+            .description("Lag of the read replica behind the primary")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    /**
+     * The replica
+     *
+     * @return the replica's data source
+     */
+    public DataSource getReplica() {
+        return this.replica;
+    }
+
+    /**
+     * Indicates whether reads may go to the replica: its lag was last
+     * measured recently, and was within bounds
+     *
+     * @return whether the replica is usable
+     */
+    public boolean isCaughtUp() {
+        long staleAfter = 3 * this.props.lagCheckInterval().toNanos();
+        return this.caughtUp && System.nanoTime() - this.checkedAt < staleAfter;
+    }
+
+    /**
+     * Measure the replica's lag
+     */
+    @Scheduled(fixedDelayString = "${bank.replica.lag-check-interval:PT5S}")
+    public void checkLag() {
+        double lag;
+        try {
+            Double measured = this.jdbc.queryForObject(this.props.lagQuery(),
+                                                       Double.class);
+            lag = measured == null ? 0 : measured;
+        }
+        catch (DataAccessException ex) {
+            log.warn("Failed to measure lag of read replica: {}",
+                     ex.getMessage());
+            this.lagSeconds = -1;
+            this.caughtUp = false;
+            return;
+        }
+        boolean caughtUp = lag * 1e9 <= this.props.maxLag().toNanos();
+        if (caughtUp != this.caughtUp) {
+            log.info("Read replica lags by {}s; reading from {}",
+                     lag, caughtUp ? "replica" : "primary");
+        }
+        this.lagSeconds = lag;
+        this.checkedAt = System.nanoTime();
+        this.caughtUp = caughtUp;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.replica instanceof Closeable c) c.close();
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private final DataSource replica;
+
+    private final JdbcTemplate jdbc;
+
+    private final ReplicaProperties props;
+
+    private volatile boolean caughtUp;
+
+    private volatile long checkedAt;
+
+    private volatile double lagSeconds = -1;
+}
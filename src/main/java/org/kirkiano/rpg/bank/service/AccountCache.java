@@ -0,0 +1,239 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.kirkiano.rpg.bank.config.AccountCacheProperties;
+import org.kirkiano.rpg.bank.dto.VersionedAccount;
+import org.kirkiano.rpg.bank.model.CharId;
+
+
+/**
+ * Read-through cache of accounts, with the versions of their rows,
+ * keyed by account ID, with a second cache mapping character IDs to
+ * account IDs.
+ * <p>
+ * Both caches are {@link StripedCache}s, like that of
+ * {@link IdempotencyStore}, and their entries expire after
+ * {@link AccountCacheProperties#ttl()}. Writers evict the accounts they
+ * change once their transaction completes. A load that started before
+ * such an eviction is not cached, lest it put back the balance the
+ * writer replaced.
+ * <p>
+ * Metrics, tagged by {@code cache} ({@code account} or {@code charId}):
+ * {@code bank.cache.gets}, further tagged by {@code result} (hit or
+ * miss), and {@code bank.cache.evictions}, further tagged by
+ * {@code cause} (size, expiry, or write).
+ */
+@Slf4j
+@Component
+public class AccountCache {
+
+    /**
+     * Constructor
+     *
+     * @param props cache settings
+     * @param registry meter registry
+     */
+    @Autowired
+    public AccountCache(AccountCacheProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.ttl = props.ttl().toNanos();
+        this.accounts = cache("account", props, registry);
+        this.owners = cache("charId", props, registry);
+    }
+
+    /**
+     * Fetch an account, from the cache if possible
+     *
+     * @param id account ID
+     * @param loader loads the account on a miss
+     * @return the account, or empty if it does not exist
+     */
+    public Optional<VersionedAccount> get(
+        long id,
+        Function<Long, Optional<VersionedAccount>> loader)
+    {
+        if (!this.props.enabled()) return loader.apply(id);
+        VersionedAccount cached = this.accounts.get(id);
+        if (cached != null) return Optional.of(cached);
+        return this.load(id, loader);
+    }
+
+    /**
+     * Fetch an account from the database, and refresh the cache with it
+     *
+     * @param id account ID
+     * @param loader loads the account
+     * @return the account, or empty if it does not exist
+     */
+    public Optional<VersionedAccount> refresh(
+        long id,
+        Function<Long, Optional<VersionedAccount>> loader)
+    {
+        if (!this.props.enabled()) return loader.apply(id);
+        return this.load(id, loader);
+    }
+
+    /**
+     * Fetch many accounts, from the cache where possible, loading all
+     * those missed at once
+     *
+     * @param ids account IDs
+     * @param loader loads the accounts missed, keyed by ID
+     * @return the accounts that exist, keyed by ID
+     */
+    public Map<Long, VersionedAccount> getAll(
+        Collection<Long> ids,
+        Function<Collection<Long>, Map<Long, VersionedAccount>> loader)
+    {
+        if (!this.props.enabled()) return loader.apply(ids);
+        var found = new HashMap<Long, VersionedAccount>();
+        var missed = new ArrayList<Long>();
+        for (long id: ids) {
+            VersionedAccount cached = this.accounts.get(id);
+            if (cached != null) found.put(id, cached);
+            else missed.add(id);
+        }
+        if (!missed.isEmpty()) found.putAll(this.loadAll(missed, loader));
+        return found;
+    }
+
+    /**
+     * Fetch many accounts from the database, and refresh the cache
+     * with them
+     *
+     * @param ids account IDs
+     * @param loader loads the accounts, keyed by ID
+     * @return the accounts that exist, keyed by ID
+     */
+    public Map<Long, VersionedAccount> refreshAll(
+        Collection<Long> ids,
+        Function<Collection<Long>, Map<Long, VersionedAccount>> loader)
+    {
+        if (!this.props.enabled()) return loader.apply(ids);
+        return this.loadAll(ids, loader);
+    }
+
+    /**
+     * Look up the ID of a character's account
+     *
+     * @param charId character ID
+     * @return the account ID, if cached
+     */
+    public Optional<Long> idOf(CharId charId) {
+        if (!this.props.enabled()) return Optional.empty();
+        return Optional.ofNullable(this.owners.get(charId));
+    }
+
+    /**
+     * Remember which account a character owns, which never changes
+     *
+     * @param charId character ID
+     * @param id account ID
+     */
+    public void rememberOwner(CharId charId, long id) {
+        if (this.props.enabled()) this.owners.put(charId, id, this.ttl);
+    }
+
+    /**
+     * Evict an account once the current transaction completes, or at
+     * once if there is none. Must be called by every writer of the
+     * account.
+     *
+     * @param id account ID
+     */
+    public void evict(long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.accounts.evict(id);
+            return;
+        }
+        var pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.ids.add(id);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Accounts written within one transaction, evicted once it commits
+     * or rolls back
+     */
+    private class Pending implements TransactionSynchronization {
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager
+                .unbindResourceIfPossible(AccountCache.this);
+            this.ids.forEach(AccountCache.this.accounts::evict);
+        }
+
+        final Set<Long> ids = new HashSet<>();
+    }
+
+    private Optional<VersionedAccount> load(
+        long id,
+        Function<Long, Optional<VersionedAccount>> loader)
+    {
+        long stamp = this.accounts.stamp(id);
+        Optional<VersionedAccount> account = loader.apply(id);
+        account.ifPresent(a -> this.accounts.put(id, a, this.ttl, stamp));
+        return account;
+    }
+
+    private Map<Long, VersionedAccount> loadAll(
+        Collection<Long> ids,
+        Function<Collection<Long>, Map<Long, VersionedAccount>> loader)
+    {
+        var stamps = new HashMap<Long, Long>();
+        for (long id: ids) stamps.put(id, this.accounts.stamp(id));
+        Map<Long, VersionedAccount> loaded = loader.apply(ids);
+        loaded.forEach((id, a) ->
+            this.accounts.put(id, a, this.ttl, stamps.get(id)));
+        return loaded;
+    }
+
+    private static <K, V> StripedCache<K, V> cache(
+        String name,
+        AccountCacheProperties props,
+        MeterRegistry registry)
+    {
+        var meters = new StripedCache.Meters(
+            registry.counter("bank.cache.gets",
+                             "cache", name, "result", "hit"),
+            registry.counter("bank.cache.gets",
+                             "cache", name, "result", "miss"),
+            registry.counter("bank.cache.evictions",
+                             "cache", name, "cause", "size"),
+            registry.counter("bank.cache.evictions",
+                             "cache", name, "cause", "expiry"),
+            registry.counter("bank.cache.evictions",
+                             "cache", name, "cause", "write"));
+        return new StripedCache<>(props.size(), props.stripes(), meters);
+    }
+
+    private final AccountCacheProperties props;
+
+    private final long ttl;
+
+    private final StripedCache<Long, VersionedAccount> accounts;
+
+    private final StripedCache<CharId, Long> owners;
+}
@@ -0,0 +1,76 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.time.Instant;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+
+
+/**
+ * Estimated number of accounts, for clients that want a total to go
+ * with a listing. Counting the rows exactly would scan the whole table,
+ * so the estimate is refreshed periodically from the database's own
+ * statistics, and counts the accounts this instance creates meanwhile.
+ */
+@Slf4j
+@Component
+public class AccountCount {
+
+    /**
+     * Constructor
+     *
+     * @param accountRepo accounts repository
+     */
+    @Autowired
+    public AccountCount(AccountRepository accountRepo) {
+        this.accountRepo = accountRepo;
+    }
+
+    /**
+     * An estimate of the number of accounts
+     *
+     * @param count estimated number of accounts
+     * @param asOf when the estimate was last refreshed from the database
+     */
+    public record Estimate(long count, Instant asOf) {}
+
+    /**
+     * The current estimate
+     *
+     * @return the estimate
+     */
+    public Estimate estimate() {
+        return this.estimate;
+    }
+
+    /**
+     * Count an account created by this instance
+     */
+    public synchronized void increment() {
+        Estimate e = this.estimate;
+        this.estimate = new Estimate(e.count() + 1, e.asOf());
+    }
+
+    /**
+     * Refresh the estimate from the database
+     */
+    @Scheduled(fixedDelayString = "${bank.account-count.refresh-interval:PT1M}")
+    public void refresh() {
+        long count = this.accountRepo.estimateCount();
+        synchronized (this) {
+            this.estimate = new Estimate(count, Instant.now());
+        }
+        log.debug("Estimated {} accounts", count);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private volatile Estimate estimate = new Estimate(0, Instant.EPOCH);
+
+    private final AccountRepository accountRepo;
+}
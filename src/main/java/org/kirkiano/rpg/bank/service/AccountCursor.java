@@ -0,0 +1,176 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import org.springframework.lang.Nullable;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.exn.InvalidCursorException;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Position in a keyset listing of accounts: the sort key and ID of the
+ * last account listed. Clients see it only as an opaque string.
+ *
+ * @param sortBy the sort property
+ * @param descending whether the order is descending
+ * @param key value of the sort property of the last account listed
+ * @param id ID of the last account listed
+ */
+public record AccountCursor(SortKey sortBy,
+                            boolean descending,
+                            long key,
+                            long id)
+{
+    /**
+     * Properties on which a keyset listing may be sorted. Each has a
+     * value that fits in a {@code long}, so that cursors stay short.
+     */
+    public enum SortKey {
+        /**
+         * Account ID
+         */
+        ID("id", AccountDTO::id, id -> id),
+
+        /**
+         * Balance, as stored in the account's row (which, for a sharded
+         * account, is only shard 0)
+         */
+        BALANCE(Constants.BALANCE_KEY,
+                a -> a.balance().longValue(),
+                Money::from),
+
+        /**
+         * Owner's ID
+         */
+        CHAR_ID(Constants.CHAR_ID_KEY,
+                a -> a.charId().value(),
+                CharId::new);
+
+        SortKey(String property,
+                Function<AccountDTO, Long> keyOf,
+                LongFunction<Object> valueOf)
+        {
+            this.property = property;
+            this.keyOf = keyOf;
+            this.valueOf = valueOf;
+        }
+
+        /**
+         * Look up a sort key by the name of its property
+         *
+         * @param property property name
+         * @return the sort key, or null if the property is not sortable
+         */
+        @Nullable
+        public static SortKey of(String property) {
+            for (SortKey k: values()) {
+                if (k.property.equals(property)) return k;
+            }
+            return null;
+        }
+
+        /**
+         * The sort property's value, in the property's own type
+         *
+         * @param key the value as held in a cursor
+         * @return the value
+         */
+        public Object valueOf(long key) {
+            return this.valueOf.apply(key);
+        }
+
+        /**
+         * Name of the sort property
+         */
+        public final String property;
+
+        private final Function<AccountDTO, Long> keyOf;
+
+        private final LongFunction<Object> valueOf;
+    }
+
+    /**
+     * The cursor positioned at an account
+     *
+     * @param sortBy the sort property
+     * @param descending whether the order is descending
+     * @param account the account, as read from its row
+     * @return the cursor
+     */
+    public static AccountCursor at(SortKey sortBy,
+                                   boolean descending,
+                                   AccountDTO account)
+    {
+        return new AccountCursor(sortBy,
+                                 descending,
+                                 sortBy.keyOf.apply(account),
+                                 account.id());
+    }
+
+    /**
+     * Decode a cursor from the form returned by {@link #encode}
+     *
+     * @param cursor the encoded cursor
+     * @return the cursor
+     * @throws InvalidCursorException In case the cursor is malformed
+     */
+    public static AccountCursor decode(String cursor)
+        throws InvalidCursorException
+    {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor),
+                                    StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length != 5 || !parts[0].equals(VERSION)) {
+                throw new InvalidCursorException(cursor, "is malformed");
+            }
+            SortKey sortBy = SortKey.of(parts[1]);
+            if (sortBy == null) {
+                throw new InvalidCursorException(cursor, "is malformed");
+            }
+            return new AccountCursor(sortBy,
+                                     parts[2].equals(DESCENDING),
+                                     Long.parseLong(parts[3]),
+                                     Long.parseLong(parts[4]));
+        }
+        catch (IllegalArgumentException ex) {
+            // Covers bad Base64 as well as bad numbers
+            throw new InvalidCursorException(cursor, "is malformed");
+        }
+    }
+
+    /**
+     * Encode this cursor as an opaque, URL-safe string
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        String raw = String.join(SEPARATOR,
+                                 VERSION,
+                                 this.sortBy.property,
+                                 this.descending ? DESCENDING : ASCENDING,
+                                 Long.toString(this.key),
+                                 Long.toString(this.id));
+        return Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final String VERSION = "1";
+
+    private static final String SEPARATOR = ":";
+
+    private static final String ASCENDING = "a";
+
+    private static final String DESCENDING = "d";
+}
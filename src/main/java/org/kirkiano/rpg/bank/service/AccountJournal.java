@@ -0,0 +1,146 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.kirkiano.rpg.bank.config.JournalProperties;
+import org.kirkiano.rpg.bank.model.AccountTxn;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountTxnRepository;
+
+
+/**
+ * Appends to the journal of account transactions.
+ * <p>
+ * Entries appended within a transaction are buffered and written just
+ * before it commits, as a single JDBC batch. So they are committed if
+ * and only if the changes they record are, and a transaction costs one
+ * extra round trip however many entries it appends. Outside any
+ * transaction an entry is written at once. Once committed, entries are
+ * published to the {@link BalanceFeed}.
+ * <p>
+ * The journal table is partitioned by month. If
+ * {@link JournalProperties#managePartitions()} is set, the partitions
+ * for the coming months are created ahead of time.
+ */
+@Slf4j
+@Component
+public class AccountJournal {
+
+    /**
+     * Constructor
+     *
+     * @param txnRepo journal repository
+     * @param feed feed of balance changes
+     * @param props journal settings
+     */
+    @Autowired
+    public AccountJournal(AccountTxnRepository txnRepo,
+                          BalanceFeed feed,
+                          JournalProperties props)
+    {
+        this.txnRepo = txnRepo;
+        this.feed = feed;
+        this.props = props;
+    }
+
+    /**
+     * Record a transaction
+     *
+     * @param accountId ID of the account
+     * @param kind kind of transaction
+     * @param delta change to the balance
+     * @param balance balance left by the transaction
+     */
+    public void append(long accountId,
+                       AccountTxn.Kind kind,
+                       Money delta,
+                       Money balance)
+    {
+        var entry = AccountTxn.create(accountId, kind, delta, balance);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<AccountTxn> entries = List.of(entry);
+            this.txnRepo.appendAll(entries);
+            this.feed.publish(entries);
+            return;
+        }
+        var buffer = (Buffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            buffer = new Buffer();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        buffer.entries.add(entry);
+    }
+
+    /**
+     * Retrieve the journal entries of an account within a time range,
+     * in the order they were written
+     *
+     * @param accountId account ID
+     * @param from start of the range, inclusive
+     * @param to end of the range, exclusive
+     * @return the entries
+     */
+    public List<AccountTxn> find(long accountId, Instant from, Instant to) {
+        return this.txnRepo.findByAccountId(accountId, from, to);
+    }
+
+    /**
+     * Create the partitions for the current month and the next
+     * {@link JournalProperties#partitionsAhead()} months, if enabled
+     */
+    @Scheduled(fixedDelayString = "${bank.journal.maintenance-interval:PT24H}")
+    public void maintainPartitions() {
+        if (!this.props.managePartitions()) return;
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int m = 0; m <= this.props.partitionsAhead(); m++) {
+            this.txnRepo.ensurePartition(today.plusMonths(m));
+        }
+        log.debug("Journal partitions ready through {}",
+                  today.plusMonths(this.props.partitionsAhead()));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Entries appended within one transaction, flushed before it commits
+     * and published after
+     */
+    private class Buffer implements TransactionSynchronization {
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            AccountJournal.this.txnRepo.appendAll(this.entries);
+        }
+
+        @Override
+        public void afterCommit() {
+            AccountJournal.this.feed.publish(this.entries);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager
+                .unbindResourceIfPossible(AccountJournal.this);
+        }
+
+        final List<AccountTxn> entries = new ArrayList<>();
+    }
+
+    private final AccountTxnRepository txnRepo;
+
+    private final BalanceFeed feed;
+
+    private final JournalProperties props;
+}
@@ -1,24 +1,56 @@
 package org.kirkiano.rpg.bank.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import static java.util.stream.Collectors.toSet;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.util.TypeInformation;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.config.ExportProperties;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.AccountVersion;
+import org.kirkiano.rpg.bank.dto.RankDTO;
+import org.kirkiano.rpg.bank.dto.VersionedAccount;
 import org.kirkiano.rpg.bank.exn.UnknownCharIdException;
 import org.kirkiano.rpg.bank.exn.AccountAlreadyExistsException;
+import org.kirkiano.rpg.bank.exn.AccountException;
+import org.kirkiano.rpg.bank.exn.BatchAbortedException;
+import org.kirkiano.rpg.bank.exn.InvalidCursorException;
+import org.kirkiano.rpg.bank.exn.InvalidIdempotencyKeyException;
 import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
 import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.exn.SelfTransferException;
 import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.AccountTxn;
+import org.kirkiano.rpg.bank.model.BalanceChange;
 import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.IdempotencyRecord;
 import org.kirkiano.rpg.bank.model.Money;
 import org.kirkiano.rpg.bank.repository.AccountRepository;
+import org.kirkiano.rpg.bank.repository.ReadRoutingDataSource;
 
 
 /**
@@ -43,6 +75,8 @@ public class AccountService {
      * @throws AccountAlreadyExistsException Guards against multiplying accounts
      * @throws NegativeBalanceException Guards against overdraft
      */
+    @RetryOnConflict(accountArg = -1)
+    @Transactional(rollbackFor = AccountException.class)
     public Account createAccount(CharId charId, @Nullable Money balance)
         throws AccountAlreadyExistsException,
                NegativeBalanceException
@@ -50,7 +84,15 @@ public class AccountService {
         try {
             balance = balance == null ? Money.ZERO : balance;
             Account account = Account.create(charId, balance);
-            this.accountRepo.save(account);
+            this.accountRepo.saveAndFlush(account);
+            this.cache.evict(account.getId());
+            this.count.increment();
+            this.leaderboard.record(account.getId(), charId, balance);
+            this.rankIndex.record(account.getId(), charId, balance);
+            this.journal.append(account.getId(),
+                                AccountTxn.Kind.OPEN,
+                                balance,
+                                balance);
             log.info("Created {}", account);
             return account;
         }
@@ -70,15 +112,57 @@ public class AccountService {
      * Constructor
      *
      * @param accountRepo The accounts repo (an injected dependency).
+     * @param coalescer Coalescer of concurrent balance changes
+     * @param idempotencyStore Outcomes of idempotent balance changes
+     * @param journal Journal of account transactions
+     * @param profiler Profiler of contention on accounts
+     * @param shards Sharded accounts
+     * @param cache Cache of accounts
+     * @param count Estimated number of accounts
+     * @param leaderboard Richest accounts
+     * @param rankIndex Accounts ranked by wealth
+     * @param exportProps Export settings
+     * @param txManager Transaction manager
      */
     @Autowired
-    public AccountService(AccountRepository accountRepo) {
+    public AccountService(AccountRepository accountRepo,
+                          BalanceChangeCoalescer coalescer,
+                          IdempotencyStore idempotencyStore,
+                          AccountJournal journal,
+                          ContentionProfiler profiler,
+                          AccountShards shards,
+                          AccountCache cache,
+                          AccountCount count,
+                          Leaderboard leaderboard,
+                          RankIndex rankIndex,
+                          ExportProperties exportProps,
+                          PlatformTransactionManager txManager)
+    {
         this.accountRepo = accountRepo;
+        this.coalescer = coalescer;
+        this.idempotencyStore = idempotencyStore;
+        this.journal = journal;
+        this.profiler = profiler;
+        this.shards = shards;
+        this.cache = cache;
+        this.count = count;
+        this.leaderboard = leaderboard;
+        this.rankIndex = rankIndex;
+        this.exportProps = exportProps;
+        this.tx = new TransactionTemplate(txManager);
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
     }
 
 
     /**
-     * Retrieve a page-worth of accounts
+     * Retrieve a page-worth of accounts. The accounts are not counted;
+     * see {@link #estimateAccountCount}. Pages of the richest accounts
+     * that fall within the {@link Leaderboard} are served from it.
+     * <p>
+     * Like all reads here, this builds the DTOs in the query itself, in
+     * a read-only transaction, so that no entity is loaded, tracked or
+     * flushed.
      *
      * @param pageNumber page number
      * @param pageLength number of accounts per page
@@ -86,52 +170,352 @@ public class AccountService {
      * @param isDescending sort order
      * @return the accounts
      */
-    public List<Account> getAccountsPage(int pageNumber,
-                                         int pageLength,
-                                         String sortBy,
-                                         boolean isDescending)
+    @Transactional(readOnly = true)
+    public List<AccountDTO> getAccountsPage(int pageNumber,
+                                            int pageLength,
+                                            String sortBy,
+                                            boolean isDescending)
     {
+        // The first pages of the richest accounts, the most common
+        // listing, are served from memory.
+        boolean richestFirst = sortBy.equals(Constants.BALANCE_KEY) &&
+                               isDescending;
+        long end = (long) (pageNumber + 1) * pageLength;
+        if (richestFirst && this.leaderboard.isEnabled() &&
+            pageNumber >= 0 && pageLength > 0 && end <= this.leaderboard.size())
+        {
+            List<AccountDTO> top = this.leaderboard.top((int) end);
+            int from = Math.min(pageNumber * pageLength, top.size());
+            return top.subList(from, top.size());
+        }
+
         Sort sort = Sort.by(sortBy);
         sort = isDescending ? sort.descending() : sort.ascending();
 
         Pageable paging = PageRequest.of(pageNumber, pageLength, sort);
-        Page<Account> page = this.accountRepo.findAll(paging);
-        return page.hasContent() ? page.getContent() : new ArrayList<>();
+        Slice<AccountDTO> page = this.accountRepo.findAllProjectedBy(paging);
+        if (!page.hasContent()) return new ArrayList<>();
+        return this.withShards(page.getContent());
+    }
+
+    /**
+     * The richest accounts, served from memory by the {@link Leaderboard}
+     *
+     * @param n number of accounts. At most {@link Leaderboard#size()}
+     *          are returned.
+     * @return the accounts, richest first, ties broken by ID
+     */
+    public List<AccountDTO> getRichestAccounts(int n) {
+        return this.leaderboard.top(Math.max(n, 0));
+    }
+
+    /**
+     * A character's rank by wealth, served from memory by the
+     * {@link RankIndex}, or counted in the database if it is disabled
+     *
+     * @param charId character ID
+     * @return the rank
+     * @throws UnknownCharIdException when {@code charId} is not found
+     */
+    @Transactional(readOnly = true)
+    public RankDTO getRank(CharId charId) throws UnknownCharIdException {
+        if (this.rankIndex.isEnabled()) {
+            return this.rankIndex.rank(charId)
+                .orElseThrow(() -> new UnknownCharIdException(charId));
+        }
+        AccountDTO account = this.getAccountByCharId(charId, false);
+        long ahead = this.accountRepo.countRankedAhead(account.balance(),
+                                                       account.id());
+        return new RankDTO(charId, ahead + 1, this.accountRepo.count());
+    }
+
+    /**
+     * Pass every account, in order of ID, to a consumer, as the rows
+     * arrive from a single query. The accounts are thus a consistent
+     * snapshot, and memory use does not grow with their number. The
+     * export stops at the first exception the consumer throws, which
+     * is rethrown.
+     *
+     * @param sink consumer of the accounts
+     * @return number of accounts exported
+     */
+    public long exportAccounts(Consumer<AccountDTO> sink) {
+        Long n = this.readTx.execute(status -> {
+            long exported = 0;
+            int fetchSize = this.exportProps.fetchSize();
+            Map<Long, Integer> sharded = this.accountRepo.findShardCounts();
+            try (Stream<AccountDTO> accounts =
+                     this.accountRepo.streamAll(fetchSize))
+            {
+                for (var it = accounts.iterator(); it.hasNext(); exported++) {
+                    AccountDTO account = it.next();
+                    sink.accept(sharded.containsKey(account.id()) ?
+                                this.addShards(account) : account);
+                }
+            }
+            return exported;
+        });
+        return Objects.requireNonNull(n);
+    }
+
+    /**
+     * Estimate the number of accounts, without counting them
+     *
+     * @return the estimate
+     */
+    public AccountCount.Estimate estimateAccountCount() {
+        return this.count.estimate();
+    }
+
+    /**
+     * Retrieve a page-worth of accounts by keyset pagination: the page
+     * starts after the position a cursor marks, which the database
+     * seeks to by index rather than by counting rows off, so that deep
+     * pages cost what the first one does
+     *
+     * @param cursor cursor returned with the previous page, or null for
+     *               the first page
+     * @param pageLength number of accounts per page
+     * @param sortBy field on which to sort
+     * @param isDescending sort order
+     * @return the accounts, and the cursor to the next page
+     * @throws InvalidCursorException In case the cursor is malformed, or
+     *                                was issued for another sort order
+     * @throws PropertyReferenceException In case {@code sortBy} is not a
+     *                                    field on which keyset listings
+     *                                    can be sorted
+     */
+    @Transactional(readOnly = true)
+    public Keyset getAccountsAfter(@Nullable String cursor,
+                                   int pageLength,
+                                   String sortBy,
+                                   boolean isDescending)
+        throws InvalidCursorException
+    {
+        AccountCursor.SortKey key = AccountCursor.SortKey.of(sortBy);
+        if (key == null) {
+            throw new PropertyReferenceException(
+                sortBy, TypeInformation.of(Account.class), List.of());
+        }
+        AccountCursor after = cursor == null ? null :
+            AccountCursor.decode(cursor);
+        if (after != null && (after.sortBy() != key ||
+                              after.descending() != isDescending)) {
+            throw new InvalidCursorException(
+                cursor, "was issued for another sort order");
+        }
+
+        // One more than asked for tells whether there is a next page.
+        int length = Math.max(1, pageLength);
+        List<AccountDTO> accounts = this.accountRepo.findPageAfter(
+            key.property,
+            isDescending,
+            after == null ? null : key.valueOf(after.key()),
+            after == null ? 0 : after.id(),
+            length + 1);
+        String next = null;
+        if (accounts.size() > length) {
+            accounts = accounts.subList(0, length);
+            AccountDTO last = accounts.get(length - 1);
+            next = AccountCursor.at(key, isDescending, last).encode();
+        }
+        return new Keyset(this.withShards(accounts), next);
+    }
+
+    /**
+     * A page of a keyset listing
+     *
+     * @param accounts the accounts
+     * @param nextCursor cursor to the next page, or null if this page
+     *                   is the last
+     */
+    public record Keyset(List<AccountDTO> accounts,
+                         @Nullable String nextCursor) {}
+
+    /**
+     * Fetch an account by ID, from the cache if possible
+     *
+     * @param id account ID
+     * @return Account
+     * @throws NoSuchAccountIdException when {@code id} is invalid
+     */
+    @Transactional(readOnly = true)
+    public AccountDTO getAccountById(long id) throws NoSuchAccountIdException {
+        return this.getAccountById(id, false);
     }
 
     /**
      * Fetch an account by ID
      *
      * @param id account ID
+     * @param fresh whether to bypass the {@link AccountCache}, and read
+     *              the account's committed state from the database
      * @return Account
      * @throws NoSuchAccountIdException when {@code id} is invalid
      */
-    public Account getAccountById(long id) throws NoSuchAccountIdException {
-        Optional<Account> account = this.accountRepo.findById(id);
+    @Transactional(readOnly = true)
+    public AccountDTO getAccountById(long id, boolean fresh)
+        throws NoSuchAccountIdException
+    {
+        return this.getVersionedAccountById(id, fresh).account();
+    }
+
+    /**
+     * Like {@link #getAccountById(long, boolean)}, but with the version
+     * of the account's row
+     *
+     * @param id account ID
+     * @param fresh whether to bypass the {@link AccountCache}
+     * @return the account and its version
+     * @throws NoSuchAccountIdException when {@code id} is invalid
+     */
+    @Transactional(readOnly = true)
+    public VersionedAccount getVersionedAccountById(long id, boolean fresh)
+        throws NoSuchAccountIdException
+    {
+        Optional<VersionedAccount> account;
+        try (var pin = fresh ? ReadRoutingDataSource.pinToPrimary() : null) {
+            account = fresh ?
+                this.cache.refresh(id, this::loadAccount) :
+                this.cache.get(id, this::loadAccount);
+        }
         if (account.isPresent()) { return account.get(); }
         else { throw new NoSuchAccountIdException(id); }
     }
 
+    /**
+     * Fetch an account by owner's ID, from the cache if possible
+     *
+     * @param charId character ID
+     * @return Account
+     * @throws UnknownCharIdException when {@code charId} is not found
+     */
+    @Transactional(readOnly = true)
+    public AccountDTO getAccountByCharId(CharId charId)
+        throws UnknownCharIdException
+    {
+        return this.getAccountByCharId(charId, false);
+    }
+
     /**
      * Fetch an account by owner's ID
      *
      * @param charId character ID
+     * @param fresh whether to bypass the {@link AccountCache}, and read
+     *              the account's committed state from the database
      * @return Account
      * @throws UnknownCharIdException when {@code charId} is not found
      */
-    public Account getAccountByCharId(CharId charId)
+    @Transactional(readOnly = true)
+    public AccountDTO getAccountByCharId(CharId charId, boolean fresh)
         throws UnknownCharIdException
     {
-        List<Account> accounts = this.accountRepo.findByCharId(charId);
-        if (accounts.size() == 0) throw new UnknownCharIdException(charId);
-        else return accounts.get(0);
+        return this.getVersionedAccountByCharId(charId, fresh).account();
+    }
+
+    /**
+     * Like {@link #getAccountByCharId(CharId, boolean)}, but with the
+     * version of the account's row
+     *
+     * @param charId character ID
+     * @param fresh whether to bypass the {@link AccountCache}
+     * @return the account and its version
+     * @throws UnknownCharIdException when {@code charId} is not found
+     */
+    @Transactional(readOnly = true)
+    public VersionedAccount getVersionedAccountByCharId(CharId charId,
+                                                        boolean fresh)
+        throws UnknownCharIdException
+    {
+        Optional<Long> id = fresh ? Optional.empty() : this.cache.idOf(charId);
+        if (id.isPresent()) {
+            Optional<VersionedAccount> account =
+                this.cache.get(id.get(), this::loadAccount);
+            if (account.isPresent()) return account.get();
+        }
+        Optional<VersionedAccount> account;
+        try (var pin = fresh ? ReadRoutingDataSource.pinToPrimary() : null) {
+            account = this.accountRepo.findVersionedByCharId(charId);
+        }
+        if (account.isEmpty()) throw new UnknownCharIdException(charId);
+        this.cache.rememberOwner(charId, account.get().account().id());
+        return this.withShards(account.get());
+    }
+
+    /**
+     * Fetch only the version of an unsharded account, from the
+     * database, so that a client's copy of the account may be validated
+     * more cheaply than by fetching it
+     *
+     * @param id account ID
+     * @return the account's version, or empty if the account does not
+     *         exist or is sharded, in which case its version does not
+     *         identify its state
+     */
+    @Transactional(readOnly = true)
+    public Optional<AccountVersion> getAccountVersion(long id) {
+        return this.accountRepo.findUnshardedVersion(id);
+    }
+
+    /**
+     * Like {@link #getAccountVersion(long)}, but by owner's ID
+     *
+     * @param charId character ID
+     * @return the account's version, or empty if the account does not
+     *         exist or is sharded
+     */
+    @Transactional(readOnly = true)
+    public Optional<AccountVersion> getAccountVersion(CharId charId) {
+        return this.accountRepo.findUnshardedVersion(charId);
+    }
+
+    /**
+     * Fetch many accounts at once, by account ID or by owner's ID or
+     * both. Accounts found in the {@link AccountCache} are served from
+     * it; the rest are fetched by at most two queries, one per kind of
+     * key, each of which sends all its keys as one array.
+     *
+     * @param ids account IDs
+     * @param charIds owners' IDs
+     * @param fresh whether to bypass the {@link AccountCache}, and read
+     *              the accounts' committed state from the database
+     * @return the accounts found, and the keys of those not
+     */
+    @Transactional(readOnly = true)
+    public Lookup getAccounts(Collection<Long> ids,
+                              Collection<CharId> charIds,
+                              boolean fresh)
+    {
+        try (var pin = fresh ? ReadRoutingDataSource.pinToPrimary() : null) {
+            return this.lookup(ids, charIds, fresh);
+        }
     }
 
+    /**
+     * Outcome of {@link #getAccounts}
+     *
+     * @param accounts the accounts found, each once, in the order in
+     *                 which they were first asked for
+     * @param missingIds account IDs of no account
+     * @param missingCharIds owners' IDs of no account
+     */
+    public record Lookup(List<AccountDTO> accounts,
+                         List<Long> missingIds,
+                         List<CharId> missingCharIds) {}
+
     ///////////////////////////////////////////////////////
     // change balance
 
     /**
      * Change the balance of an account
+     * <p>
+     * The change is a single conditional update in the database, so
+     * the account is neither loaded beforehand nor exposed to lost
+     * updates from concurrent writers. Only when that update fails is
+     * the account looked up, to tell the client why. If coalescing is
+     * enabled, the update may be shared with other concurrent changes
+     * to the same account; see {@link BalanceChangeCoalescer}. Changes
+     * to sharded accounts are not coalesced; see {@link AccountShards}.
      *
      * @param id Account ID
      * @param delta Desired change. A negative quantity means withdrawal.
@@ -139,20 +523,469 @@ public class AccountService {
      * @throws NoSuchAccountIdException In case the account does not exist
      * @throws NegativeBalanceException Guards against overdraft
      */
+    @RetryOnConflict
     public Money changeBalance(long id, Money delta)
         throws NoSuchAccountIdException,
                NegativeBalanceException
     {
-        Account account = this.accountRepo
-            .findById(id)
-            .orElseThrow(() -> new NoSuchAccountIdException(id))
-            .changeBalance(delta);
-        this.accountRepo.save(account);
-        return account.getBalance();
+        if (this.coalescer.isEnabled() && this.shards.shardsOf(id) <= 1) {
+            return this.coalescer.changeBalance(id, delta);
+        }
+        else return this.applyInTransaction(id, delta, null);
+    }
+
+
+    /**
+     * Change the balance of an account at most once per idempotency key
+     * <p>
+     * The first request under a key applies the change and stores its
+     * outcome in the same transaction. A replay of that request returns
+     * the stored balance without touching the account. Of two
+     * concurrent requests under the same key, only one can store its
+     * outcome; the other is rolled back and answered with that outcome.
+     * A change that fails is not stored, so it may be retried under the
+     * same key. Such changes bypass the {@link BalanceChangeCoalescer}.
+     *
+     * @param id Account ID
+     * @param delta Desired change. A negative quantity means withdrawal.
+     * @param idempotencyKey client-chosen key identifying the request
+     * @return Balance left by the change
+     * @throws NoSuchAccountIdException In case the account does not exist
+     * @throws NegativeBalanceException Guards against overdraft
+     * @throws InvalidIdempotencyKeyException In case the key is malformed
+     *                                        or was used for another change
+     */
+    @RetryOnConflict
+    public Money changeBalance(long id, Money delta, String idempotencyKey)
+        throws NoSuchAccountIdException,
+               NegativeBalanceException,
+               InvalidIdempotencyKeyException
+    {
+        String key = idempotencyKey;
+        if (key.isBlank() || key.length() > IdempotencyRecord.MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(key, "is malformed");
+        }
+        Optional<IdempotencyStore.Outcome> prior =
+            this.idempotencyStore.find(key);
+        if (prior.isPresent()) return replay(key, id, delta, prior.get());
+
+        Money balance;
+        try {
+            balance = this.applyInTransaction(id, delta, key);
+        }
+        catch (DataIntegrityViolationException ex) {
+            // A concurrent request under the same key committed first.
+            IdempotencyStore.Outcome winner = this.idempotencyStore
+                .find(key)
+                .orElseThrow(() -> ex);
+            return replay(key, id, delta, winner);
+        }
+        this.idempotencyStore.remember(
+            key, new IdempotencyStore.Outcome(id, delta, balance));
+        return balance;
+    }
+
+
+    /**
+     * Move money from one account to another, atomically
+     * <p>
+     * Both accounts are changed in one transaction, each by a single
+     * conditional update. The updates are issued in ascending order of
+     * account ID, so that the row locks they take are always acquired
+     * in the same order, and two concurrent transfers in opposite
+     * directions between the same accounts cannot deadlock.
+     *
+     * @param fromId ID of the account to debit
+     * @param toId ID of the account to credit
+     * @param amount amount to move
+     * @return the balances left by the transfer
+     * @throws NoSuchAccountIdException In case either account does not exist
+     * @throws NegativeBalanceException In case the transfer would overdraw
+     *                                  the debited account
+     * @throws SelfTransferException In case the two accounts are the same
+     */
+    @RetryOnConflict
+    @Transactional(rollbackFor = AccountException.class)
+    public TransferOutcome transfer(long fromId, long toId, Money amount)
+        throws NoSuchAccountIdException,
+               NegativeBalanceException,
+               SelfTransferException
+    {
+        if (fromId == toId) throw new SelfTransferException(fromId);
+        Money debit = Money.subtract(Money.ZERO, amount);
+        Money fromBalance, toBalance;
+        var kind = AccountTxn.Kind.TRANSFER;
+        if (fromId < toId) {
+            fromBalance = this.applyChange(fromId, debit, kind);
+            toBalance = this.applyChange(toId, amount, kind);
+        }
+        else {
+            toBalance = this.applyChange(toId, amount, kind);
+            fromBalance = this.applyChange(fromId, debit, kind);
+        }
+        log.debug("Transferred {} from account {} to account {}",
+                  amount, fromId, toId);
+        return new TransferOutcome(fromBalance, toBalance);
+    }
+
+
+    /**
+     * Balances left by a transfer
+     *
+     * @param fromBalance balance of the debited account
+     * @param toBalance balance of the credited account
+     */
+    public record TransferOutcome(Money fromBalance, Money toBalance) {}
+
+
+    /**
+     * Change the balances of many accounts in one transaction. The
+     * changes are sent to the database as a single JDBC batch and are
+     * applied in the given order, so that several changes to one
+     * account see each other's effects.
+     * <p>
+     * In all-or-nothing mode, the failure of any change rolls back the
+     * whole batch; the outcomes of changes that would otherwise have
+     * succeeded then carry a {@link BatchAbortedException}. In
+     * best-effort mode, every change that can be applied is committed.
+     * <p>
+     * Sharded accounts in the batch have their shards collected first,
+     * and stay locked until the batch ends.
+     *
+     * @param changes the changes
+     * @param allOrNothing whether any failure should abort the batch
+     * @return the outcome of each change, in the same order
+     */
+    @RetryOnConflict(accountArg = -1)
+    @Transactional
+    public List<BalanceChangeOutcome> changeBalances(
+        List<BalanceChange> changes,
+        boolean allOrNothing
+    )
+    {
+        Set<Long> ids = changes.stream()
+            .map(BalanceChange::id)
+            .collect(toSet());
+        // Which accounts are sharded is read under lock, rather than
+        // taken from the registry, which may be stale.
+        this.accountRepo.lockShardCounts(ids).forEach((id, numShards) -> {
+            if (numShards > 1) this.accountRepo.collectShards(id);
+        });
+        ids.forEach(this.cache::evict);
+        boolean[] applied = this.accountRepo.addToBalances(changes);
+        Map<Long, Money> finalBalances = this.accountRepo.findBalancesByIds(ids);
+        Map<Long, Money> balances = new HashMap<>(finalBalances);
+
+        // Only final balances are known, so walk the batch backwards,
+        // undoing each applied change to recover the balance it left.
+        var outcomes = new BalanceChangeOutcome[changes.size()];
+        boolean anyFailed = false;
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            BalanceChange change = changes.get(i);
+            long id = change.id();
+            Money balance = balances.get(id);
+            if (balance == null) {
+                var ex = new NoSuchAccountIdException(id);
+                outcomes[i] = BalanceChangeOutcome.failed(id, ex);
+                anyFailed = true;
+            }
+            else if (!applied[i]) {
+                var ex = new NegativeBalanceException();
+                outcomes[i] = BalanceChangeOutcome.failed(id, ex);
+                anyFailed = true;
+            }
+            else {
+                outcomes[i] = BalanceChangeOutcome.applied(id, balance);
+                balances.put(id, Money.subtract(balance, change.delta()));
+            }
+        }
+
+        if (allOrNothing && anyFailed) {
+            log.info("Rolling back batch of {} balance changes",
+                     changes.size());
+            TransactionAspectSupport.currentTransactionStatus()
+                .setRollbackOnly();
+            return Arrays.stream(outcomes)
+                .map(BalanceChangeOutcome::aborted)
+                .toList();
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            Money balance = outcomes[i].balance();
+            if (balance == null) continue;
+            this.journal.append(outcomes[i].id(),
+                                AccountTxn.Kind.CHANGE,
+                                changes.get(i).delta(),
+                                balance);
+        }
+        finalBalances.forEach((id, balance) -> {
+            this.leaderboard.record(id, null, balance);
+            this.rankIndex.record(id, null, balance);
+        });
+        return List.of(outcomes);
+    }
+
+
+    /**
+     * Outcome of one change within a batch of balance changes. Exactly
+     * one of {@code balance} and {@code failure} is non-null.
+     *
+     * @param id account ID
+     * @param balance the balance left by the change, if it was applied
+     * @param failure the reason the change was not applied
+     */
+    public record BalanceChangeOutcome(long id,
+                                       @Nullable Money balance,
+                                       @Nullable AccountException failure)
+    {
+        static BalanceChangeOutcome applied(long id, Money balance) {
+            return new BalanceChangeOutcome(id, balance, null);
+        }
+
+        static BalanceChangeOutcome failed(long id, AccountException ex) {
+            return new BalanceChangeOutcome(id, null, ex);
+        }
+
+        /**
+         * This outcome, as it stands once its batch has been rolled back
+         *
+         * @return the outcome
+         */
+        BalanceChangeOutcome aborted() {
+            return this.failure != null ? this :
+                failed(this.id, new BatchAbortedException(this.id));
+        }
     }
 
     ///////////////////////////////////////////////////////
     // private
 
+    /**
+     * Change the balance of an account in a transaction of its own, or
+     * within the current one if there is one. If an idempotency key is
+     * given, the outcome is stored under it in the same transaction.
+     *
+     * @param id Account ID
+     * @param delta Desired change. A negative quantity means withdrawal.
+     * @param idempotencyKey idempotency key, if any
+     * @return New balance
+     * @throws NoSuchAccountIdException In case the account does not exist
+     * @throws NegativeBalanceException Guards against overdraft
+     */
+    private Money applyInTransaction(long id,
+                                     Money delta,
+                                     @Nullable String idempotencyKey)
+        throws NoSuchAccountIdException,
+               NegativeBalanceException
+    {
+        BalanceChangeOutcome outcome = this.tx.execute(status -> {
+            try {
+                Money balance =
+                    this.applyChange(id, delta, AccountTxn.Kind.CHANGE);
+                if (idempotencyKey != null) {
+                    var stored = new IdempotencyStore.Outcome(id, delta, balance);
+                    this.idempotencyStore.save(idempotencyKey, stored);
+                }
+                return BalanceChangeOutcome.applied(id, balance);
+            }
+            catch (NoSuchAccountIdException | NegativeBalanceException ex) {
+                return BalanceChangeOutcome.failed(id, ex);
+            }
+        });
+        switch (Objects.requireNonNull(outcome).failure()) {
+            case null -> {}
+            case NoSuchAccountIdException e -> throw e;
+            case NegativeBalanceException e -> throw e;
+            default -> throw new IllegalStateException(outcome.failure());
+        }
+        return Objects.requireNonNull(outcome.balance());
+    }
+
+    /**
+     * Change the balance of an account directly, within the current
+     * transaction, and journal the change. Sharded accounts are changed
+     * through {@link AccountShards}. The registry of sharded accounts
+     * only picks the first route: the account's row refuses changes if
+     * the account is sharded, whereupon its shards are looked up.
+     *
+     * @param id Account ID
+     * @param delta Desired change. A negative quantity means withdrawal.
+     * @param kind kind of transaction, for the journal
+     * @return New balance
+     * @throws NoSuchAccountIdException In case the account does not exist
+     * @throws NegativeBalanceException Guards against overdraft
+     */
+    private Money applyChange(long id, Money delta, AccountTxn.Kind kind)
+        throws NoSuchAccountIdException,
+               NegativeBalanceException
+    {
+        boolean sampled = this.profiler.sample();
+        long t0 = sampled ? System.nanoTime() : 0;
+        this.cache.evict(id);
+        int numShards = this.shards.shardsOf(id);
+        Optional<Money> newBalance = numShards > 1 ?
+            this.shards.change(id, numShards, delta) :
+            this.accountRepo.addToBalance(id, delta);
+        if (sampled) this.profiler.recordWait(id, System.nanoTime() - t0);
+        if (newBalance.isPresent()) {
+            this.journal.append(id, kind, delta, newBalance.get());
+            this.leaderboard.record(id, null, newBalance.get());
+            this.rankIndex.record(id, null, newBalance.get());
+            return newBalance.get();
+        }
+
+        Optional<Integer> actualShards = this.accountRepo.findShardCount(id);
+        if (actualShards.isEmpty()) throw new NoSuchAccountIdException(id);
+        if (actualShards.get() != numShards) {
+            // Sharded elsewhere since last refresh: try again as such.
+            this.shards.note(id, actualShards.get());
+            if (actualShards.get() > 1) return this.applyChange(id, delta, kind);
+        }
+        throw new NegativeBalanceException();
+    }
+
+    /**
+     * Load an account from the database, on a cache miss
+     */
+    private Optional<VersionedAccount> loadAccount(long id) {
+        return this.accountRepo.findVersionedById(id).map(this::withShards);
+    }
+
+    /**
+     * Body of {@link #getAccounts}
+     */
+    private Lookup lookup(Collection<Long> ids,
+                          Collection<CharId> charIds,
+                          boolean fresh)
+    {
+        // Owners whose accounts are known are looked up by account ID,
+        // along with the accounts asked for by ID.
+        var wantedIds = new LinkedHashSet<Long>(ids);
+        var ownedIds = new LinkedHashMap<CharId, Long>();
+        for (CharId charId: new LinkedHashSet<>(charIds)) {
+            Optional<Long> id = fresh ? Optional.empty() : this.cache.idOf(charId);
+            ownedIds.put(charId, id.orElse(null));
+            id.ifPresent(wantedIds::add);
+        }
+        Map<Long, VersionedAccount> byId = fresh ?
+            this.cache.refreshAll(wantedIds, this::loadAccounts) :
+            this.cache.getAll(wantedIds, this::loadAccounts);
+
+        var unknownOwners = new ArrayList<CharId>();
+        ownedIds.forEach((charId, id) -> {
+            if (id == null || !byId.containsKey(id)) unknownOwners.add(charId);
+        });
+        var byCharId = new HashMap<CharId, AccountDTO>();
+        var owned = this.accountRepo.findDTOsByCharIds(unknownOwners);
+        for (AccountDTO a: this.withShards(owned)) {
+            this.cache.rememberOwner(a.charId(), a.id());
+            byCharId.put(a.charId(), a);
+        }
+
+        var accounts = new LinkedHashMap<Long, AccountDTO>();
+        var missingIds = new ArrayList<Long>();
+        var missingCharIds = new ArrayList<CharId>();
+        for (long id: new LinkedHashSet<>(ids)) {
+            VersionedAccount a = byId.get(id);
+            if (a == null) missingIds.add(id);
+            else accounts.putIfAbsent(id, a.account());
+        }
+        ownedIds.forEach((charId, id) -> {
+            AccountDTO a = id == null || !byId.containsKey(id) ?
+                byCharId.get(charId) : byId.get(id).account();
+            if (a == null) missingCharIds.add(charId);
+            else accounts.putIfAbsent(a.id(), a);
+        });
+        return new Lookup(List.copyOf(accounts.values()),
+                          missingIds,
+                          missingCharIds);
+    }
+
+    /**
+     * Load accounts from the database, on cache misses
+     */
+    private Map<Long, VersionedAccount> loadAccounts(Collection<Long> ids) {
+        var accounts = new HashMap<Long, VersionedAccount>();
+        for (VersionedAccount a: this.accountRepo.findVersionedByIds(ids)) {
+            accounts.put(a.account().id(), this.withShards(a));
+        }
+        return accounts;
+    }
+
+    /**
+     * Add the balance of an account's shards, if it has any, to the
+     * account as read from its row
+     */
+    private VersionedAccount withShards(VersionedAccount account) {
+        if (account.isVersioned()) return account;
+        return account.withAccount(this.addShards(account.account()));
+    }
+
+    /**
+     * Like {@link #withShards(VersionedAccount)}, but for accounts read
+     * without their numbers of shards, which are therefore looked up
+     * in the database, all in one query
+     */
+    private List<AccountDTO> withShards(List<AccountDTO> accounts) {
+        if (accounts.isEmpty()) return accounts;
+        Map<Long, Integer> sharded = this.accountRepo.findShardCounts(
+            accounts.stream().map(AccountDTO::id).toList());
+        if (sharded.isEmpty()) return accounts;
+        return accounts.stream()
+            .map(a -> sharded.containsKey(a.id()) ? this.addShards(a) : a)
+            .toList();
+    }
+
+    /**
+     * Add the balance of a sharded account's shards 1 and up to the
+     * account as read from its row
+     */
+    private AccountDTO addShards(AccountDTO account) {
+        Money shardBalance = this.accountRepo.sumShards(account.id());
+        return new AccountDTO(account.id(),
+                              account.charId(),
+                              Money.add(account.balance(), shardBalance));
+    }
+
+    /**
+     * Answer a replayed request with the outcome stored under its key
+     */
+    private static Money replay(String key,
+                                long id,
+                                Money delta,
+                                IdempotencyStore.Outcome outcome)
+        throws InvalidIdempotencyKeyException
+    {
+        if (outcome.accountId() != id || !outcome.delta().equals(delta)) {
+            throw new InvalidIdempotencyKeyException(
+                key, "was already used for another change");
+        }
+        log.debug("Replaying change under idempotency key {}", key);
+        return outcome.balance();
+    }
+
     private final AccountRepository accountRepo;
+
+    private final BalanceChangeCoalescer coalescer;
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final AccountJournal journal;
+
+    private final ContentionProfiler profiler;
+
+    private final AccountShards shards;
+
+    private final AccountCache cache;
+
+    private final AccountCount count;
+
+    private final Leaderboard leaderboard;
+
+    private final RankIndex rankIndex;
+
+    private final ExportProperties exportProps;
+
+    private final TransactionTemplate tx;
+
+    private final TransactionTemplate readTx;
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.kirkiano.rpg.bank.exn.AccountException;
+import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+
+
+/**
+ * Writes to sharded accounts.
+ * <p>
+ * A hot account may have its balance spread over several shards, so
+ * that concurrent writers lock different rows rather than all queueing
+ * on one. A deposit goes to a shard chosen at random. A withdrawal
+ * tries each shard in turn, from one chosen at random; if no single
+ * shard can cover it, all shards are collected into shard 0, under
+ * lock, and the withdrawal is retried there. Clients never see shards:
+ * {@link AccountService} reports their sum as the balance.
+ * <p>
+ * Which accounts are sharded is cached here, refreshed periodically
+ * from the database; {@link AccountService} corrects the cache when it
+ * finds it stale. The cache only routes writes: one routed by a stale
+ * entry to an account's row is refused there, since the row's update is
+ * guarded by the number of shards, and is then routed here.
+ */
+@Slf4j
+@Component
+public class AccountShards {
+
+    /**
+     * Constructor
+     *
+     * @param accountRepo accounts repository
+     * @param cache cache of accounts
+     */
+    @Autowired
+    public AccountShards(AccountRepository accountRepo, AccountCache cache) {
+        this.accountRepo = accountRepo;
+        this.cache = cache;
+    }
+
+    /**
+     * The number of shards of an account, as last known
+     *
+     * @param id account ID
+     * @return the number of shards; 0 or 1 if unsharded
+     */
+    public int shardsOf(long id) {
+        return this.shards.getOrDefault(id, 0);
+    }
+
+    /**
+     * The sharded accounts, as last known
+     *
+     * @return numbers of shards keyed by account ID
+     */
+    public Map<Long, Integer> all() {
+        return Map.copyOf(this.shards);
+    }
+
+    /**
+     * Change the balance of a sharded account, within the current
+     * transaction
+     *
+     * @param id account ID
+     * @param numShards number of shards of the account
+     * @param delta desired change. A negative quantity means withdrawal.
+     * @return the total balance after the change, or empty if the
+     *         account does not exist or if the change would overdraw it
+     */
+    public Optional<Money> change(long id, int numShards, Money delta) {
+        int start = ThreadLocalRandom.current().nextInt(numShards);
+        boolean applied = false;
+        if (!delta.isNegative()) {
+            // Shard 0 always exists, even if the shard rows went away.
+            applied = this.accountRepo.addToShard(id, start, delta) ||
+                      this.accountRepo.addToShard(id, 0, delta);
+        }
+        else {
+            for (int i = 0; i < numShards && !applied; i++) {
+                int shard = (start + i) % numShards;
+                applied = this.accountRepo.addToShard(id, shard, delta);
+            }
+            if (!applied && this.accountRepo.collectShards(id)) {
+                log.debug("Collected shards of account {} to withdraw {}",
+                          id, delta);
+                applied = this.accountRepo.addToShard(id, 0, delta);
+            }
+        }
+        // Under concurrent writes to other shards, this total is only a
+        // snapshot; it includes this change, but possibly others too.
+        return applied ? this.accountRepo.findTotalBalance(id)
+                       : Optional.empty();
+    }
+
+    /**
+     * Spread an account's balance over the given number of shards, or
+     * gather it into one
+     *
+     * @param id account ID
+     * @param numShards number of shards. 0 or 1 means unsharded.
+     * @throws NoSuchAccountIdException In case the account does not exist
+     */
+    @Transactional(rollbackFor = AccountException.class)
+    public void reshard(long id, int numShards)
+        throws NoSuchAccountIdException
+    {
+        this.cache.evict(id);
+        if (!this.accountRepo.reshard(id, numShards)) {
+            throw new NoSuchAccountIdException(id);
+        }
+        this.note(id, numShards);
+        log.info("Account {} now has {} shards", id, Math.max(numShards, 1));
+    }
+
+    /**
+     * Record an account's number of shards, as found in the database
+     *
+     * @param id account ID
+     * @param numShards number of shards
+     */
+    public void note(long id, int numShards) {
+        if (numShards > 1) this.shards.put(id, numShards);
+        else this.shards.remove(id);
+    }
+
+    /**
+     * Reload which accounts are sharded, to pick up changes made by
+     * other instances
+     */
+    @Scheduled(fixedDelayString = "${bank.sharding.refresh-interval:PT1M}")
+    public void refresh() {
+        Map<Long, Integer> current = this.accountRepo.findShardCounts();
+        this.shards.keySet().retainAll(current.keySet());
+        this.shards.putAll(current);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private final ConcurrentHashMap<Long, Integer> shards =
+        new ConcurrentHashMap<>();
+
+    private final AccountRepository accountRepo;
+
+    private final AccountCache cache;
+}
@@ -0,0 +1,389 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import org.kirkiano.rpg.bank.config.CoalescingProperties;
+import org.kirkiano.rpg.bank.exn.AccountException;
+import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
+import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.model.AccountTxn;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+
+
+/**
+ * Folds concurrent balance changes to the same account into one update
+ * (group commit).
+ * <p>
+ * The first change to arrive for an account opens a batch and becomes
+ * its leader. Changes to the same account arriving within
+ * {@link CoalescingProperties#window()} join that batch, until it holds
+ * {@link CoalescingProperties#maxBatchSize()} changes. The leader then
+ * applies the whole batch in one transaction, and every caller gets the
+ * balance its own change left, or its own rejection, exactly as if the
+ * changes had been applied one by one in order of arrival.
+ * <p>
+ * Metrics: {@code bank.coalescing.changes} counts changes submitted,
+ * {@code bank.coalescing.flushes} counts batches applied, and
+ * {@code bank.coalescing.ratio} is their quotient.
+ */
+@Slf4j
+@Component
+public class BalanceChangeCoalescer {
+
+    /**
+     * Constructor
+     *
+     * @param accountRepo accounts repository
+     * @param journal journal of account transactions
+     * @param profiler profiler of contention on accounts
+     * @param cache cache of accounts
+     * @param shards registry of sharded accounts
+     * @param leaderboard richest accounts
+     * @param rankIndex accounts ranked by wealth
+     * @param txManager transaction manager
+     * @param props coalescing settings
+     * @param registry meter registry
+     */
+    @Autowired
+    public BalanceChangeCoalescer(AccountRepository accountRepo,
+                                  AccountJournal journal,
+                                  ContentionProfiler profiler,
+                                  AccountCache cache,
+                                  AccountShards shards,
+                                  Leaderboard leaderboard,
+                                  RankIndex rankIndex,
+                                  PlatformTransactionManager txManager,
+                                  CoalescingProperties props,
+                                  MeterRegistry registry)
+    {
+        this.accountRepo = accountRepo;
+        this.journal = journal;
+        this.profiler = profiler;
+        this.cache = cache;
+        this.shards = shards;
+        this.leaderboard = leaderboard;
+        this.rankIndex = rankIndex;
+        this.tx = new TransactionTemplate(txManager);
+        this.props = props;
+        this.changes = Counter.builder("bank.coalescing.changes")
+            .description("Balance changes submitted for coalescing")
+            .register(registry);
+        this.flushes = Counter.builder("bank.coalescing.flushes")
+            .description("Coalesced batches applied to the database")
+            .register(registry);
+        this.batchSizes = DistributionSummary
+            .builder("bank.coalescing.batch.size")
+            .description("Balance changes per coalesced batch")
+            .register(registry);
+        Gauge.builder("bank.coalescing.ratio", this,
+                      c -> c.flushes.count() == 0 ? 0 :
+                           c.changes.count() / c.flushes.count())
+            .description("Balance changes per database update")
+            .register(registry);
+    }
+
+    /**
+     * Indicates whether single balance changes should be routed here
+     *
+     * @return whether coalescing is enabled
+     */
+    public boolean isEnabled() {
+        return this.props.enabled();
+    }
+
+    /**
+     * Change the balance of an account, possibly together with other
+     * concurrent changes to it. Blocks until the change is applied.
+     *
+     * @param id account ID
+     * @param delta desired change. A negative quantity means withdrawal.
+     * @return the balance left by this change
+     * @throws NoSuchAccountIdException In case the account does not exist
+     * @throws NegativeBalanceException Guards against overdraft
+     */
+    public Money changeBalance(long id, Money delta)
+        throws NoSuchAccountIdException,
+               NegativeBalanceException
+    {
+        this.changes.increment();
+        var pending = new Pending(delta);
+        Batch led = this.enqueue(id, pending);
+        if (led != null) this.lead(id, led);
+        return pending.await();
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * A change awaiting its outcome
+     */
+    private static class Pending {
+        Pending(Money delta) {
+            this.delta = delta;
+        }
+
+        Money await() throws NoSuchAccountIdException,
+                             NegativeBalanceException
+        {
+            try {
+                return this.outcome.join();
+            }
+            catch (CompletionException ex) {
+                switch (ex.getCause()) {
+                    case NoSuchAccountIdException e -> throw e;
+                    case NegativeBalanceException e -> throw e;
+                    case RuntimeException e -> throw e;
+                    default -> throw ex;
+                }
+            }
+        }
+
+        /**
+         * Release the caller with the outcome decided by
+         * {@link #settle}. Called only once that outcome is committed.
+         */
+        void release() {
+            if (this.failure != null) {
+                this.outcome.completeExceptionally(this.failure);
+            }
+            else this.outcome.complete(this.balance);
+        }
+
+        final Money delta;
+        final CompletableFuture<Money> outcome = new CompletableFuture<>();
+
+        @Nullable Money balance;
+        @Nullable Exception failure;
+    }
+
+    /**
+     * Changes to one account, in order of arrival. Mutated only inside
+     * {@link ConcurrentHashMap#compute} on the account's key, which
+     * serializes access to it.
+     */
+    private static class Batch {
+        Batch(int capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean add(Pending p) {
+            if (this.members.size() == this.capacity) return false;
+            this.members.add(p);
+            if (this.members.size() == this.capacity) this.full.countDown();
+            return true;
+        }
+
+        final List<Pending> members = new ArrayList<>();
+        final CountDownLatch full = new CountDownLatch(1);
+        private final int capacity;
+    }
+
+    /**
+     * Add a change to the open batch of its account, opening a new
+     * batch if there is none or if it is full
+     *
+     * @return the batch, if the caller opened it and must therefore
+     *         lead it; null otherwise
+     */
+    @Nullable
+    private Batch enqueue(long id, Pending pending) {
+        Batch[] opened = {null};
+        this.open.compute(id, (k, batch) -> {
+            if (batch != null && batch.add(pending)) return batch;
+            opened[0] = new Batch(Math.max(1, this.props.maxBatchSize()));
+            opened[0].add(pending);
+            return opened[0];
+        });
+        return opened[0];
+    }
+
+    /**
+     * Wait for the batch to fill or for the window to pass, close the
+     * batch to newcomers, and apply it
+     */
+    private void lead(long id, Batch batch) {
+        try {
+            long window = this.props.window().toNanos();
+            boolean ignored = batch.full.await(window, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Closing also happens inside compute, so once it is done no
+        // change can join, and the leader sees every member that did.
+        this.open.computeIfPresent(id, (k, b) -> b == batch ? null : b);
+        List<Pending> members = batch.members;
+
+        this.flushes.increment();
+        this.batchSizes.record(members.size());
+        try {
+            this.tx.executeWithoutResult(status -> this.apply(id, members));
+        }
+        catch (RuntimeException ex) {
+            log.error("Failed to apply coalesced changes to account {}",
+                      id, ex);
+            members.forEach(p -> p.outcome.completeExceptionally(ex));
+            return;
+        }
+        members.forEach(Pending::release);
+    }
+
+    /**
+     * Apply a closed batch within the current transaction, and decide
+     * the outcome of each of its members
+     */
+    private void apply(long id, List<Pending> members) {
+        OptionalLong sum = sum(members);
+        this.cache.evict(id);
+
+        // Fast path: a single conditional update of the summed delta.
+        // It suffices when no prefix of the batch would overdraw, and
+        // the account is not sharded after all. A sum that overflows
+        // is left to the slow path, which fails only the changes that
+        // overflow, as they would fail uncoalesced.
+        boolean sampled = this.profiler.sample();
+        long t0 = sampled ? System.nanoTime() : 0;
+        Optional<Money> after = sum.isEmpty() ? Optional.empty() :
+            this.accountRepo.addToBalance(id, Money.from(sum.getAsLong()));
+        if (sampled) this.profiler.recordWait(id, System.nanoTime() - t0);
+        if (after.isPresent()) {
+            long total = sum.getAsLong();
+            long start = after.get().longValue() - total;
+            long accepted = this.settle(id, start, members);
+            if (accepted != total) {
+                // Some changes were rejected; give their amounts back.
+                // They were withdrawals, so this cannot fail.
+                this.accountRepo.addToBalance(id, Money.from(accepted - total));
+            }
+            this.record(id, Money.from(start + accepted));
+            return;
+        }
+
+        // Slow path: lock the row, then replay the batch in order. If
+        // the account turns out to be sharded, its shards are collected
+        // into the row first, and stay locked too.
+        t0 = sampled ? System.nanoTime() : 0;
+        Optional<Money> start = this.accountRepo.findBalanceForUpdate(id);
+        if (sampled) this.profiler.recordWait(id, System.nanoTime() - t0);
+        if (start.isEmpty()) {
+            AccountException ex = new NoSuchAccountIdException(id);
+            members.forEach(p -> p.failure = ex);
+            return;
+        }
+        int numShards = this.accountRepo.findShardCount(id).orElse(0);
+        if (numShards > 1) {
+            this.shards.note(id, numShards);
+            this.accountRepo.collectShards(id);
+            start = this.accountRepo.findBalanceForUpdate(id);
+        }
+        long accepted = this.settle(id, start.get().longValue(), members);
+        if (accepted != 0) {
+            this.accountRepo.addToShard(id, 0, Money.from(accepted));
+        }
+        this.record(id, Money.from(start.get().longValue() + accepted));
+    }
+
+    /**
+     * Report the balance a batch left to those who track balances
+     */
+    private void record(long id, Money balance) {
+        this.leaderboard.record(id, null, balance);
+        this.rankIndex.record(id, null, balance);
+    }
+
+    /**
+     * Sum the changes of a batch
+     *
+     * @return the sum, unless it overflows
+     */
+    private static OptionalLong sum(List<Pending> members) {
+        long total = 0;
+        try {
+            for (Pending p: members) {
+                total = Math.addExact(total, p.delta.longValue());
+            }
+        }
+        catch (ArithmeticException ex) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(total);
+    }
+
+    /**
+     * Replay changes in order from a starting balance, rejecting each
+     * that would overdraw or overflow, and record their outcomes
+     * accordingly. The accepted changes are journaled one by one, as if
+     * uncoalesced.
+     *
+     * @return sum of the accepted changes
+     */
+    private long settle(long id, long start, List<Pending> members) {
+        long balance = start;
+        for (Pending p: members) {
+            long next;
+            try {
+                next = Math.addExact(balance, p.delta.longValue());
+            }
+            catch (ArithmeticException ex) {
+                p.failure = ex;
+                continue;
+            }
+            if (next < 0) p.failure = new NegativeBalanceException();
+            else {
+                balance = next;
+                p.balance = Money.from(balance);
+                this.journal.append(id, AccountTxn.Kind.CHANGE,
+                                    p.delta, p.balance);
+            }
+        }
+        return balance - start;
+    }
+
+    private final ConcurrentHashMap<Long, Batch> open =
+        new ConcurrentHashMap<>();
+
+    private final AccountRepository accountRepo;
+
+    private final AccountJournal journal;
+
+    private final ContentionProfiler profiler;
+
+    private final AccountCache cache;
+
+    private final AccountShards shards;
+
+    private final Leaderboard leaderboard;
+
+    private final RankIndex rankIndex;
+
+    private final TransactionTemplate tx;
+
+    private final CoalescingProperties props;
+
+    private final Counter changes;
+
+    private final Counter flushes;
+
+    private final DistributionSummary batchSizes;
+}
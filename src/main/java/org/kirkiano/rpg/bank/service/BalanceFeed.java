@@ -0,0 +1,289 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.kirkiano.rpg.bank.config.FeedProperties;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.BalanceEventDTO;
+import org.kirkiano.rpg.bank.model.AccountTxn;
+
+
+/**
+ * Feed of committed balance changes, fanned out to the subscribers
+ * following the accounts changed.
+ * <p>
+ * Every committed entry of the {@link AccountJournal} is published
+ * here. Publishing never blocks: subscribers are found by a lookup in a
+ * concurrent map whose values are replaced, never changed, and each is
+ * offered the change through a lock-free queue bounded by
+ * {@link FeedProperties#bufferSize()}. Changes are sent to a subscriber
+ * by a virtual thread of its own, started whenever its queue becomes
+ * non-empty, so that a slow client delays no one else.
+ * <p>
+ * A subscriber whose queue is full misses the changes offered to it
+ * until it catches up, and is then told how many it missed, so that it
+ * can fetch the balances it follows afresh. Changes made by other
+ * instances of the bank are not published here.
+ * <p>
+ * Metrics: {@code bank.feed.subscribers} is the number of subscribers,
+ * and {@code bank.feed.dropped} counts changes dropped.
+ */
+@Slf4j
+@Component
+public class BalanceFeed {
+
+    /**
+     * Constructor
+     *
+     * @param props feed settings
+     * @param registry meter registry
+     */
+    @Autowired
+    public BalanceFeed(FeedProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.dropped = registry.counter("bank.feed.dropped");
+        Gauge.builder("bank.feed.subscribers", this.all, Set::size)
+            .description("Subscribers to the feed of balance changes")
+            .register(registry);
+    }
+
+    /**
+     * Receiver of a subscriber's changes. Its methods are called by one
+     * thread at a time. If one throws, the subscription is cancelled.
+     */
+    public interface Listener {
+
+        /**
+         * Receive a change
+         *
+         * @param event the change
+         * @throws IOException if the change could not be delivered
+         */
+        void onChange(BalanceEventDTO event) throws IOException;
+
+        /**
+         * Learn of changes missed for want of room
+         *
+         * @param count number of changes missed since last told
+         * @throws IOException if the news could not be delivered
+         */
+        void onDropped(long count) throws IOException;
+
+        /**
+         * Be reminded that the subscription is alive
+         *
+         * @throws IOException if the reminder could not be delivered
+         */
+        void onHeartbeat() throws IOException;
+    }
+
+    /**
+     * Follow the given accounts
+     *
+     * @param accounts the accounts
+     * @param listener receiver of their changes
+     * @return the subscription
+     */
+    public Subscription subscribe(Collection<AccountDTO> accounts,
+                                  Listener listener)
+    {
+        var sub = new Subscription(accounts, listener);
+        this.all.add(sub);
+        for (long id: sub.owners.keySet()) {
+            this.byAccount.merge(id, new Subscription[] {sub}, (old, s) -> {
+                Subscription[] subs = Arrays.copyOf(old, old.length + 1);
+                subs[old.length] = sub;
+                return subs;
+            });
+        }
+        log.debug("Subscribed to {} accounts", sub.owners.size());
+        return sub;
+    }
+
+    /**
+     * A subscriber's interest in some accounts, and its queue of changes
+     * to them
+     */
+    public final class Subscription {
+
+        /**
+         * Stop following the accounts. Changes already queued are
+         * discarded.
+         */
+        public void cancel() {
+            if (!this.cancelled.compareAndSet(false, true)) return;
+            BalanceFeed feed = BalanceFeed.this;
+            feed.all.remove(this);
+            for (long id: this.owners.keySet()) {
+                feed.byAccount.computeIfPresent(id, (k, subs) -> {
+                    Subscription[] rest = Arrays.stream(subs)
+                        .filter(s -> s != this)
+                        .toArray(Subscription[]::new);
+                    return rest.length == 0 ? null : rest;
+                });
+            }
+            this.queue.clear();
+            log.debug("Unsubscribed from {} accounts", this.owners.size());
+        }
+
+        ///////////////////////////////////////////////////
+        // private
+
+        private Subscription(Collection<AccountDTO> accounts,
+                             Listener listener)
+        {
+            this.owners = new HashMap<>();
+            for (AccountDTO a: accounts) this.owners.put(a.id(), a);
+            this.listener = listener;
+            this.capacity = BalanceFeed.this.props.bufferSize();
+        }
+
+        /**
+         * Queue a change, or drop it if the queue is full
+         */
+        private void offer(AccountTxn change) {
+            if (this.queued.incrementAndGet() > this.capacity) {
+                this.queued.decrementAndGet();
+                this.missed.incrementAndGet();
+                BalanceFeed.this.dropped.increment();
+            }
+            else this.queue.offer(change);
+            this.schedule();
+        }
+
+        private void heartbeat() {
+            this.heartbeatDue.set(true);
+            this.schedule();
+        }
+
+        /**
+         * Start a sender, unless one is already running
+         */
+        private void schedule() {
+            if (this.cancelled.get()) return;
+            if (this.sending.compareAndSet(false, true)) {
+                SENDERS.execute(this::send);
+            }
+        }
+
+        /**
+         * Deliver everything queued, then stop, unless something was
+         * queued meanwhile
+         */
+        private void send() {
+            do {
+                try {
+                    this.drain();
+                }
+                catch (IOException | RuntimeException ex) {
+                    log.debug("Dropping subscriber: {}", ex.toString());
+                    this.cancel();
+                    return;
+                }
+                finally {
+                    this.sending.set(false);
+                }
+            } while (this.hasWork() && this.sending.compareAndSet(false, true));
+        }
+
+        private void drain() throws IOException {
+            AccountTxn change;
+            while (!this.cancelled.get() &&
+                   (change = this.queue.poll()) != null)
+            {
+                this.queued.decrementAndGet();
+                AccountDTO account = this.owners.get(change.getAccountId());
+                this.listener.onChange(new BalanceEventDTO(
+                    change.getAccountId(),
+                    account.charId(),
+                    change.getKind(),
+                    change.getDelta(),
+                    change.getBalance()));
+            }
+            long missed = this.missed.getAndSet(0);
+            if (missed > 0) this.listener.onDropped(missed);
+            if (this.heartbeatDue.getAndSet(false)) this.listener.onHeartbeat();
+        }
+
+        private boolean hasWork() {
+            return !this.cancelled.get() &&
+                (!this.queue.isEmpty() || this.missed.get() > 0 ||
+                 this.heartbeatDue.get());
+        }
+
+        private final Map<Long, AccountDTO> owners;
+        private final Listener listener;
+        private final int capacity;
+        private final ConcurrentLinkedQueue<AccountTxn> queue =
+            new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong missed = new AtomicLong();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+    }
+
+    /**
+     * Remind every subscriber that its subscription is alive. Those
+     * whose clients have gone fail to receive it, and are dropped.
+     */
+    @Scheduled(fixedDelayString = "${bank.feed.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        this.all.forEach(Subscription::heartbeat);
+    }
+
+    /**
+     * Offer committed changes to the subscribers following their
+     * accounts. Called by the {@link AccountJournal}; never blocks.
+     *
+     * @param changes the changes, in the order they were made
+     */
+    void publish(List<AccountTxn> changes) {
+        if (this.byAccount.isEmpty()) return;
+        for (AccountTxn change: changes) {
+            Subscription[] subs = this.byAccount.get(change.getAccountId());
+            if (subs == null) continue;
+            for (Subscription sub: subs) sub.offer(change);
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final Executor SENDERS =
+        Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Subscriptions by account followed. Arrays are replaced rather
+     * than changed, so that publishers may read them without locking.
+     */
+    private final ConcurrentHashMap<Long, Subscription[]> byAccount =
+        new ConcurrentHashMap<>();
+
+    private final Set<Subscription> all = ConcurrentHashMap.newKeySet();
+
+    private final FeedProperties props;
+
+    private final Counter dropped;
+}
@@ -0,0 +1,107 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Feeds an in-memory view of balances, such as the {@link Leaderboard}
+ * or the {@link RankIndex}, with the balances that writes leave, once
+ * the writes commit.
+ * <p>
+ * The view is rebuilt from the database now and then. Since a rebuild
+ * may read an account before a write that is applied to the old view
+ * meanwhile, such writes are kept, to be applied again to the new view.
+ * What is kept is guarded by the view's lock, which must be held when
+ * calling {@link #keep}, {@link #startKeeping} and {@link #stopKeeping}.
+ * <p>
+ * Owners are not looked up here: writers pass them if they know them,
+ * and views look up those they need when they are read, so that writes
+ * cost no more than they otherwise would.
+ */
+final class CommittedBalances {
+
+    /**
+     * A balance left by a write
+     *
+     * @param id account ID
+     * @param charId owner's ID, if the writer knew it
+     * @param balance the account's balance, across all its shards
+     */
+    record Write(long id, @Nullable CharId charId, long balance) {}
+
+    /**
+     * Constructor
+     *
+     * @param view applies a committed write to the view
+     */
+    CommittedBalances(Consumer<Write> view) {
+        this.view = view;
+    }
+
+    /**
+     * Pass the balance left by a write to the view once the current
+     * transaction commits, or at once if there is none
+     *
+     * @param id account ID
+     * @param charId owner's ID, if known
+     * @param balance the account's balance, across all its shards
+     */
+    void record(long id, @Nullable CharId charId, Money balance) {
+        var write = new Write(id, charId, balance.longValue());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        view.accept(write);
+                    }
+                });
+        }
+        else this.view.accept(write);
+    }
+
+    /**
+     * Start keeping the writes applied, as a rebuild begins
+     */
+    void startKeeping() {
+        this.kept = new ArrayList<>();
+    }
+
+    /**
+     * Keep a write being applied, if a rebuild is under way
+     *
+     * @param write the write
+     */
+    void keep(Write write) {
+        if (this.kept != null) this.kept.add(write);
+    }
+
+    /**
+     * Stop keeping writes, as a rebuild ends
+     *
+     * @return the writes kept since {@link #startKeeping}, in order of
+     *         application, to be applied again to the rebuilt view
+     */
+    List<Write> stopKeeping() {
+        List<Write> kept = this.kept == null ? List.of() : this.kept;
+        this.kept = null;
+        return kept;
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private final Consumer<Write> view;
+
+    @Nullable
+    private List<Write> kept;
+}
@@ -0,0 +1,170 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.kirkiano.rpg.bank.config.RetryProperties;
+
+
+/**
+ * Retries {@link RetryOnConflict} methods that fail with a
+ * {@link ConcurrencyFailureException}, which covers optimistic-locking
+ * conflicts on {@link org.kirkiano.rpg.bank.model.BaseEntity#version}
+ * as well as lock timeouts and deadlocks.
+ * <p>
+ * This advice runs outside the transactional advice, so each attempt
+ * gets a transaction of its own. When called within an enclosing
+ * transaction, which a conflict will already have doomed, the method is
+ * not retried.
+ * <p>
+ * Metrics, tagged by method: {@code bank.retry.calls},
+ * {@code bank.retry.conflicts}, {@code bank.retry.retries}, and
+ * {@code bank.retry.exhausted}. They are not tagged by account, as
+ * that would register meters without bound; conflicts on an account,
+ * with the backoffs they cost, are reported to the
+ * {@link ContentionProfiler} instead.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConflictRetryAspect {
+
+    /**
+     * Constructor
+     *
+     * @param props retry settings
+     * @param profiler profiler of contention on accounts
+     * @param registry meter registry
+     */
+    @Autowired
+    public ConflictRetryAspect(RetryProperties props,
+                               ContentionProfiler profiler,
+                               MeterRegistry registry)
+    {
+        this.props = props;
+        this.profiler = profiler;
+        this.registry = registry;
+    }
+
+    /**
+     * Invoke the method, retrying it on conflict as configured
+     *
+     * @param pjp the invocation
+     * @return the method's result
+     * @throws Throwable whatever the method finally throws
+     */
+    @Around("@annotation(org.kirkiano.rpg.bank.service.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint pjp) throws Throwable {
+        var signature = (MethodSignature) pjp.getSignature();
+        RetryOnConflict retry =
+            signature.getMethod().getAnnotation(RetryOnConflict.class);
+        String method = signature.getName();
+        Meters meters = this.meters.computeIfAbsent(method, Meters::new);
+        Object account = accountArg(pjp.getArgs(), retry.accountArg());
+        meters.calls.increment();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return pjp.proceed();
+        }
+
+        RetryProperties.Policy policy = this.props.policyFor(method);
+        long delay = policy.backoff().toNanos();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return pjp.proceed();
+            }
+            catch (ConcurrencyFailureException ex) {
+                meters.conflicts.increment();
+                boolean exhausted = attempt >= policy.maxAttempts();
+                long backoff =
+                    exhausted ? 0 : jittered(delay, policy.jitter());
+                if (account instanceof Long id) {
+                    this.profiler.recordConflict(id, backoff);
+                }
+                if (exhausted) {
+                    meters.exhausted.increment();
+                    log.warn("{} on account {} still conflicting after {} " +
+                             "attempts", method, account, attempt);
+                    throw ex;
+                }
+                log.debug("{} on account {} conflicted (attempt {}): {}",
+                          method, account, attempt, ex.getMessage());
+                meters.retries.increment();
+                sleepNanos(backoff);
+                delay = Math.min(2 * delay, policy.maxBackoff().toNanos());
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Counters of one method, registered on its first call
+     */
+    private class Meters {
+        Meters(String method) {
+            MeterRegistry registry = ConflictRetryAspect.this.registry;
+            this.calls = registry.counter("bank.retry.calls",
+                                          "method", method);
+            this.conflicts = registry.counter("bank.retry.conflicts",
+                                              "method", method);
+            this.retries = registry.counter("bank.retry.retries",
+                                            "method", method);
+            this.exhausted = registry.counter("bank.retry.exhausted",
+                                              "method", method);
+        }
+
+        final Counter calls;
+        final Counter conflicts;
+        final Counter retries;
+        final Counter exhausted;
+    }
+
+    @Nullable
+    private static Object accountArg(Object[] args, int index) {
+        return index >= 0 && index < args.length ? args[index] : null;
+    }
+
+    /**
+     * Randomize the given fraction of a delay
+     */
+    private static long jittered(long nanos, double jitter) {
+        double j = Math.min(Math.max(jitter, 0), 1);
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (long) (nanos * (1 - j * r));
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final RetryProperties props;
+
+    private final ContentionProfiler profiler;
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+}
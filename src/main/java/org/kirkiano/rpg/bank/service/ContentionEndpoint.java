@@ -0,0 +1,59 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import org.kirkiano.rpg.bank.service.ContentionProfiler.AccountContention;
+
+
+/**
+ * Actuator endpoint {@code contention}, listing the most contended
+ * accounts as profiled by {@link ContentionProfiler}. Exposed over JMX
+ * only by default, since resetting the profile is a write.
+ */
+@Component
+@Endpoint(id = "contention")
+public class ContentionEndpoint {
+
+    /**
+     * Constructor
+     *
+     * @param profiler contention profiler
+     */
+    @Autowired
+    public ContentionEndpoint(ContentionProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * The most contended accounts
+     *
+     * @param top maximum number of accounts; 10 if absent
+     * @return their profiles, most contended first
+     */
+    @ReadOperation
+    public List<AccountContention> contention(@Nullable Integer top) {
+        return this.profiler.top(top == null ? DEFAULT_TOP : top);
+    }
+
+    /**
+     * Reset the profile
+     */
+    @DeleteOperation
+    public void reset() {
+        this.profiler.reset();
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final int DEFAULT_TOP = 10;
+
+    private final ContentionProfiler profiler;
+}
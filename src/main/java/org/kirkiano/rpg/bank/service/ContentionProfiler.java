@@ -0,0 +1,264 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.kirkiano.rpg.bank.config.ContentionProperties;
+
+
+/**
+ * Profiles, per account, the time writers spend waiting on the
+ * account's row lock, and the conflicts they run into.
+ * <p>
+ * A lock wait is measured as the duration of the statement that takes
+ * the row lock, which under contention is dominated by the wait. Only a
+ * sample of writes is timed, at {@link ContentionProperties#sampleRate()}.
+ * Recording touches only lock-free adders and atomic arrays, so that
+ * the profiler does not itself become a point of contention.
+ * <p>
+ * At most {@link ContentionProperties#maxAccounts()} accounts are
+ * tracked. When that many are, a newly contended account takes the
+ * place of the least contended, as ranked by total wait when the
+ * ranking was last refreshed; the ranking is refreshed whenever its
+ * candidates for eviction run out. Every
+ * {@link ContentionProperties#decayInterval()}, all figures are halved,
+ * and accounts left with none are forgotten, so that the profile
+ * follows the current hot spots rather than those of the past.
+ */
+@Component
+public class ContentionProfiler {
+
+    /**
+     * Upper bounds, in microseconds, of the buckets of the wait
+     * histograms. The last bucket is unbounded.
+     */
+    public static final long[] BUCKET_BOUNDS_MICROS =
+        {10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    /**
+     * Constructor
+     *
+     * @param props contention settings
+     */
+    @Autowired
+    public ContentionProfiler(ContentionProperties props) {
+        this.props = props;
+    }
+
+    /**
+     * Decide whether to time the next write
+     *
+     * @return whether to time it
+     */
+    public boolean sample() {
+        return this.props.enabled() &&
+            ThreadLocalRandom.current().nextDouble() < this.props.sampleRate();
+    }
+
+    /**
+     * Record the time a sampled write spent on an account's row lock
+     *
+     * @param accountId account ID
+     * @param nanos duration of the locking statement
+     */
+    public void recordWait(long accountId, long nanos) {
+        Stats stats = this.statsOf(accountId);
+        if (stats == null) return;
+        stats.samples.increment();
+        stats.waitNanos.add(nanos);
+        stats.histogram.incrementAndGet(bucketOf(nanos / 1_000));
+    }
+
+    /**
+     * Record a write to an account that failed on a concurrent
+     * modification, and the backoff it then incurred
+     *
+     * @param accountId account ID
+     * @param backoffNanos time spent backing off before retrying
+     */
+    public void recordConflict(long accountId, long backoffNanos) {
+        if (!this.props.enabled()) return;
+        Stats stats = this.statsOf(accountId);
+        if (stats == null) return;
+        stats.conflicts.increment();
+        stats.waitNanos.add(backoffNanos);
+    }
+
+    /**
+     * Profile of one account
+     *
+     * @param accountId account ID
+     * @param samples number of timed writes
+     * @param conflicts number of conflicting writes
+     * @param totalWaitMillis lock waits of the timed writes plus
+     *                        backoffs after conflicts
+     * @param histogram number of timed writes per wait bucket, keyed by
+     *                  the bucket's upper bound (eg, {@code <=100us})
+     */
+    public record AccountContention(long accountId,
+                                    long samples,
+                                    long conflicts,
+                                    double totalWaitMillis,
+                                    Map<String, Long> histogram) {}
+
+    /**
+     * The most contended accounts, by total wait
+     *
+     * @param n maximum number of accounts
+     * @return their profiles, most contended first
+     */
+    public List<AccountContention> top(int n) {
+        return this.stats.entrySet()
+            .stream()
+            .sorted(Comparator.comparingLong(
+                (Map.Entry<Long, Stats> e) -> e.getValue().waitNanos.sum())
+                .reversed())
+            .limit(Math.max(n, 0))
+            .map(e -> e.getValue().snapshot(e.getKey()))
+            .toList();
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        this.stats.clear();
+        this.victims.clear();
+    }
+
+    /**
+     * Halve every figure recorded so far, and forget the accounts left
+     * with none. Figures recorded meanwhile may be slightly miscounted.
+     */
+    @Scheduled(fixedDelayString = "${bank.contention.decay-interval:PT1M}")
+    public void decay() {
+        this.stats.values().removeIf(Stats::halve);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static class Stats {
+        AccountContention snapshot(long accountId) {
+            var buckets = new LinkedHashMap<String, Long>();
+            for (int i = 0; i < this.histogram.length(); i++) {
+                String label = i < BUCKET_BOUNDS_MICROS.length ?
+                    "<=" + BUCKET_BOUNDS_MICROS[i] + "us" :
+                    ">" + BUCKET_BOUNDS_MICROS[i - 1] + "us";
+                buckets.put(label, this.histogram.get(i));
+            }
+            return new AccountContention(accountId,
+                                         this.samples.sum(),
+                                         this.conflicts.sum(),
+                                         this.waitNanos.sum() / 1e6,
+                                         buckets);
+        }
+
+        /**
+         * @return whether nothing is left
+         */
+        boolean halve() {
+            boolean empty = halve(this.samples) & halve(this.conflicts);
+            halve(this.waitNanos);
+            for (int i = 0; i < this.histogram.length(); i++) {
+                this.histogram.getAndUpdate(i, n -> n / 2);
+            }
+            return empty;
+        }
+
+        private static boolean halve(LongAdder adder) {
+            long n = adder.sumThenReset() / 2;
+            adder.add(n);
+            return n == 0;
+        }
+
+        final LongAdder samples = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final AtomicLongArray histogram =
+            new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+    }
+
+    @Nullable
+    private Stats statsOf(long accountId) {
+        Stats stats = this.stats.get(accountId);
+        if (stats != null) return stats;
+        // Racy by design: the bound may be overshot by a few entries.
+        if (this.stats.size() >= this.props.maxAccounts() && !this.evict()) {
+            return null;
+        }
+        return this.stats.computeIfAbsent(accountId, k -> new Stats());
+    }
+
+    /**
+     * Make room for another account by forgetting the least contended
+     *
+     * @return whether room was made
+     */
+    private boolean evict() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long victim;
+            while ((victim = this.victims.poll()) != null) {
+                if (this.stats.remove(victim) != null) return true;
+            }
+            // Only one writer ranks; the others go untracked meanwhile.
+            if (!this.ranking.tryLock()) return false;
+            try {
+                if (this.victims.isEmpty()) this.rankVictims();
+            }
+            finally {
+                this.ranking.unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queue the less contended half of the tracked accounts for
+     * eviction, least contended first. Accounts tracked from now on are
+     * not candidates until the next ranking, so that they have time to
+     * prove themselves.
+     */
+    private void rankVictims() {
+        this.stats.entrySet()
+            .stream()
+            .map(e -> Map.entry(e.getKey(), e.getValue().waitNanos.sum()))
+            .sorted(Map.Entry.comparingByValue())
+            .limit(Math.max(1, this.stats.size() / 2))
+            .forEach(e -> this.victims.add(e.getKey()));
+    }
+
+    private static int bucketOf(long micros) {
+        int i = 0;
+        while (i < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private final ConcurrentHashMap<Long, Stats> stats =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Accounts to evict when room is needed, least contended first
+     */
+    private final ConcurrentLinkedQueue<Long> victims =
+        new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock ranking = new ReentrantLock();
+
+    private final ContentionProperties props;
+}
@@ -0,0 +1,153 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.kirkiano.rpg.bank.config.IdempotencyProperties;
+import org.kirkiano.rpg.bank.model.IdempotencyRecord;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.IdempotencyRecordRepository;
+
+
+/**
+ * Outcomes of balance changes made under idempotency keys.
+ * <p>
+ * Outcomes are persisted in the {@code idempotency_key} table, in the
+ * same transaction as the change itself, so that they survive restarts.
+ * Recent ones are also kept in memory, in a {@link StripedCache}, so
+ * that most replays cost neither a database round trip nor contention
+ * on a single lock. Outcomes expire after
+ * {@link IdempotencyProperties#ttl()}.
+ * <p>
+ * Metrics: {@code bank.idempotency.replays}, tagged by the
+ * {@code source} (cache or database) of the replayed outcome.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    /**
+     * Constructor
+     *
+     * @param recordRepo idempotency records repository
+     * @param props idempotency settings
+     * @param registry meter registry
+     */
+    @Autowired
+    public IdempotencyStore(IdempotencyRecordRepository recordRepo,
+                            IdempotencyProperties props,
+                            MeterRegistry registry)
+    {
+        this.recordRepo = recordRepo;
+        this.props = props;
+        this.cache = new StripedCache<>(props.cacheSize(),
+                                        props.cacheStripes(),
+                                        null);
+        this.cacheReplays = registry.counter("bank.idempotency.replays",
+                                             "source", "cache");
+        this.dbReplays = registry.counter("bank.idempotency.replays",
+                                          "source", "database");
+    }
+
+    /**
+     * Outcome of a balance change made under an idempotency key
+     *
+     * @param accountId ID of the changed account
+     * @param delta the change requested
+     * @param balance the balance left by the change
+     */
+    public record Outcome(long accountId, Money delta, Money balance) {}
+
+    /**
+     * Look up the unexpired outcome stored under a key, first in memory
+     * and then in the database
+     *
+     * @param key idempotency key
+     * @return the outcome, if any
+     */
+    public Optional<Outcome> find(String key) {
+        Outcome cached = this.cache.get(key);
+        if (cached != null) {
+            this.cacheReplays.increment();
+            return Optional.of(cached);
+        }
+        Optional<IdempotencyRecord> record = this.recordRepo.findByKey(key);
+        if (record.isEmpty()) return Optional.empty();
+        IdempotencyRecord r = record.get();
+        if (r.getCreatedAt().isBefore(this.cutoff())) {
+            // Expired but not yet purged; free the key for reuse.
+            this.recordRepo.delete(r);
+            return Optional.empty();
+        }
+        var outcome = new Outcome(r.getAccountId(), r.getDelta(), r.getBalance());
+        this.dbReplays.increment();
+        this.remember(key, outcome, r.getCreatedAt());
+        return Optional.of(outcome);
+    }
+
+    /**
+     * Persist the outcome of a change within the current transaction.
+     * Fails with a {@link org.springframework.dao.DataIntegrityViolationException}
+     * if the key is already taken.
+     *
+     * @param key idempotency key
+     * @param outcome the outcome
+     */
+    public void save(String key, Outcome outcome) {
+        this.recordRepo.saveAndFlush(
+            IdempotencyRecord.create(key,
+                                     outcome.accountId(),
+                                     outcome.delta(),
+                                     outcome.balance()));
+    }
+
+    /**
+     * Keep a committed outcome in memory
+     *
+     * @param key idempotency key
+     * @param outcome the outcome
+     */
+    public void remember(String key, Outcome outcome) {
+        this.remember(key, outcome, Instant.now());
+    }
+
+    /**
+     * Delete expired outcomes from the database
+     */
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval:PT1H}")
+    public void purge() {
+        int n = this.recordRepo.deleteCreatedBefore(this.cutoff());
+        if (n > 0) log.info("Purged {} expired idempotency keys", n);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private void remember(String key, Outcome outcome, Instant createdAt) {
+        Instant expiresAt = createdAt.plus(this.props.ttl());
+        long ttl = Duration.between(Instant.now(), expiresAt).toNanos();
+        this.cache.put(key, outcome, ttl);
+    }
+
+    private Instant cutoff() {
+        return Instant.now().minus(this.props.ttl());
+    }
+
+    private final StripedCache<String, Outcome> cache;
+
+    private final IdempotencyRecordRepository recordRepo;
+
+    private final IdempotencyProperties props;
+
+    private final Counter cacheReplays;
+
+    private final Counter dbReplays;
+}
@@ -0,0 +1,330 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.config.LeaderboardProperties;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.VersionedAccount;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+import org.kirkiano.rpg.bank.repository.ReadRoutingDataSource;
+
+
+/**
+ * The richest accounts, kept in memory so that they can be served
+ * without a sort in the database.
+ * <p>
+ * The leaderboard tracks the {@link LeaderboardProperties#tracked()}
+ * accounts with the highest balances, as of its last resync, and is
+ * told of every balance written since. It also keeps a floor: a bound
+ * on the balances of the accounts it does not track, raised whenever
+ * an account leaves it or an untracked account's balance rises. The
+ * tracked accounts above the floor are therefore exactly the richest,
+ * in order. Should there be too few of them, the leaderboard is
+ * resynced on the spot.
+ * <p>
+ * Balances reach the leaderboard through {@link CommittedBalances}.
+ * Commits of concurrent writes to one account may be applied out of
+ * order, and writes made by other instances of the bank are not seen at
+ * all; the next resync corrects both. An account that enters the
+ * leaderboard by a write whose owner was not known has its owner looked
+ * up when it is first served.
+ * <p>
+ * Metrics: {@code bank.leaderboard.tracked} is the number of accounts
+ * tracked, and {@code bank.leaderboard.resyncs} counts resyncs, tagged
+ * by {@code cause} (scheduled or underflow).
+ */
+@Slf4j
+@Component
+public class Leaderboard {
+
+    /**
+     * Constructor
+     *
+     * @param accountRepo accounts repository
+     * @param shards sharded accounts
+     * @param props leaderboard settings
+     * @param registry meter registry
+     */
+    @Autowired
+    public Leaderboard(AccountRepository accountRepo,
+                       AccountShards shards,
+                       LeaderboardProperties props,
+                       MeterRegistry registry)
+    {
+        this.accountRepo = accountRepo;
+        this.shards = shards;
+        this.props = props;
+        this.balances = new CommittedBalances(this::apply);
+        this.capacity = Math.max(props.size(), props.tracked());
+        this.scheduledResyncs = registry.counter(
+            "bank.leaderboard.resyncs", "cause", "scheduled");
+        this.underflowResyncs = registry.counter(
+            "bank.leaderboard.resyncs", "cause", "underflow");
+        Gauge.builder("bank.leaderboard.tracked", this, b -> b.tracked())
+            .description("Accounts tracked by the leaderboard")
+            .register(registry);
+    }
+
+    /**
+     * Indicates whether the leaderboard is kept
+     *
+     * @return whether it is enabled
+     */
+    public boolean isEnabled() {
+        return this.props.enabled();
+    }
+
+    /**
+     * Number of places served
+     *
+     * @return the size of the leaderboard
+     */
+    public int size() {
+        return this.props.size();
+    }
+
+    /**
+     * The richest accounts, richest first. Ties are broken by account ID.
+     *
+     * @param n number of accounts, at most {@link #size()}
+     * @return the accounts; fewer than {@code n} only if there are no more
+     */
+    public List<AccountDTO> top(int n) {
+        n = Math.min(n, this.props.size());
+        List<Entry> top = this.top(n, true);
+        if (top == null) {
+            synchronized (this.resyncLock) {
+                // Unless a resync that was under way has just filled it
+                top = this.top(n, true);
+                if (top == null) {
+                    this.underflowResyncs.increment();
+                    this.resync();
+                    // Only ties with the floor can still be uncertain.
+                    top = Objects.requireNonNull(this.top(n, false));
+                }
+            }
+        }
+        return this.withOwners(top);
+    }
+
+    /**
+     * Tell the leaderboard of the balance a write leaves an account.
+     * Every writer must do so, within its transaction if it has one;
+     * the balance counts only once that commits.
+     *
+     * @param id account ID
+     * @param charId owner's ID, if known
+     * @param balance the account's balance, across all its shards
+     */
+    public void record(long id, @Nullable CharId charId, Money balance) {
+        if (this.props.enabled()) this.balances.record(id, charId, balance);
+    }
+
+    /**
+     * Rebuild the leaderboard from the database, at startup and
+     * periodically thereafter
+     */
+    @Scheduled(fixedDelayString = "${bank.leaderboard.resync-interval:PT1M}")
+    public void scheduledResync() {
+        if (!this.props.enabled()) return;
+        this.scheduledResyncs.increment();
+        this.resync();
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * A place on the leaderboard, and its account's owner, if known
+     */
+    private record Entry(long id, @Nullable CharId charId, long balance) {}
+
+    private static final Comparator<Entry> RICHEST_FIRST =
+        Comparator.comparingLong(Entry::balance).reversed()
+            .thenComparingLong(Entry::id);
+
+    /**
+     * The richest {@code n} accounts tracked, or, if {@code exact}, null
+     * if too few of them are known to be above the floor
+     */
+    @Nullable
+    private synchronized List<Entry> top(int n, boolean exact) {
+        var top = new ArrayList<Entry>(n);
+        for (Entry e: this.ranked) {
+            if (top.size() == n || (exact && e.balance <= this.floor)) break;
+            top.add(e);
+        }
+        boolean complete = top.size() == n || this.floor == NO_FLOOR;
+        return complete || !exact ? top : null;
+    }
+
+    /**
+     * The entries as DTOs, after looking up the owners not yet known,
+     * and remembering them
+     */
+    private List<AccountDTO> withOwners(List<Entry> entries) {
+        var owners = new HashMap<Long, CharId>();
+        List<Long> unknown = entries.stream()
+            .filter(e -> e.charId == null)
+            .map(Entry::id)
+            .toList();
+        if (!unknown.isEmpty()) {
+            for (VersionedAccount a:
+                     this.accountRepo.findVersionedByIds(unknown))
+            {
+                owners.put(a.account().id(), a.account().charId());
+            }
+            this.nameOwners(owners);
+        }
+        return entries.stream()
+            .map(e -> new AccountDTO(
+                e.id,
+                e.charId != null ? e.charId : owners.get(e.id),
+                Money.from(e.balance)))
+            .toList();
+    }
+
+    private synchronized void nameOwners(Map<Long, CharId> owners) {
+        owners.forEach((id, charId) -> {
+            Entry e = this.byId.get(id);
+            if (e == null || e.charId != null) return;
+            var named = new Entry(id, charId, e.balance);
+            this.ranked.remove(e);
+            this.ranked.add(named);
+            this.byId.put(id, named);
+        });
+    }
+
+    private synchronized int tracked() {
+        return this.ranked.size();
+    }
+
+    private synchronized void apply(CommittedBalances.Write write) {
+        this.balances.keep(write);
+        this.place(write.id(), write.charId(), write.balance());
+    }
+
+    private synchronized void place(long id, @Nullable CharId charId, long balance) {
+        Entry old = this.byId.remove(id);
+        if (old != null) this.ranked.remove(old);
+        var entry = new Entry(id, old != null ? old.charId : charId, balance);
+        if (this.ranked.size() >= this.capacity &&
+            RICHEST_FIRST.compare(entry, this.ranked.last()) > 0)
+        {
+            this.floor = Math.max(this.floor, balance);
+            return;
+        }
+        this.ranked.add(entry);
+        this.byId.put(id, entry);
+        if (this.ranked.size() > this.capacity) {
+            Entry out = this.ranked.pollLast();
+            this.byId.remove(out.id);
+            this.floor = Math.max(this.floor, out.balance);
+        }
+    }
+
+    /**
+     * Load the richest accounts by the balances of their rows, plus
+     * every sharded account, whose row holds only part of its balance.
+     * Only one resync runs at a time, since each keeps the writes
+     * applied while it loads. It reads from the primary, as the writes
+     * kept are only those applied since it began.
+     */
+    private void resync() {
+        synchronized (this.resyncLock) {
+            synchronized (this) {
+                this.balances.startKeeping();
+            }
+            Sort sort = Sort.by(Sort.Order.desc(Constants.BALANCE_KEY),
+                                Sort.Order.asc("id"));
+            Slice<AccountDTO> richest;
+            Map<Long, Entry> entries = new HashMap<>();
+            try (var pin = ReadRoutingDataSource.pinToPrimary()) {
+                richest = this.accountRepo.findAllProjectedBy(
+                    PageRequest.of(0, this.capacity, sort));
+                for (AccountDTO a: richest) {
+                    entries.put(a.id(), new Entry(a.id(), a.charId(),
+                                                  a.balance().longValue()));
+                }
+                for (long id: this.shards.all().keySet()) {
+                    this.accountRepo.findDTOById(id).ifPresent(a -> {
+                        Money total = Money.add(
+                            a.balance(), this.accountRepo.sumShards(id));
+                        entries.put(id, new Entry(id, a.charId(),
+                                                  total.longValue()));
+                    });
+                }
+            }
+            // Untracked accounts are unsharded, and no richer than the
+            // poorest row loaded.
+            long floor = richest.hasNext() ?
+                richest.getContent().get(richest.getNumberOfElements() - 1)
+                    .balance().longValue() :
+                NO_FLOOR;
+
+            var ranked = new TreeSet<>(RICHEST_FIRST);
+            ranked.addAll(entries.values());
+            while (ranked.size() > this.capacity) {
+                floor = Math.max(floor, ranked.pollLast().balance);
+            }
+            synchronized (this) {
+                this.ranked = ranked;
+                this.byId = new HashMap<>();
+                ranked.forEach(e -> this.byId.put(e.id, e));
+                this.floor = floor;
+                for (CommittedBalances.Write w: this.balances.stopKeeping()) {
+                    this.place(w.id(), w.charId(), w.balance());
+                }
+            }
+            log.debug("Resynced leaderboard with {} accounts", ranked.size());
+        }
+    }
+
+    /**
+     * Floor when every account is tracked
+     */
+    private static final long NO_FLOOR = Long.MIN_VALUE;
+
+    private TreeSet<Entry> ranked = new TreeSet<>(RICHEST_FIRST);
+
+    private Map<Long, Entry> byId = new HashMap<>();
+
+    private long floor = Long.MAX_VALUE;
+
+    private final CommittedBalances balances;
+
+    private final Object resyncLock = new Object();
+
+    private final int capacity;
+
+    private final AccountRepository accountRepo;
+
+    private final AccountShards shards;
+
+    private final LeaderboardProperties props;
+
+    private final Counter scheduledResyncs;
+
+    private final Counter underflowResyncs;
+}
@@ -0,0 +1,361 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import org.kirkiano.rpg.bank.config.RankProperties;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.RankDTO;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+import org.kirkiano.rpg.bank.repository.ReadRoutingDataSource;
+
+
+/**
+ * Every account, ordered by wealth in memory, so that a character's
+ * rank can be found in logarithmic time without the database.
+ * <p>
+ * The accounts are kept in a treap (a binary search tree balanced by
+ * random priorities) ordered by descending balance and then by ID, each
+ * node holding the size of its subtree. A rank is then the number of
+ * accounts ahead of the character's, counted on the way down from the
+ * root to its node.
+ * <p>
+ * The index is built at startup and rebuilt every
+ * {@link RankProperties#resyncInterval()}. In between, balances reach it
+ * through {@link CommittedBalances}, except those written by other
+ * instances of the bank, which are seen only at the next rebuild. An
+ * account indexed by a write whose owner was not known is found by its
+ * owner once the owner's rank is first asked for.
+ * <p>
+ * Metrics: {@code bank.rank.accounts} is the number of accounts
+ * indexed, and {@code bank.rank.resyncs} counts rebuilds.
+ */
+@Slf4j
+@Component
+public class RankIndex {
+
+    /**
+     * Constructor
+     *
+     * @param accountRepo accounts repository
+     * @param shards sharded accounts
+     * @param txManager transaction manager
+     * @param props rank settings
+     * @param registry meter registry
+     */
+    @Autowired
+    public RankIndex(AccountRepository accountRepo,
+                     AccountShards shards,
+                     PlatformTransactionManager txManager,
+                     RankProperties props,
+                     MeterRegistry registry)
+    {
+        this.accountRepo = accountRepo;
+        this.shards = shards;
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
+        this.props = props;
+        this.balances = new CommittedBalances(this::apply);
+        this.resyncs = registry.counter("bank.rank.resyncs");
+        Gauge.builder("bank.rank.accounts", this, r -> r.indexed())
+            .description("Accounts in the rank index")
+            .register(registry);
+    }
+
+    /**
+     * Indicates whether the index is kept
+     *
+     * @return whether it is enabled
+     */
+    public boolean isEnabled() {
+        return this.props.enabled();
+    }
+
+    /**
+     * A character's rank by wealth. Builds the index first if it has
+     * not yet been built.
+     *
+     * @param charId character ID
+     * @return the rank, or empty if the character has no account
+     */
+    public Optional<RankDTO> rank(CharId charId) {
+        if (this.tree() == null) {
+            synchronized (this.resyncLock) {
+                // Unless a rebuild that was under way has just built it
+                if (this.tree() == null) this.resync();
+            }
+        }
+        Optional<RankDTO> rank = this.rankOf(charId);
+        if (rank.isPresent() || !this.hasNameless()) return rank;
+        // The owner may be that of an account indexed without one.
+        List<AccountDTO> owned =
+            this.accountRepo.findDTOsByCharIds(List.of(charId));
+        owned.forEach(a -> this.nameOwner(a.id(), charId));
+        return this.rankOf(charId);
+    }
+
+    /**
+     * Tell the index of the balance a write leaves an account, as every
+     * writer does for the {@link Leaderboard} too
+     *
+     * @param id account ID
+     * @param charId owner's ID, if known
+     * @param balance the account's balance, across all its shards
+     */
+    public void record(long id, @Nullable CharId charId, Money balance) {
+        if (this.props.enabled()) this.balances.record(id, charId, balance);
+    }
+
+    /**
+     * Rebuild the index from the database, at startup and periodically
+     * thereafter
+     */
+    @Scheduled(fixedDelayString = "${bank.rank.resync-interval:PT10M}")
+    public void scheduledResync() {
+        if (!this.props.enabled()) return;
+        this.resync();
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * A node of the treap: an account, its owner if known, and the size
+     * of its subtree
+     */
+    private static class Node {
+        Node(long id, @Nullable CharId charId, long balance) {
+            this.id = id;
+            this.charId = charId;
+            this.balance = balance;
+        }
+
+        final long id;
+        @Nullable CharId charId;
+        final long balance;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        int size = 1;
+        @Nullable Node left;
+        @Nullable Node right;
+    }
+
+    /**
+     * The treap, with its nodes indexed by account and by owner
+     */
+    private static class Tree {
+
+        /**
+         * Add an account, or move it to its new balance
+         */
+        void put(long id, @Nullable CharId charId, long balance) {
+            this.remove(id);
+            var node = new Node(id, charId, balance);
+            Node[] parts = split(this.root, balance, id, false);
+            this.root = merge(merge(parts[0], node), parts[1]);
+            this.byId.put(id, node);
+            if (charId != null) this.byCharId.put(charId, node);
+        }
+
+        @Nullable
+        Node remove(long id) {
+            Node node = this.byId.remove(id);
+            if (node == null) return null;
+            if (node.charId != null) this.byCharId.remove(node.charId);
+            Node[] ahead = split(this.root, node.balance, node.id, false);
+            Node[] rest = split(ahead[1], node.balance, node.id, true);
+            this.root = merge(ahead[0], rest[1]);
+            return node;
+        }
+
+        /**
+         * Number of accounts ahead of the given balance and ID
+         */
+        long countAhead(long balance, long id) {
+            long n = 0;
+            Node t = this.root;
+            while (t != null) {
+                if (isAhead(t, balance, id)) {
+                    n += size(t.left) + 1;
+                    t = t.right;
+                }
+                else t = t.left;
+            }
+            return n;
+        }
+
+        @Nullable Node root;
+        final Map<Long, Node> byId = new HashMap<>();
+        final Map<CharId, Node> byCharId = new HashMap<>();
+    }
+
+    private static boolean isAhead(Node t, long balance, long id) {
+        return t.balance > balance || (t.balance == balance && t.id < id);
+    }
+
+    private static int size(@Nullable Node t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static Node resize(Node t) {
+        t.size = 1 + size(t.left) + size(t.right);
+        return t;
+    }
+
+    /**
+     * Join two treaps, every node of the first being ahead of every
+     * node of the second
+     */
+    @Nullable
+    private static Node merge(@Nullable Node a, @Nullable Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            return resize(a);
+        }
+        b.left = merge(a, b.left);
+        return resize(b);
+    }
+
+    /**
+     * Split a treap into the nodes ahead of the given balance and ID,
+     * including the node at them if {@code inclusive}, and the rest
+     */
+    private static Node[] split(@Nullable Node t, long balance, long id,
+                                boolean inclusive)
+    {
+        if (t == null) return new Node[] {null, null};
+        boolean first = isAhead(t, balance, id) ||
+                        (inclusive && t.balance == balance && t.id == id);
+        if (first) {
+            Node[] parts = split(t.right, balance, id, inclusive);
+            t.right = parts[0];
+            parts[0] = resize(t);
+            return parts;
+        }
+        Node[] parts = split(t.left, balance, id, inclusive);
+        t.left = parts[1];
+        parts[1] = resize(t);
+        return parts;
+    }
+
+    private synchronized Optional<RankDTO> rankOf(CharId charId) {
+        Tree tree = this.tree;
+        if (tree == null) return Optional.empty();
+        Node node = tree.byCharId.get(charId);
+        if (node == null) return Optional.empty();
+        long ahead = tree.countAhead(node.balance, node.id);
+        return Optional.of(new RankDTO(charId, ahead + 1, tree.byId.size()));
+    }
+
+    /**
+     * Indicates whether some account is indexed without its owner
+     */
+    private synchronized boolean hasNameless() {
+        return this.tree != null &&
+               this.tree.byCharId.size() < this.tree.byId.size();
+    }
+
+    private synchronized void nameOwner(long id, CharId charId) {
+        Node node = this.tree == null ? null : this.tree.byId.get(id);
+        if (node == null || node.charId != null) return;
+        node.charId = charId;
+        this.tree.byCharId.put(charId, node);
+    }
+
+    @Nullable
+    private synchronized Tree tree() {
+        return this.tree;
+    }
+
+    private synchronized int indexed() {
+        return this.tree == null ? 0 : this.tree.byId.size();
+    }
+
+    private synchronized void apply(CommittedBalances.Write write) {
+        this.balances.keep(write);
+        if (this.tree != null) place(this.tree, write);
+    }
+
+    private static void place(Tree tree, CommittedBalances.Write write) {
+        Node old = tree.byId.get(write.id());
+        CharId owner = old != null ? old.charId : write.charId();
+        tree.put(write.id(), owner, write.balance());
+    }
+
+    /**
+     * Build a new treap from every account, and replace the current one
+     * with it. Only one rebuild runs at a time.
+     */
+    private void resync() {
+        synchronized (this.resyncLock) {
+            synchronized (this) {
+                this.balances.startKeeping();
+            }
+            var tree = new Tree();
+            // Read from the primary, as the writes kept are only those
+            // applied since the rebuild began, and a replica may lag.
+            try (var pin = ReadRoutingDataSource.pinToPrimary()) {
+                this.readTx.executeWithoutResult(status -> this.load(tree));
+            }
+            this.resyncs.increment();
+            synchronized (this) {
+                this.balances.stopKeeping().forEach(w -> place(tree, w));
+                this.tree = tree;
+            }
+            log.debug("Rebuilt rank index of {} accounts", tree.byId.size());
+        }
+    }
+
+    /**
+     * Put every account in the tree, within a read-only transaction
+     */
+    private void load(Tree tree) {
+        try (Stream<AccountDTO> accounts =
+                 this.accountRepo.streamAll(this.props.fetchSize()))
+        {
+            accounts.forEach(a -> tree.put(a.id(), a.charId(),
+                                           a.balance().longValue()));
+        }
+        for (long id: this.shards.all().keySet()) {
+            Node node = tree.byId.get(id);
+            if (node == null) continue;
+            Money shards = this.accountRepo.sumShards(id);
+            tree.put(id, node.charId, node.balance + shards.longValue());
+        }
+    }
+
+    @Nullable
+    private Tree tree;
+
+    private final CommittedBalances balances;
+
+    private final Object resyncLock = new Object();
+
+    private final AccountRepository accountRepo;
+
+    private final AccountShards shards;
+
+    private final TransactionTemplate readTx;
+
+    private final RankProperties props;
+
+    private final Counter resyncs;
+}
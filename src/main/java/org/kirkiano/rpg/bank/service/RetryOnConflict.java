@@ -0,0 +1,25 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Marks a service method to be retried, in a fresh transaction, when it
+ * fails on a concurrent modification. See {@link ConflictRetryAspect}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RetryOnConflict {
+
+    /**
+     * Index of the parameter holding the ID of the account the method
+     * writes to, by which conflicts are counted. A negative value means
+     * the method has no single such account.
+     *
+     * @return the parameter index
+     */
+    int accountArg() default 0;
+}
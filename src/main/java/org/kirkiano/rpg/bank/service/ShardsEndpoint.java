@@ -0,0 +1,61 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+
+
+/**
+ * Actuator endpoint {@code /actuator/shards}, for operators to list
+ * sharded accounts and to shard or unshard an account. See
+ * {@link AccountShards}.
+ */
+@Component
+@Endpoint(id = "shards")
+public class ShardsEndpoint {
+
+    /**
+     * Constructor
+     *
+     * @param accountShards sharded accounts
+     */
+    @Autowired
+    public ShardsEndpoint(AccountShards accountShards) {
+        this.accountShards = accountShards;
+    }
+
+    /**
+     * The sharded accounts
+     *
+     * @return numbers of shards keyed by account ID
+     */
+    @ReadOperation
+    public Map<Long, Integer> shards() {
+        return this.accountShards.all();
+    }
+
+    /**
+     * Shard or unshard an account
+     *
+     * @param account account ID
+     * @param shards number of shards. 0 or 1 means unsharded.
+     * @throws NoSuchAccountIdException In case the account does not exist
+     */
+    @WriteOperation
+    public void reshard(long account, int shards)
+        throws NoSuchAccountIdException
+    {
+        this.accountShards.reshard(account, shards);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private final AccountShards accountShards;
+}
@@ -0,0 +1,193 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.lang.Nullable;
+
+
+/**
+ * A bounded in-memory cache whose entries expire, split into stripes,
+ * each guarded by its own lock, so that concurrent callers seldom wait
+ * on one another. Each stripe's map is in access order, so that its
+ * least recently used entry is evicted first once it is full.
+ * <p>
+ * Each stripe also counts the evictions made by {@link #evict}, as its
+ * generation. A caller that loads a value may {@link #stamp} its key
+ * first, and {@link #put} the value only if no eviction has happened
+ * since, lest it cache a value replaced meanwhile.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+final class StripedCache<K, V> {
+
+    /**
+     * Counters of a cache's activity
+     *
+     * @param hits gets that found an unexpired entry
+     * @param misses gets that did not
+     * @param sizeEvictions entries evicted to make room
+     * @param expiries expired entries found and dropped
+     * @param writeEvictions entries dropped by {@link #evict}
+     */
+    record Meters(Counter hits,
+                  Counter misses,
+                  Counter sizeEvictions,
+                  Counter expiries,
+                  Counter writeEvictions) {}
+
+    /**
+     * Constructor
+     *
+     * @param size maximum number of entries, shared among the stripes
+     * @param numStripes number of stripes
+     * @param meters counters of activity, if it is to be counted
+     */
+    @SuppressWarnings("unchecked")
+    StripedCache(int size, int numStripes, @Nullable Meters meters) {
+        numStripes = Math.max(1, numStripes);
+        int capacity = Math.max(1, size / numStripes);
+        this.meters = meters;
+        this.stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            this.stripes[i] = new Stripe<>(capacity, meters);
+        }
+    }
+
+    /**
+     * Look up a key
+     *
+     * @param key the key
+     * @return its value, or null if it is absent or has expired
+     */
+    @Nullable
+    V get(K key) {
+        Stripe<K, V> s = this.stripeOf(key);
+        s.lock.lock();
+        try {
+            Entry<V> e = s.entries.get(key);
+            if (e != null && e.expiresAt - System.nanoTime() < 0) {
+                s.entries.remove(key);
+                if (this.meters != null) this.meters.expiries().increment();
+                e = null;
+            }
+            if (this.meters != null) {
+                (e == null ? this.meters.misses() : this.meters.hits())
+                    .increment();
+            }
+            return e == null ? null : e.value;
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * Cache a value
+     *
+     * @param key the key
+     * @param value the value
+     * @param ttlNanos time until the value expires
+     */
+    void put(K key, V value, long ttlNanos) {
+        this.put(key, value, ttlNanos, -1);
+    }
+
+    /**
+     * Cache a value, unless {@link #evict} has been called on its
+     * stripe since the given stamp
+     *
+     * @param key the key
+     * @param value the value
+     * @param ttlNanos time until the value expires
+     * @param stamp result of {@link #stamp}, taken before the value was
+     *              loaded. A negative stamp means unconditionally.
+     */
+    void put(K key, V value, long ttlNanos, long stamp) {
+        Stripe<K, V> s = this.stripeOf(key);
+        s.lock.lock();
+        try {
+            if (stamp >= 0 && stamp != s.generation) return;
+            long expiresAt = System.nanoTime() + ttlNanos;
+            s.entries.put(key, new Entry<>(value, expiresAt));
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * The current generation of a key's stripe
+     *
+     * @param key the key
+     * @return the generation, to pass to {@link #put}
+     */
+    long stamp(K key) {
+        Stripe<K, V> s = this.stripeOf(key);
+        s.lock.lock();
+        try {
+            return s.generation;
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * Drop a key, and advance the generation of its stripe
+     *
+     * @param key the key
+     */
+    void evict(K key) {
+        Stripe<K, V> s = this.stripeOf(key);
+        s.lock.lock();
+        try {
+            s.generation++;
+            if (s.entries.remove(key) != null && this.meters != null) {
+                this.meters.writeEvictions().increment();
+            }
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * A segment of the cache, guarded by its own lock
+     */
+    private static class Stripe<K, V> {
+        Stripe(int capacity, @Nullable Meters meters) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> e) {
+                    if (this.size() <= capacity) return false;
+                    if (meters != null) meters.sizeEvictions().increment();
+                    return true;
+                }
+            };
+        }
+
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<K, Entry<V>> entries;
+        long generation;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {}
+
+    private Stripe<K, V> stripeOf(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return this.stripes[Math.floorMod(h, this.stripes.length)];
+    }
+
+    private final Stripe<K, V>[] stripes;
+
+    @Nullable
+    private final Meters meters;
+}
@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    id bigint PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY,
+    idem_key varchar(255) not null unique,
+    account_id bigint not null,
+    delta bigint not null,
+    balance bigint not null,
+    created_at timestamp with time zone not null,
+    modified_at timestamp with time zone not null,
+    version integer not null
+);
+
+CREATE INDEX IF NOT EXISTS idempotency_key_created_at
+    ON idempotency_key (created_at);
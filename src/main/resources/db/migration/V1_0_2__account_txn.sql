@@ -0,0 +1,42 @@
+-- Append-only journal of account transactions, range-partitioned by
+-- month of creation. Queries bounded by time touch only the partitions
+-- they need, and old months can be detached or dropped wholesale.
+
+CREATE SEQUENCE IF NOT EXISTS account_txn_id_seq;
+
+CREATE TABLE IF NOT EXISTS account_txn (
+    id bigint not null default nextval('account_txn_id_seq'),
+    account_id bigint not null,
+    kind varchar(16) not null,
+    delta bigint not null,
+    balance bigint not null,
+    created_at timestamp with time zone not null,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE account_txn_id_seq OWNED BY account_txn.id;
+
+-- Inherited by every partition
+CREATE INDEX IF NOT EXISTS account_txn_account_created_at
+    ON account_txn (account_id, created_at);
+
+-- Creates the partition for the month containing the given day, unless
+-- it exists. Called by the application ahead of each month. There is
+-- deliberately no default partition: rows landing there would block
+-- the creation of the partition they belong to.
+CREATE OR REPLACE FUNCTION account_txn_ensure_partition(day date)
+RETURNS void AS $$
+DECLARE
+    lo date := date_trunc('month', day);
+    hi date := lo + interval '1 month';
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS %I PARTITION OF account_txn ' ||
+        'FOR VALUES FROM (%L) TO (%L)',
+        'account_txn_' || to_char(lo, 'YYYY_MM'), lo, hi);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT account_txn_ensure_partition(
+    (current_date + make_interval(months => m))::date)
+FROM generate_series(0, 2) AS m;
@@ -0,0 +1,12 @@
+-- Hot accounts may spread their balance over several rows, so that
+-- concurrent writers do not all queue on one row lock. Shard 0 is the
+-- account's own balance column; the others live here.
+
+ALTER TABLE account ADD COLUMN IF NOT EXISTS shards integer not null default 0;
+
+CREATE TABLE IF NOT EXISTS account_shard (
+    account_id bigint not null references account (id),
+    shard integer not null,
+    balance bigint not null,
+    PRIMARY KEY (account_id, shard)
+);
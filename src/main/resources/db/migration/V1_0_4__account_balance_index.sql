@@ -0,0 +1,3 @@
+-- Keyset listings sorted by balance seek on (balance, id).
+
+CREATE INDEX IF NOT EXISTS account_balance_id ON account (balance, id);
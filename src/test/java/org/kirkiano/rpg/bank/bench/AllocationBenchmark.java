@@ -0,0 +1,93 @@
+package org.kirkiano.rpg.bank.bench;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Bytes allocated per balance change, on the calling thread, from the
+ * service down to the JDBC driver. Changes are small deposits and
+ * withdrawals, as most are in play.
+ * <p>
+ * Tunable through system properties {@code bench.ops} and
+ * {@code bench.warmup.ops}.
+ */
+public class AllocationBenchmark extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public AllocationBenchmark() {}
+
+
+    /**
+     * Apply alternating small changes to one account, and report the
+     * bytes allocated per change once warmed up.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void allocationPerBalanceChange() throws Exception {
+        int ops = Integer.getInteger("bench.ops", 20_000);
+        int warmup = Integer.getInteger("bench.warmup.ops", 20_000);
+        long id = mockAccount(charIdGen.get(), Money.from(100)).getId();
+        var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        this.changes(id, warmup);
+        long before = threads.getThreadAllocatedBytes(thread);
+        this.changes(id, ops);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("balance changes: %,d bytes allocated per change%n",
+                          allocated / ops);
+        assertEquals(Money.from(100),
+                     accountService.getAccountById(id).balance());
+    }
+
+    /**
+     * Apply the arithmetic of a balance change to amounts in play, and
+     * report the bytes allocated per change by it alone
+     */
+    @Test
+    public void allocationPerMoneyChange() {
+        int ops = Integer.getInteger("bench.ops", 20_000);
+        var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        // Kept, so that the amounts escape and must be allocated
+        Money[] kept = new Money[ops];
+
+        this.arithmetic(kept);
+        long before = threads.getThreadAllocatedBytes(thread);
+        this.arithmetic(kept);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("money arithmetic: %,d bytes allocated per change%n",
+                          allocated / ops);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private void arithmetic(Money[] kept) {
+        Money balance = Money.from(500);
+        for (int i = 0; i < kept.length; i++) {
+            Money delta = Money.from(i % 2 == 0 ? 5 : -5);
+            balance = Money.add(balance, delta);
+            kept[i] = balance;
+        }
+    }
+
+    private void changes(long id, int n) throws Exception {
+        for (int i = 0; i < n; i++) {
+            Money delta = Money.from(i % 2 == 0 ? 5 : -5);
+            accountService.changeBalance(id, delta);
+        }
+    }
+}
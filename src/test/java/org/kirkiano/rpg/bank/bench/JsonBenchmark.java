@@ -0,0 +1,119 @@
+package org.kirkiano.rpg.bank.bench;
+
+import java.time.Duration;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.kirkiano.rpg.bank.config.JsonProperties;
+import org.kirkiano.rpg.bank.config.ObjectMapperConfig;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.BalanceDTO;
+import org.kirkiano.rpg.bank.dto.ChangeBalanceDTO;
+import org.kirkiano.rpg.bank.dto.CreateAccountDTO;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Throughput of serializing and deserializing the DTOs most often
+ * exchanged, by the object mapper as it used to be configured
+ * (indented, reflective), as it is now in production (compact, with
+ * Blackbird and the streaming serializers of accounts), and in the binary formats CBOR and Smile. No application
+ * context is started.
+ * <p>
+ * Tunable through system properties {@code bench.seconds}, the time
+ * spent on each measurement, and {@code bench.warmup.seconds}.
+ */
+public class JsonBenchmark {
+
+    /**
+     * Default constructor
+     */
+    public JsonBenchmark() {}
+
+
+    /**
+     * Measure each DTO both ways under both configurations, report
+     * operations per second and payload sizes, and check that every
+     * DTO survives the round trip.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void serializeAndDeserialize() throws Exception {
+        var duration = Duration.ofSeconds(Long.getLong("bench.seconds", 1));
+        var warmup = Duration.ofSeconds(Long.getLong("bench.warmup.seconds", 1));
+        var before =
+            ObjectMapperConfig.create(new JsonProperties(true, false, false));
+        var prod = new JsonProperties(false, true, true);
+        var after = ObjectMapperConfig.create(prod);
+        var cbor = ObjectMapperConfig.configure(new CBORMapper(), prod);
+        var smile = ObjectMapperConfig.configure(new SmileMapper(), prod);
+
+        List<Object> samples = List.of(
+            new AccountDTO(123_456L, new CharId(654_321L),
+                           Money.from(1_000_000L)),
+            new BalanceDTO(Money.from(42)),
+            new ChangeBalanceDTO(Money.from(-17)),
+            new CreateAccountDTO(new CharId(99L), Money.from(500)));
+
+        for (Object sample: samples) {
+            String name = sample.getClass().getSimpleName();
+            for (var config: List.of(new Config("before", before),
+                                     new Config("after", after),
+                                     new Config("cbor", cbor),
+                                     new Config("smile", smile)))
+            {
+                ObjectMapper mapper = config.mapper;
+                byte[] encoded = mapper.writeValueAsBytes(sample);
+                assertEquals(sample, mapper.readValue(encoded, sample.getClass()));
+
+                measure(warmup, () -> mapper.writeValueAsBytes(sample));
+                double writes =
+                    measure(duration, () -> mapper.writeValueAsBytes(sample));
+                measure(warmup, () -> mapper.readValue(encoded, sample.getClass()));
+                double reads =
+                    measure(duration, () -> mapper.readValue(encoded, sample.getClass()));
+                System.out.printf("%-16s %-6s: %,12.0f ser/s %,12.0f deser/s " +
+                                  "%4d bytes%n",
+                                  name, config.label, writes, reads,
+                                  encoded.length);
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private record Config(String label, ObjectMapper mapper) {}
+
+    @FunctionalInterface
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Run an operation repeatedly for the given time
+     *
+     * @return operations per second
+     */
+    private static double measure(Duration duration, Op op) throws Exception {
+        long ops = 0;
+        int sink = 0;
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        long now;
+        do {
+            // Check the clock only every so often.
+            for (int i = 0; i < 1000; i++, ops++) sink += op.run().hashCode();
+            now = System.nanoTime();
+        } while (now < deadline);
+        if (sink == 42) System.out.print("");
+        return ops * 1e9 / (now - start);
+    }
+}
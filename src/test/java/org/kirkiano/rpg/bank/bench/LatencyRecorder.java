@@ -0,0 +1,90 @@
+package org.kirkiano.rpg.bank.bench;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * Collects operation latencies from many threads and summarizes them.
+ * Each thread records into its own {@link Sink}, so recording does not
+ * contend.
+ */
+public class LatencyRecorder {
+
+    /**
+     * Constructor
+     *
+     * @param name name of the measured operation, for the report
+     */
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Per-thread collector of latencies
+     */
+    public static class Sink {
+        /**
+         * Record one operation
+         *
+         * @param nanos its latency in nanoseconds
+         */
+        public void record(long nanos) {
+            if (this.count == this.nanos.length) {
+                this.nanos = Arrays.copyOf(this.nanos, this.count * 2);
+            }
+            this.nanos[this.count++] = nanos;
+        }
+
+        private long[] nanos = new long[1 << 12];
+        private int count;
+    }
+
+    /**
+     * Make a new sink, to be used by one thread only
+     *
+     * @return the sink
+     */
+    public Sink newSink() {
+        var sink = new Sink();
+        this.sinks.add(sink);
+        return sink;
+    }
+
+    /**
+     * Summarize everything recorded so far
+     *
+     * @param elapsed wall-clock duration of the measurement
+     * @return one line: count, throughput, and latency percentiles
+     */
+    public String report(Duration elapsed) {
+        long[] all = this.sinks.stream()
+            .flatMapToLong(s -> Arrays.stream(s.nanos, 0, s.count))
+            .sorted()
+            .toArray();
+        double seconds = elapsed.toNanos() / 1e9;
+        return MessageFormat.format(
+            "{0}: {1} ops in {2,number,#.##}s = {3,number,#.#} ops/s; " +
+            "p50 {4,number,#.###}ms, p99 {5,number,#.###}ms, " +
+            "max {6,number,#.###}ms",
+            this.name, all.length, seconds, all.length / seconds,
+            percentile(all, 0.50), percentile(all, 0.99),
+            percentile(all, 1.0));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(i, 0)] / 1e6;
+    }
+
+    private final String name;
+
+    private final ConcurrentLinkedQueue<Sink> sinks =
+        new ConcurrentLinkedQueue<>();
+}
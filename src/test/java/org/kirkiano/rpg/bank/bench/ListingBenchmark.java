@@ -0,0 +1,98 @@
+package org.kirkiano.rpg.bank.bench;
+
+import java.time.Duration;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.util.UriComponentsBuilder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.controller.Request;
+import org.kirkiano.rpg.bank.controller.RestControllerIntegrationTest;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Throughput and latency of the account listing, in compact JSON as in
+ * production, from the controller down to the database and back.
+ * Subclasses choose between the reflective and the streaming
+ * serializers of accounts.
+ * <p>
+ * Tunable through system properties {@code bench.accounts}, the number
+ * of accounts created first, {@code bench.pageLength}, and
+ * {@code bench.seconds}, the time spent measuring after as long again
+ * of warm-up.
+ */
+@TestPropertySource(properties = "bank.json.indent-output=false")
+public abstract class ListingBenchmark extends RestControllerIntegrationTest {
+
+    /**
+     * Constructor
+     *
+     * @param name name of the configuration, for the report
+     */
+    protected ListingBenchmark(String name) {
+        this.name = name;
+    }
+
+
+    /**
+     * List pages of accounts repeatedly, and report throughput and
+     * latency.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void listAccounts() throws Exception {
+        int numAccounts = Integer.getInteger("bench.accounts", 1000);
+        int pageLength = Integer.getInteger("bench.pageLength", 100);
+        var duration = Duration.ofSeconds(Long.getLong("bench.seconds", 5));
+        for (int a = 0; a < numAccounts; a++) {
+            mockAccount(charIdGen.get(), Money.from(a));
+        }
+        UriComponentsBuilder url = accountsURL()
+            .queryParam(Constants.PAGE_LENGTH_KEY, pageLength)
+            .queryParam(Constants.SORTBY_KEY, "id")
+            .queryParam("sortOrder", "ASC");
+
+        this.run(url, duration, new LatencyRecorder("warm-up").newSink());
+        var recorder = new LatencyRecorder(this.name + ", pages of " +
+                                           pageLength);
+        var sink = recorder.newSink();
+        long start = System.nanoTime();
+        int bytes = this.run(url, duration, sink);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        System.out.println(recorder.report(elapsed) +
+                           "; " + bytes + " bytes per page");
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * GET the same page until the time is up
+     *
+     * @return the size of the last page's body
+     */
+    private int run(UriComponentsBuilder url, Duration duration,
+                    LatencyRecorder.Sink sink)
+        throws Exception
+    {
+        int bytes = 0;
+        long deadline = System.nanoTime() + duration.toNanos();
+        long t0;
+        do {
+            t0 = System.nanoTime();
+            var response = mockBodilessCall(Request.get(url)).getResponse();
+            sink.record(System.nanoTime() - t0);
+            assertEquals(HttpStatus.OK.value(), response.getStatus());
+            bytes = response.getContentAsByteArray().length;
+        } while (t0 < deadline);
+        return bytes;
+    }
+
+    private final String name;
+}
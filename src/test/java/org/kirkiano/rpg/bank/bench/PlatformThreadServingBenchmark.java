@@ -0,0 +1,18 @@
+package org.kirkiano.rpg.bank.bench;
+
+import org.springframework.test.context.TestPropertySource;
+
+
+/**
+ * {@link ServingBenchmark} on Tomcat's default pool of platform threads
+ */
+@TestPropertySource(properties = "bank.threading.virtual-threads=false")
+public class PlatformThreadServingBenchmark extends ServingBenchmark {
+
+    /**
+     * Default constructor
+     */
+    public PlatformThreadServingBenchmark() {
+        super("platform threads");
+    }
+}
@@ -0,0 +1,18 @@
+package org.kirkiano.rpg.bank.bench;
+
+import org.springframework.test.context.TestPropertySource;
+
+
+/**
+ * {@link ListingBenchmark} with reflective serialization of accounts, as before
+ */
+@TestPropertySource(properties = "bank.json.streaming-serializers=false")
+public class ReflectiveListingBenchmark extends ListingBenchmark {
+
+    /**
+     * Default constructor
+     */
+    public ReflectiveListingBenchmark() {
+        super("reflective serialization");
+    }
+}
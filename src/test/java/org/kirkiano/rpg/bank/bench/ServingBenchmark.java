@@ -0,0 +1,180 @@
+package org.kirkiano.rpg.bank.bench;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Throughput and latency of balance changes from many slow clients,
+ * over real HTTP. Each client sends its request headers, pauses, and
+ * only then sends the body, so that the server thread handling it
+ * blocks while reading the body. Subclasses choose between platform
+ * and virtual request threads.
+ * <p>
+ * Tunable through system properties {@code bench.clients},
+ * {@code bench.requests} (per client, after one untimed warm-up
+ * request each) and {@code bench.pauseMillis}.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    classes = org.kirkiano.rpg.bank.BankApplication.class
+)
+@TestPropertySource(properties = "server.tomcat.accept-count=4096")
+public abstract class ServingBenchmark extends BaseTest {
+
+    /**
+     * Constructor
+     *
+     * @param name name of the configuration, for the report
+     */
+    protected ServingBenchmark(String name) {
+        this.name = name;
+    }
+
+
+    /**
+     * Run the slow clients to completion, report throughput, latency
+     * and the peak number of live threads, and check that every
+     * deposit was applied.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void slowClients() throws Exception {
+        int numClients = Integer.getInteger("bench.clients", 2000);
+        int numRequests = Integer.getInteger("bench.requests", 5);
+        long pauseMillis = Long.getLong("bench.pauseMillis", 50);
+        var deposit = Money.from(1);
+
+        long[] accounts = new long[numClients];
+        for (int c = 0; c < numClients; c++) {
+            accounts[c] = mockAccount(charIdGen.get(), Money.ZERO).getId();
+        }
+
+        var failures = new AtomicLong();
+        this.run(accounts, 1, deposit, pauseMillis,
+                 new LatencyRecorder("warm-up"), failures);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        var recorder = new LatencyRecorder(this.name + ", slow clients");
+        long start = System.nanoTime();
+        this.run(accounts, numRequests, deposit, pauseMillis,
+                 recorder, failures);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        System.out.println(recorder.report(elapsed) +
+                           "; failures " + failures.get() +
+                           "; peak live threads " +
+                           threads.getPeakThreadCount());
+        assertEquals(0, failures.get());
+        for (long id: accounts) {
+            assertEquals(Money.from(numRequests + 1),
+                         accountService.getAccountById(id).balance());
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Run one client per account to completion, each on a virtual
+     * thread of its own
+     */
+    private void run(long[] accounts,
+                     int numRequests,
+                     Money delta,
+                     long pauseMillis,
+                     LatencyRecorder recorder,
+                     AtomicLong failures)
+        throws Exception
+    {
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (long id: accounts) {
+                var sink = recorder.newSink();
+                workers.add(clients.submit(() -> {
+                    for (int r = 0; r < numRequests; r++) {
+                        long t0 = System.nanoTime();
+                        try {
+                            int status = this.patch(id, delta, pauseMillis);
+                            if (status == 200) {
+                                sink.record(System.nanoTime() - t0);
+                            }
+                            else failures.incrementAndGet();
+                        }
+                        catch (Exception ex) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> w: workers) w.get();
+        }
+    }
+
+    /**
+     * PATCH a deposit over a fresh connection, pausing between headers
+     * and body
+     *
+     * @return the response status
+     */
+    private int patch(long id, Money delta, long pauseMillis)
+        throws Exception
+    {
+        byte[] body = ("{\"delta\":" + delta.longValue() + "}")
+            .getBytes(StandardCharsets.UTF_8);
+        String head =
+            "PATCH /v" + this.apiVersion + "/" + this.accountsPath + "/" +
+            id + " HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Accept: application/json\r\n" +
+            "Content-Length: " + body.length + "\r\n" +
+            "Connection: close\r\n\r\n";
+        try (var socket = new Socket("localhost", this.port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(pauseMillis);
+            out.write(body);
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String response = new String(in.readAllBytes(),
+                                         StandardCharsets.US_ASCII);
+            // Status line: HTTP/1.1 200 ...
+            return Integer.parseInt(response.substring(9, 12));
+        }
+    }
+
+    private final String name;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${api.version}")
+    private String apiVersion;
+
+    @Value("${api.accounts}")
+    private String accountsPath;
+}
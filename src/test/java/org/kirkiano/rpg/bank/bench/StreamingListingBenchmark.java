@@ -0,0 +1,18 @@
+package org.kirkiano.rpg.bank.bench;
+
+import org.springframework.test.context.TestPropertySource;
+
+
+/**
+ * {@link ListingBenchmark} with the streaming serializers of accounts
+ */
+@TestPropertySource(properties = "bank.json.streaming-serializers=true")
+public class StreamingListingBenchmark extends ListingBenchmark {
+
+    /**
+     * Default constructor
+     */
+    public StreamingListingBenchmark() {
+        super("streaming serializers");
+    }
+}
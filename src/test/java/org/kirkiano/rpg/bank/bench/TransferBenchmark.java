@@ -0,0 +1,92 @@
+package org.kirkiano.rpg.bank.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Throughput of transfers between contended pairs of accounts. Half
+ * the threads on each pair transfer one way and half the other, which
+ * deadlocks unless row locks are taken in a consistent order.
+ * <p>
+ * Tunable through system properties {@code bench.pairs},
+ * {@code bench.threads} and {@code bench.seconds}.
+ */
+public class TransferBenchmark extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public TransferBenchmark() {}
+
+
+    /**
+     * Run opposing transfers on a few account pairs for a fixed time,
+     * report throughput and latency, and check that no money was
+     * created or destroyed.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void contendedTransfers() throws Exception {
+        int numPairs = Integer.getInteger("bench.pairs", 4);
+        int numThreads = Integer.getInteger("bench.threads", 16);
+        var duration = Duration.ofSeconds(Long.getLong("bench.seconds", 10));
+        var balance0 = Money.from(1_000_000_000L);
+        var amount = Money.from(1);
+
+        long[][] pairs = new long[numPairs][2];
+        for (long[] pair: pairs) {
+            pair[0] = mockAccount(charIdGen.get(), balance0).getId();
+            pair[1] = mockAccount(charIdGen.get(), balance0).getId();
+        }
+
+        var recorder = new LatencyRecorder("contended transfers");
+        var failures = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        try (var pool = Executors.newFixedThreadPool(numThreads)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                long[] pair = pairs[t % numPairs];
+                boolean forward = (t / numPairs) % 2 == 0;
+                long from = forward ? pair[0] : pair[1];
+                long to = forward ? pair[1] : pair[0];
+                var sink = recorder.newSink();
+                workers.add(pool.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long t0 = System.nanoTime();
+                        try {
+                            accountService.transfer(from, to, amount);
+                            sink.record(System.nanoTime() - t0);
+                        }
+                        catch (Exception ex) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> w: workers) w.get();
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        System.out.println(recorder.report(elapsed) +
+                           "; failures " + failures.get());
+        for (long[] pair: pairs) {
+            long total =
+                accountService.getAccountById(pair[0]).balance().longValue() +
+                accountService.getAccountById(pair[1]).balance().longValue();
+            assertEquals(2 * balance0.longValue(), total);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.kirkiano.rpg.bank.bench;
+
+import org.springframework.test.context.TestPropertySource;
+
+
+/**
+ * {@link ServingBenchmark} on virtual threads, behind the JDBC
+ * admission gate
+ */
+@TestPropertySource(properties = "bank.threading.virtual-threads=true")
+public class VirtualThreadServingBenchmark extends ServingBenchmark {
+
+    /**
+     * Default constructor
+     */
+    public VirtualThreadServingBenchmark() {
+        super("virtual threads");
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Benchmarks of RPG bank. Their class names end in {@code Benchmark},
+ * so that the regular test run skips them; run them with
+ * {@code make bench}.
+ * <p>
+ * Copyright 2023 kirkiano. All rights reserved.
+ *
+ * @author kirkiano
+ * @version 1.0
+ */
+
+
+@NonNullFields @NonNullApi
+package org.kirkiano.rpg.bank.bench;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -1,5 +1,6 @@
 package org.kirkiano.rpg.bank.controller;
 
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 import org.junit.runner.RunWith;
@@ -41,8 +42,8 @@ public abstract class BaseTest {
      */
     protected final Supplier<CharId> charIdGen = new Supplier<>() {
         @Override
-        public CharId get() { return this.id.increment(); }
-        private static final CharId id = new CharId(0L);
+        public CharId get() { return new CharId(ids.incrementAndGet()); }
+        private static final AtomicLong ids = new AtomicLong();
     };
 
 
@@ -1,14 +1,25 @@
 package org.kirkiano.rpg.bank.controller;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.kirkiano.rpg.bank.config.Constants;
 import org.kirkiano.rpg.bank.controller.error.ErrorCode;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.AccountDeltaDTO;
 import org.kirkiano.rpg.bank.dto.BalanceDTO;
+import org.kirkiano.rpg.bank.dto.BatchChangeBalanceDTO;
 import org.kirkiano.rpg.bank.dto.ChangeBalanceDTO;
 import org.kirkiano.rpg.bank.model.Account;
 import org.kirkiano.rpg.bank.model.Money;
@@ -121,8 +132,8 @@ public class ChangeBalanceRestControllerIntegrationTest
             .andExpect(HttpStatus.UNPROCESSABLE_ENTITY)
             .andExpect(error);
 
-        Account account1 = accountService.getAccountById(aid);
-        assertEquals(account1.getBalance(), balance0);
+        AccountDTO account1 = accountService.getAccountById(aid);
+        assertEquals(account1.balance(), balance0);
     }
 
     /**
@@ -153,8 +164,201 @@ public class ChangeBalanceRestControllerIntegrationTest
             .andExpect(HttpStatus.OK)
             .andExpect(balanceDTO);
 
-        Account account1 = accountService.getAccountById(aid);
-        assertEquals(account1.getBalance(), balance1);
+        AccountDTO account1 = accountService.getAccountById(aid);
+        assertEquals(account1.balance(), balance1);
+    }
+
+
+    /**
+     * Concurrent deposits to the same account should all be applied,
+     * ie, none should be lost to a racing writer.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void concurrentDeposits_shouldAllApply() throws Exception {
+        int numDeposits = 50;
+        var deposit = Money.from(3);
+        Account account0 = mockAccount(charIdGen.get(), Money.ZERO);
+        long aid = account0.getId();
+
+        try (var pool = Executors.newFixedThreadPool(8)) {
+            List<Callable<Money>> tasks = new ArrayList<>();
+            for (int i = 0; i < numDeposits; i++) {
+                tasks.add(() -> accountService.changeBalance(aid, deposit));
+            }
+            for (Future<Money> f: pool.invokeAll(tasks)) f.get();
+        }
+
+        AccountDTO account1 = accountService.getAccountById(aid);
+        var expected = Money.from(numDeposits * deposit.longValue());
+        assertEquals(expected, account1.balance());
+    }
+
+
+    /**
+     * Replaying a PATCH {@code /v${api.version}/${api.accounts}/{id}}
+     * under the same {@value Constants#IDEMPOTENCY_KEY_HEADER} should
+     * return the original {@link BalanceDTO} without changing the
+     * balance again.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void replayedIdempotentDeposit_shouldApplyOnce() throws Exception {
+        var deposit = Money.from(5);
+        long aid = mockAccount(charIdGen.get(), Money.from(10)).getId();
+        var url = accountsURL().pathSegment(Long.toString(aid));
+        var balanceDTO = new BalanceDTO(Money.from(15));
+        String key = "replay-" + aid;
+
+        for (int i = 0; i < 3; i++) {
+            var request = Request.patch(url, new ChangeBalanceDTO(deposit))
+                .header(Constants.IDEMPOTENCY_KEY_HEADER, key);
+            var ignored = mockRESTcall(request)
+                .andExpect(HttpStatus.OK)
+                .andExpect(balanceDTO);
+        }
+
+        assertEquals(Money.from(15),
+                     accountService.getAccountById(aid).balance());
+    }
+
+
+    /**
+     * Reusing an {@value Constants#IDEMPOTENCY_KEY_HEADER} for a
+     * different change should return
+     * {@link HttpStatus#UNPROCESSABLE_ENTITY} with
+     * {@link Error.InvalidIdempotencyKey}, and apply nothing.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void reusedIdempotencyKey_shouldError() throws Exception {
+        long aid = mockAccount(charIdGen.get(), Money.from(10)).getId();
+        var url = accountsURL().pathSegment(Long.toString(aid));
+        String key = "reuse-" + aid;
+
+        var first = Request.patch(url, new ChangeBalanceDTO(Money.from(1)))
+            .header(Constants.IDEMPOTENCY_KEY_HEADER, key);
+        var ignored = mockRESTcall(first).andExpect(HttpStatus.OK);
+
+        var second = Request.patch(url, new ChangeBalanceDTO(Money.from(2)))
+            .header(Constants.IDEMPOTENCY_KEY_HEADER, key);
+        mockRESTcall(second)
+            .andExpect(HttpStatus.UNPROCESSABLE_ENTITY)
+            .andExpect(new Error.InvalidIdempotencyKey(key));
+
+        assertEquals(Money.from(11),
+                     accountService.getAccountById(aid).balance());
+    }
+
+
+    /**
+     * Concurrent deposits under the same idempotency key should be
+     * applied once, and should all report the same balance.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void concurrentIdempotentDeposits_shouldApplyOnce()
+        throws Exception
+    {
+        var deposit = Money.from(3);
+        long aid = mockAccount(charIdGen.get(), Money.ZERO).getId();
+        String key = "concurrent-" + aid;
+
+        List<Money> balances = new ArrayList<>();
+        try (var pool = Executors.newFixedThreadPool(8)) {
+            List<Callable<Money>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tasks.add(() -> accountService.changeBalance(aid, deposit, key));
+            }
+            for (Future<Money> f: pool.invokeAll(tasks)) balances.add(f.get());
+        }
+
+        assertTrue(balances.stream().allMatch(deposit::equals));
+        assertEquals(deposit, accountService.getAccountById(aid).balance());
+    }
+
+
+    /**
+     * Best-effort PATCH {@code /v${api.version}/${api.accounts}} should
+     * return {@link HttpStatus#OK}, apply every change that can be
+     * applied, in order, and report an error code for each that cannot.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void bestEffortBatch_shouldApplyWhatItCan() throws Exception {
+        long aid = mockAccount(charIdGen.get(), Money.from(10)).getId();
+        long bid = mockAccount(charIdGen.get(), Money.from(5)).getId();
+        long invalidId = -1L;
+
+        var dto = new BatchChangeBalanceDTO(
+            BatchChangeBalanceDTO.Mode.BEST_EFFORT,
+            List.of(new AccountDeltaDTO(aid, Money.from(-4)),
+                    new AccountDeltaDTO(bid, Money.from(-6)),
+                    new AccountDeltaDTO(invalidId, Money.from(1)),
+                    new AccountDeltaDTO(aid, Money.from(-4)),
+                    new AccountDeltaDTO(bid, Money.from(2)))
+        );
+        var request = Request.patch(accountsURL(), dto);
+
+        DocumentContext json = JsonPath.parse(
+            mockRESTcall(request)
+                .andExpect(HttpStatus.OK)
+                .getResponseAsString()
+        );
+        var funds = ErrorCode.InsufficientFunds.getNumber();
+        var noSuchId = ErrorCode.NoSuchAccountId.getNumber();
+        assertEquals(6, json.<Integer>read("$[0].balance"));
+        assertEquals(funds, json.<Integer>read("$[1].errorNumber"));
+        assertEquals(noSuchId, json.<Integer>read("$[2].errorNumber"));
+        assertEquals(2, json.<Integer>read("$[3].balance"));
+        assertEquals(7, json.<Integer>read("$[4].balance"));
+
+        assertEquals(Money.from(2),
+                     accountService.getAccountById(aid).balance());
+        assertEquals(Money.from(7),
+                     accountService.getAccountById(bid).balance());
+    }
+
+
+    /**
+     * All-or-nothing PATCH {@code /v${api.version}/${api.accounts}} in
+     * which one change would overdraw should return
+     * {@link HttpStatus#UNPROCESSABLE_ENTITY}, mark the other changes
+     * with {@link ErrorCode#BatchAborted}, and leave every balance
+     * unchanged.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void allOrNothingBatch_shouldRollBackOnFailure() throws Exception {
+        var balance0 = Money.from(10);
+        long aid = mockAccount(charIdGen.get(), balance0).getId();
+        long bid = mockAccount(charIdGen.get(), balance0).getId();
+
+        var dto = new BatchChangeBalanceDTO(
+            null,
+            List.of(new AccountDeltaDTO(aid, Money.from(5)),
+                    new AccountDeltaDTO(bid, Money.from(-11)))
+        );
+        var request = Request.patch(accountsURL(), dto);
+
+        DocumentContext json = JsonPath.parse(
+            mockRESTcall(request)
+                .andExpect(HttpStatus.UNPROCESSABLE_ENTITY)
+                .getResponseAsString()
+        );
+        assertEquals(ErrorCode.BatchAborted.getNumber(),
+                     json.<Integer>read("$[0].errorNumber"));
+        assertEquals(ErrorCode.InsufficientFunds.getNumber(),
+                     json.<Integer>read("$[1].errorNumber"));
+
+        assertEquals(balance0, accountService.getAccountById(aid).balance());
+        assertEquals(balance0, accountService.getAccountById(bid).balance());
     }
 
 }
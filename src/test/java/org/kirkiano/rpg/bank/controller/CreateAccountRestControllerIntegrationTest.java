@@ -13,7 +13,6 @@ import org.kirkiano.rpg.bank.controller.error.ErrorCode;
 import org.kirkiano.rpg.bank.dto.AccountDTO;
 import org.kirkiano.rpg.bank.dto.CreateAccountDTO;
 import org.kirkiano.rpg.bank.exn.UnknownCharIdException;
-import org.kirkiano.rpg.bank.model.Account;
 import org.kirkiano.rpg.bank.model.Money;
 import org.kirkiano.rpg.bank.model.CharId;
 
@@ -227,9 +226,9 @@ public class CreateAccountRestControllerIntegrationTest
         long aid = Long.valueOf(aidInteger);
         assertDoesNotThrow(() -> this.accountService.getAccountById(aid));
 
-        Account account = this.accountService.getAccountById(aid);
-        assertEquals(charId, account.getCharId());
-        assertEquals(balance, account.getBalance());
+        AccountDTO account = this.accountService.getAccountById(aid);
+        assertEquals(charId, account.charId());
+        assertEquals(balance, account.balance());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package org.kirkiano.rpg.bank.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Integration tests for {@link ExportController}
+ */
+public class ExportRestControllerIntegrationTest
+    extends RestControllerIntegrationTest
+{
+
+    /**
+     * Default constructor
+     */
+    public ExportRestControllerIntegrationTest() {}
+
+
+    /**
+     * GET {@code /v${api.version}/${api.accounts}/export} should return
+     * every account, one JSON object per line, in order of ID.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void exportAccounts_shouldStreamEveryAccount() throws Exception {
+        Account account = mockAccount(charIdGen.get(), Money.from(77));
+        int total = accountService.getAccountsPage(0, 100_000, "id", false)
+            .size();
+        var request = Request.get(accountsURL().pathSegment("export"));
+
+        MvcResult result = mockStreamingCall(request);
+        assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+
+        var mapper = new ObjectMapper();
+        List<AccountDTO> exported = new ArrayList<>();
+        for (String line: result.getResponse().getContentAsString().split("\n")) {
+            exported.add(mapper.readValue(line, AccountDTO.class));
+        }
+        assertEquals(total, exported.size());
+        assertTrue(exported.contains(accountMapper.toDTO(account)));
+        for (int i = 1; i < exported.size(); i++) {
+            assertTrue(exported.get(i - 1).id() < exported.get(i).id());
+        }
+    }
+}
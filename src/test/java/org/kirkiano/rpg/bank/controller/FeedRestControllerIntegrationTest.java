@@ -0,0 +1,124 @@
+package org.kirkiano.rpg.bank.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.controller.error.Error;
+import org.kirkiano.rpg.bank.dto.BalanceEventDTO;
+import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.AccountTxn;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Integration tests for {@link FeedController}
+ */
+public class FeedRestControllerIntegrationTest
+    extends RestControllerIntegrationTest
+{
+
+    /**
+     * Default constructor
+     */
+    public FeedRestControllerIntegrationTest() {}
+
+
+    /**
+     * GET {@code /v${api.version}/${api.accounts}/feed?charId=...} should
+     * stream a {@code balance} event once the account's balance changes.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void followAccount_shouldStreamBalanceChanges() throws Exception {
+        Account account = mockAccount(charIdGen.get(), Money.from(20));
+        var url = accountsURL()
+            .pathSegment("feed")
+            .queryParam(Constants.CHAR_ID_KEY, account.getCharId().value());
+        var subscribe = Request.get(url).accept(MediaType.TEXT_EVENT_STREAM);
+
+        MvcResult result = mockBodilessCall(subscribe);
+        assertTrue(result.getRequest().isAsyncStarted());
+        accountService.changeBalance(account.getId(), Money.from(-7));
+
+        String data = awaitData(result.getResponse(), "balance");
+        assertEquals(new BalanceEventDTO(account.getId(),
+                                         account.getCharId(),
+                                         AccountTxn.Kind.CHANGE,
+                                         Money.from(-7),
+                                         Money.from(13)),
+                     new ObjectMapper().readValue(data, BalanceEventDTO.class));
+    }
+
+
+    /**
+     * GET {@code /v${api.version}/${api.accounts}/feed} without any
+     * account should return {@link HttpStatus#BAD_REQUEST} with
+     * {@link Error.InvalidSubscription}.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void followNoAccounts_shouldError() throws Exception {
+        var request = Request.get(accountsURL().pathSegment("feed"));
+        var error = new Error.InvalidSubscription("follows no accounts");
+
+        mockRESTcall(request)
+            .andExpect(HttpStatus.BAD_REQUEST)
+            .andExpect(error);
+    }
+
+
+    /**
+     * GET {@code /v${api.version}/${api.accounts}/feed?charId=...} with a
+     * character ID of no account should return
+     * {@link HttpStatus#NOT_FOUND} with {@link Error.CharIdNotFound}.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void followAbsentCharId_shouldError() throws Exception {
+        var absent = new CharId(-1L);
+        var url = accountsURL()
+            .pathSegment("feed")
+            .queryParam(Constants.CHAR_ID_KEY, absent.value());
+        var error = new Error.CharIdNotFound(absent);
+
+        mockRESTcall(Request.get(url))
+            .andExpect(HttpStatus.NOT_FOUND)
+            .andExpect(error);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Wait for the stream to carry an event of the given name, and
+     * return its data
+     */
+    private static String awaitData(MockHttpServletResponse response,
+                                    String event)
+        throws Exception
+    {
+        String marker = "event:" + event + "\ndata:";
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            String content = response.getContentAsString();
+            int start = content.indexOf(marker);
+            if (start >= 0) {
+                start += marker.length();
+                int end = content.indexOf('\n', start);
+                if (end >= 0) return content.substring(start, end);
+            }
+            Thread.sleep(20);
+        }
+        return fail("No " + event + " event");
+    }
+}
@@ -1,15 +1,23 @@
 package org.kirkiano.rpg.bank.controller;
 
+import java.util.List;
+
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import static org.junit.jupiter.api.Assertions.*;
 
 import org.kirkiano.rpg.bank.controller.error.Error;
 import org.kirkiano.rpg.bank.controller.error.ErrorCode;
 import org.kirkiano.rpg.bank.config.Constants;
 import org.kirkiano.rpg.bank.model.CharId;
 import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.LookupAccountsDTO;
+import org.kirkiano.rpg.bank.dto.LookupResultDTO;
 import org.kirkiano.rpg.bank.model.Account;
 import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.service.AccountCount;
 
 
 /**
@@ -93,6 +101,26 @@ public class GetAccountRestControllerIntegrationTest
     }
 
 
+    /**
+     * GET {@code /v${api.version}/${api.accounts}?cursor={garbledCursor}}
+     * should return {@link HttpStatus#BAD_REQUEST} with
+     * {@link Error.InvalidCursor}.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void getAccountsWithGarbledCursor_shouldError() throws Exception {
+        String garbled = "garbled";
+        var url = accountsURL().queryParam(Constants.CURSOR_KEY, garbled);
+        var request = Request.get(url);
+        var error = new Error.InvalidCursor(garbled);
+
+        mockRESTcall(request)
+            .andExpect(HttpStatus.BAD_REQUEST)
+            .andExpect(error);
+    }
+
+
     /**
      * GET {@code /v${api.version}/${api.accounts}/{unparseableAccountId}}
      * should return {@link HttpStatus#BAD_REQUEST} with
@@ -181,6 +209,25 @@ public class GetAccountRestControllerIntegrationTest
     }
 
 
+    /**
+     * GET {@code /v${api.version}/${api.accounts}/count} should return
+     * the refreshed estimate, which on this database is exact.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void getAccountCount_shouldSucceed() throws Exception {
+        mockAccount(charIdGen.get(), Money.ZERO);
+        this.accountCount.refresh();
+        long count = this.accountCount.estimate().count();
+        var request = Request.get(accountsURL().pathSegment("count"));
+
+        var ignored = mockRESTcall(request)
+            .andExpect(HttpStatus.OK)
+            .andExpect("count", count);
+    }
+
+
     /**
      * GET {@code /v${api.version}/${api.accounts}} should always succeed.
      *
@@ -204,4 +251,74 @@ public class GetAccountRestControllerIntegrationTest
             .andExpectListIncluding(accountDTO);
     }
 
-}
\ No newline at end of file
+    /**
+     * GET {@code /v${api.version}/${api.accounts}/{id}} should tag the
+     * account with an ETag that varies by {@code Accept}, answer a
+     * request naming that tag with {@link HttpStatus#NOT_MODIFIED} and
+     * no body, and change the tag once the balance changes.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void getAccountWithCurrentETag_shouldNotBeModified()
+        throws Exception
+    {
+        long id = mockAccount(charIdGen.get(), Money.from(10)).getId();
+        var url = accountsURL().pathSegment(Long.toString(id));
+
+        String eTag = mockRESTcall(Request.get(url))
+            .andExpect(HttpStatus.OK)
+            .getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        var conditional = Request.get(url).header(HttpHeaders.IF_NONE_MATCH,
+                                                  eTag);
+        var notModified = mockBodilessCall(conditional).getResponse();
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified.getStatus());
+        assertEquals("", notModified.getContentAsString());
+        assertEquals(eTag, notModified.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT,
+                     notModified.getHeader(HttpHeaders.VARY));
+
+        accountService.changeBalance(id, Money.from(5));
+        conditional = Request.get(url).header(HttpHeaders.IF_NONE_MATCH, eTag);
+        var modified = mockRESTcall(conditional)
+            .andExpect(HttpStatus.OK)
+            .andExpect(Constants.BALANCE_KEY, 15);
+        assertNotEquals(eTag, modified.getHeader(HttpHeaders.ETAG));
+    }
+
+
+    /**
+     * POST {@code /v${api.version}/${api.accounts}/lookup} should return
+     * the accounts found, by either kind of key, and list the keys of
+     * no account.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void lookupAccounts_shouldReturnFoundAndMissing() throws Exception {
+        AccountDTO byId = accountMapper.toDTO(
+            mockAccount(charIdGen.get(), Money.from(10)));
+        AccountDTO byCharId = accountMapper.toDTO(
+            mockAccount(charIdGen.get(), Money.from(20)));
+        var absentCharId = new CharId(-1L);
+        var dto = new LookupAccountsDTO(List.of(byId.id(), -1L),
+                                        List.of(byCharId.charId(),
+                                                absentCharId));
+        var request = Request.post(accountsURL().pathSegment("lookup"), dto);
+        var expected = new LookupResultDTO(List.of(byId, byCharId),
+                                           List.of(-1L),
+                                           List.of(absentCharId));
+
+        var ignored = mockRESTcall(request)
+            .andExpect(HttpStatus.OK)
+            .andExpect(expected);
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Autowired
+    private AccountCount accountCount;
+}
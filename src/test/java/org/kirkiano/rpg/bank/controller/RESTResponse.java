@@ -182,6 +182,15 @@ public class RESTResponse {
         return this.response.andReturn().getResponse().getContentAsString();
     }
 
+    /**
+     * Value of a header of this response
+     * @param name header name
+     * @return the header's value, or null if absent
+     */
+    public String getHeader(String name) {
+        return this.response.andReturn().getResponse().getHeader(name);
+    }
+
     ///////////////////////////////////////////////////////
     // private
 
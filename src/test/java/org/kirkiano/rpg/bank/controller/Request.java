@@ -59,6 +59,41 @@ public class Request {
                            url, body, uriVariables);
     }
 
+    /**
+     * Adds a header to this request
+     *
+     * @param name header name
+     * @param values header values
+     * @return this request
+     */
+    public Request header(String name, Object... values) {
+        this.request = this.request.header(name, values);
+        return this;
+    }
+
+    /**
+     * Replaces the body of this request with one in another format
+     *
+     * @param body encoded body
+     * @param contentType format of the body
+     * @return this request
+     */
+    public Request content(byte[] body, MediaType contentType) {
+        this.request = this.request.content(body).contentType(contentType);
+        return this;
+    }
+
+    /**
+     * Sets the format in which the response is asked for
+     *
+     * @param accept acceptable media type
+     * @return this request
+     */
+    public Request accept(MediaType accept) {
+        this.request = this.request.accept(accept);
+        return this;
+    }
+
     ///////////////////////////////////////////////////////
 
     @FunctionalInterface
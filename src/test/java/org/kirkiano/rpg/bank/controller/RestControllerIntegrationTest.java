@@ -6,9 +6,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.web.util.UriComponentsBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 import org.kirkiano.rpg.bank.dto.AccountMapper;
 
@@ -31,6 +34,33 @@ public abstract class RestControllerIntegrationTest extends BaseTest {
         return new RESTResponse(mvc.perform(request.getInner()));
     }
 
+    /**
+     * Perform a request whose response may have no body, and so no
+     * content type, such as a conditional one
+     *
+     * @param request the request
+     * @return the result
+     * @throws Exception on error
+     */
+    protected MvcResult mockBodilessCall(Request request) throws Exception {
+        return mvc.perform(request.getInner()).andReturn();
+    }
+
+    /**
+     * Perform a request whose response is written asynchronously, and
+     * wait for all of it
+     *
+     * @param request the request
+     * @return the completed result
+     * @throws Exception on error
+     */
+    protected MvcResult mockStreamingCall(Request request) throws Exception {
+        MvcResult started = mvc.perform(request.getInner())
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return mvc.perform(asyncDispatch(started)).andReturn();
+    }
+
     ///////////////////////////////////////////////////////
     // examine JSON
 
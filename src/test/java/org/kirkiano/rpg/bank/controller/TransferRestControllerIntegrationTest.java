@@ -0,0 +1,132 @@
+package org.kirkiano.rpg.bank.controller;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.util.UriComponentsBuilder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.kirkiano.rpg.bank.controller.error.Error;
+import org.kirkiano.rpg.bank.dto.BalanceDTO;
+import org.kirkiano.rpg.bank.dto.TransferDTO;
+import org.kirkiano.rpg.bank.dto.TransferResultDTO;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Integration tests for {@link TransferController}
+ */
+public class TransferRestControllerIntegrationTest
+    extends RestControllerIntegrationTest
+{
+
+    /**
+     * Default constructor
+     */
+    public TransferRestControllerIntegrationTest() {}
+
+
+    /**
+     * POST {@code /v${api.version}/${api.accounts}/transfers} between
+     * valid accounts should return {@link HttpStatus#OK} and a
+     * {@link TransferResultDTO} showing both new balances.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void transfer_shouldSucceed() throws Exception {
+        long aid = mockAccount(charIdGen.get(), Money.from(10)).getId();
+        long bid = mockAccount(charIdGen.get(), Money.from(3)).getId();
+
+        // debit the account with the higher ID, to exercise lock ordering
+        var dto = new TransferDTO(bid, aid, Money.from(3));
+        var request = Request.post(transfersURL(), dto);
+        var result = new TransferResultDTO(new BalanceDTO(Money.ZERO),
+                                           new BalanceDTO(Money.from(13)));
+
+        var ignored = mockRESTcall(request)
+            .andExpect(HttpStatus.OK)
+            .andExpect(result);
+
+        assertEquals(Money.from(13),
+                     accountService.getAccountById(aid).balance());
+        assertEquals(Money.ZERO,
+                     accountService.getAccountById(bid).balance());
+    }
+
+
+    /**
+     * A transfer that would overdraw the debited account should return
+     * {@link HttpStatus#UNPROCESSABLE_ENTITY} with
+     * {@link Error.InsufficientFunds}, and change neither account.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void overdrawingTransfer_shouldError() throws Exception {
+        var balance0 = Money.from(5);
+        long aid = mockAccount(charIdGen.get(), balance0).getId();
+        long bid = mockAccount(charIdGen.get(), balance0).getId();
+
+        // credit first (lower ID), so the debit's failure must roll it back
+        var dto = new TransferDTO(bid, aid, Money.from(6));
+        var request = Request.post(transfersURL(), dto);
+
+        mockRESTcall(request)
+            .andExpect(HttpStatus.UNPROCESSABLE_ENTITY)
+            .andExpect(new Error.InsufficientFunds());
+
+        assertEquals(balance0, accountService.getAccountById(aid).balance());
+        assertEquals(balance0, accountService.getAccountById(bid).balance());
+    }
+
+
+    /**
+     * A transfer to a nonexistent account should return
+     * {@link HttpStatus#NOT_FOUND} with {@link Error.NoSuchAccountId},
+     * and leave the debited account unchanged.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void transferToUnknownAccount_shouldError() throws Exception {
+        var balance0 = Money.from(5);
+        long aid = mockAccount(charIdGen.get(), balance0).getId();
+        long invalidId = Long.MAX_VALUE;
+
+        var dto = new TransferDTO(aid, invalidId, Money.from(1));
+        var request = Request.post(transfersURL(), dto);
+
+        mockRESTcall(request)
+            .andExpect(HttpStatus.NOT_FOUND)
+            .andExpect(new Error.NoSuchAccountId(invalidId));
+
+        assertEquals(balance0, accountService.getAccountById(aid).balance());
+    }
+
+
+    /**
+     * A transfer from an account to itself should return
+     * {@link HttpStatus#UNPROCESSABLE_ENTITY} with {@link Error.SelfTransfer}.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void selfTransfer_shouldError() throws Exception {
+        long aid = mockAccount(charIdGen.get(), Money.from(5)).getId();
+
+        var dto = new TransferDTO(aid, aid, Money.from(1));
+        var request = Request.post(transfersURL(), dto);
+
+        mockRESTcall(request)
+            .andExpect(HttpStatus.UNPROCESSABLE_ENTITY)
+            .andExpect(new Error.SelfTransfer(aid));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private UriComponentsBuilder transfersURL() {
+        return accountsURL().pathSegment("transfers");
+    }
+
+}
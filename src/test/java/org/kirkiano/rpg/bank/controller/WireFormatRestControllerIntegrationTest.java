@@ -0,0 +1,118 @@
+package org.kirkiano.rpg.bank.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.config.Constants;
+import org.kirkiano.rpg.bank.controller.error.Error;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.CreateAccountDTO;
+import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Integration tests of the binary formats, CBOR and Smile, negotiated
+ * alongside JSON
+ */
+public class WireFormatRestControllerIntegrationTest
+    extends RestControllerIntegrationTest
+{
+
+    /**
+     * Default constructor
+     */
+    public WireFormatRestControllerIntegrationTest() {}
+
+
+    /**
+     * GET {@code /v${api.version}/${api.accounts}/{id}} with
+     * {@code Accept: application/cbor} should return the account in CBOR.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void getAccount_shouldReturnCbor() throws Exception {
+        Account account = mockAccount(charIdGen.get(), Money.from(31));
+        var url = accountsURL().pathSegment(Long.toString(account.getId()));
+        var request = Request.get(url).accept(MediaType.APPLICATION_CBOR);
+
+        var response = mockBodilessCall(request).getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(accountMapper.toDTO(account),
+                     decode(CBOR, response, AccountDTO.class));
+    }
+
+
+    /**
+     * POST {@code /v${api.version}/${api.accounts}} with a Smile body,
+     * asking for Smile back, should create the account.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void createAccount_shouldAcceptSmile() throws Exception {
+        CharId charId = charIdGen.get();
+        var dto = new CreateAccountDTO(charId, Money.from(12));
+        var request = Request.post(accountsURL(), "")
+            .content(SMILE.writeValueAsBytes(dto), SMILE_TYPE)
+            .accept(SMILE_TYPE);
+
+        var response = mockBodilessCall(request).getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        AccountDTO created = decode(SMILE, response, AccountDTO.class);
+        assertEquals(charId, created.charId());
+        assertEquals(Money.from(12), created.balance());
+    }
+
+
+    /**
+     * Errors should be returned in the format asked for.
+     *
+     * @throws Exception upon error
+     */
+    @Test
+    public void error_shouldReturnCbor() throws Exception {
+        var url = accountsURL().pathSegment("-1");
+        var request = Request.get(url).accept(MediaType.APPLICATION_CBOR);
+
+        var response = mockBodilessCall(request).getResponse();
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        JsonNode errors = decode(CBOR, response, JsonNode.class).get("errors");
+        var expected = new Error.NoSuchAccountId(-1L);
+        assertEquals(CBOR.readTree(CBOR.writeValueAsBytes(expected)),
+                     errors.get(0));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final ObjectMapper CBOR = new CBORMapper();
+
+    private static final ObjectMapper SMILE = new SmileMapper();
+
+    private static final MediaType SMILE_TYPE =
+        MediaType.parseMediaType(Constants.APPLICATION_SMILE_VALUE);
+
+    /**
+     * Check the response's format, and decode its body
+     */
+    private static <T> T decode(ObjectMapper mapper,
+                                MockHttpServletResponse response,
+                                Class<T> type)
+        throws Exception
+    {
+        String format = mapper == CBOR ? MediaType.APPLICATION_CBOR_VALUE
+                                       : Constants.APPLICATION_SMILE_VALUE;
+        assertEquals(format, response.getContentType());
+        return mapper.readValue(response.getContentAsByteArray(), type);
+    }
+}
@@ -0,0 +1,165 @@
+package org.kirkiano.rpg.bank.dto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.config.JsonProperties;
+import org.kirkiano.rpg.bank.config.ObjectMapperConfig;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link AccountJsonModule} against the reflective databinding
+ * that it replaces
+ */
+public class AccountJsonModuleTest {
+
+    /**
+     * Default constructor
+     */
+    public AccountJsonModuleTest() {}
+
+
+    /**
+     * Accounts, alone and in lists, and the DTOs that hold money or
+     * character IDs, should be written byte for byte as the reflective
+     * path writes them, in every format and with or without indentation.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void output_shouldMatchReflectiveOutput() throws Exception {
+        List<AccountDTO> accounts = new ArrayList<>(Arrays.asList(
+            new AccountDTO(1L, new CharId(2L), Money.from(3)),
+            new AccountDTO(0L, new CharId(-7L), Money.from(-128)),
+            new AccountDTO(Long.MAX_VALUE, new CharId(Long.MIN_VALUE),
+                           Money.from(Long.MAX_VALUE)),
+            new AccountDTO(42L, new CharId(1_000_000L), Money.from(1025))));
+        accounts.add(new AccountDTO(5L, null, null));
+        List<Object> samples = List.of(
+            accounts.get(0),
+            accounts.get(2),
+            accounts.get(4),
+            new BalanceDTO(Money.from(-1)),
+            new CreateAccountDTO(new CharId(9L), Money.ZERO),
+            new RankDTO(new CharId(8L), 3L, 10L),
+            new LookupResultDTO(List.of(accounts.get(1)),
+                                List.of(12L),
+                                List.of(new CharId(11L))));
+
+        for (var formats: FORMATS) {
+            ObjectMapper reflective = formats.reflective;
+            ObjectMapper streaming = formats.streaming;
+            assertEquals(AccountJsonModule.class,
+                         streaming.getSerializerProviderInstance()
+                             .findValueSerializer(AccountDTO.class)
+                             .getClass()
+                             .getEnclosingClass());
+            for (Object sample: samples) {
+                assertArrayEquals(reflective.writeValueAsBytes(sample),
+                                  streaming.writeValueAsBytes(sample),
+                                  formats.name + ": " + sample);
+            }
+            assertArrayEquals(reflective.writeValueAsBytes(accounts),
+                              streaming.writeValueAsBytes(accounts),
+                              formats.name + ": list");
+            assertArrayEquals(
+                reflective.writerFor(ACCOUNT_LIST).writeValueAsBytes(accounts),
+                streaming.writerFor(ACCOUNT_LIST).writeValueAsBytes(accounts),
+                formats.name + ": typed list");
+        }
+    }
+
+
+    /**
+     * What either path writes, the streaming path should read back as the
+     * reflective path does.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void input_shouldMatchReflectiveInput() throws Exception {
+        var account = new AccountDTO(Long.MIN_VALUE, new CharId(4L),
+                                     Money.from(-5_000));
+        var reflective = mapper(false, false);
+        var streaming = mapper(true, false);
+        byte[] json = reflective.writeValueAsBytes(List.of(account));
+
+        assertEquals(List.of(account),
+                     streaming.readValue(json, ACCOUNT_LIST));
+        String lenient = "{\"balance\":\"12\",\"id\":3.0,\"charId\":null}";
+        assertEquals(reflective.readValue(lenient, AccountDTO.class),
+                     streaming.readValue(lenient, AccountDTO.class));
+        String change = "{\"delta\":-3}";
+        assertEquals(reflective.readValue(change, ChangeBalanceDTO.class),
+                     streaming.readValue(change, ChangeBalanceDTO.class));
+    }
+
+
+    /**
+     * Bad input should be reported with the exceptions the reflective
+     * path throws, which the error handler turns into client errors.
+     */
+    @Test
+    public void badInput_shouldFailAsReflectiveInputFails() {
+        var streaming = mapper(true, false);
+        var ife = assertThrows(InvalidFormatException.class, () ->
+            streaming.readValue("{\"charId\":\"foo\",\"balance\":1}",
+                                CreateAccountDTO.class));
+        var expected = assertThrows(InvalidFormatException.class, () ->
+            mapper(false, false).readValue(
+                "{\"charId\":\"foo\",\"balance\":1}",
+                CreateAccountDTO.class));
+        assertEquals(expected.getTargetType(), ife.getTargetType());
+        assertEquals("charId", ife.getPath().get(0).getFieldName());
+        assertThrows(UnrecognizedPropertyException.class, () ->
+            streaming.readValue("{\"id\":1,\"owner\":2}", AccountDTO.class));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final TypeReference<List<AccountDTO>> ACCOUNT_LIST =
+        new TypeReference<>() {};
+
+    /**
+     * The same format, configured with and without the module
+     */
+    private record Formats(String name,
+                           ObjectMapper reflective,
+                           ObjectMapper streaming) {
+        Formats(String name, Supplier<ObjectMapper> mapper) {
+            this(name,
+                 ObjectMapperConfig.configure(mapper.get(), props(false)),
+                 ObjectMapperConfig.configure(mapper.get(), props(true)));
+        }
+    }
+
+    private static final List<Formats> FORMATS = List.of(
+        new Formats("compact json", mapper(false, false), mapper(true, false)),
+        new Formats("indented json", mapper(false, true), mapper(true, true)),
+        new Formats("cbor", CBORMapper::new),
+        new Formats("smile", SmileMapper::new));
+
+    private static ObjectMapper mapper(boolean streaming, boolean indent) {
+        return ObjectMapperConfig.create(props(streaming))
+            .configure(SerializationFeature.INDENT_OUTPUT, indent);
+    }
+
+    private static JsonProperties props(boolean streaming) {
+        return new JsonProperties(false, true, streaming);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Tests of RPG bank's data transfer objects
+ * <p>
+ * Copyright 2023 kirkiano. All rights reserved.
+ *
+ * @author kirkiano
+ * @version 1.0
+ */
+
+
+@NonNullFields @NonNullApi
+package org.kirkiano.rpg.bank.dto;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -0,0 +1,72 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.sql.Statement;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import org.junit.Test;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.model.BalanceChange;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link AccountRepositoryCustomImpl} against the update counts
+ * that JDBC drivers may report for batches
+ */
+public class AccountRepositoryCustomImplTest {
+
+    /**
+     * Default constructor
+     */
+    public AccountRepositoryCustomImplTest() {}
+
+
+    /**
+     * Changes should be reported applied exactly when they updated a row.
+     */
+    @Test
+    public void addToBalances_shouldReportUpdatedRows() {
+        var repo = repo(1, 0);
+        assertArrayEquals(new boolean[] {true, false},
+                          repo.addToBalances(CHANGES));
+    }
+
+
+    /**
+     * A batch whose update counts are unknown should fail, rather than
+     * report committed changes as refused.
+     */
+    @Test
+    public void addToBalances_shouldRejectUnknownCounts() {
+        var repo = repo(1, Statement.SUCCESS_NO_INFO);
+        assertThrows(IncorrectUpdateSemanticsDataAccessException.class,
+                     () -> repo.addToBalances(CHANGES));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final List<BalanceChange> CHANGES = List.of(
+        new BalanceChange(1L, Money.from(5)),
+        new BalanceChange(2L, Money.from(-5)));
+
+    /**
+     * Repository whose batches report the given counts
+     */
+    private static AccountRepositoryCustomImpl repo(int... counts) {
+        var jdbc = new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql,
+                                     BatchPreparedStatementSetter pss)
+            {
+                return counts;
+            }
+        };
+        return new AccountRepositoryCustomImpl(jdbc, (EntityManager) null);
+    }
+}
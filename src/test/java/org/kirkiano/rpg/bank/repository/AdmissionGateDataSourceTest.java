@@ -0,0 +1,61 @@
+package org.kirkiano.rpg.bank.repository;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+
+
+/**
+ * Tests of {@link AdmissionGateDataSource}
+ */
+public class AdmissionGateDataSourceTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public AdmissionGateDataSourceTest() {}
+
+
+    /**
+     * Once every permit is held, checkout should time out, and closing
+     * a connection should readmit exactly one thread, even if it is
+     * closed twice.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void fullGate_shouldTimeOutUntilClosed() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var gate = new AdmissionGateDataSource(this.dataSource,
+                                               1,
+                                               Duration.ofMillis(50),
+                                               registry);
+
+        Connection first = gate.getConnection();
+        assertThrows(SQLTransientConnectionException.class,
+                     gate::getConnection);
+        assertEquals(1, registry.counter("bank.jdbc.gate.rejected").count());
+
+        first.close();
+        first.close();
+        try (Connection second = gate.getConnection()) {
+            assertTrue(second.isValid(1));
+            assertThrows(SQLTransientConnectionException.class,
+                         gate::getConnection);
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Autowired
+    private DataSource dataSource;
+}
@@ -0,0 +1,97 @@
+package org.kirkiano.rpg.bank.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link ReadRoutingDataSource}, with a second in-memory
+ * database standing in for the replica. Nothing replicates to it, so
+ * the account read shows which database served it.
+ */
+@TestPropertySource(properties = {
+    "bank.replica.enabled=true",
+    "bank.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+    "bank.replica.lag-query=select seconds from replica_lag",
+    "bank.replica.max-lag=5s",
+    "bank.replica.lag-check-interval=PT1H",
+    "bank.account-cache.enabled=false"
+})
+public class ReadRoutingDataSourceTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public ReadRoutingDataSourceTest() {}
+
+
+    /**
+     * Give the replica the columns that reads of accounts select
+     */
+    @Before
+    public void createReplicaSchema() {
+        this.replica = new JdbcTemplate(this.monitor.getReplica());
+        this.replica.execute(
+            "create table if not exists account (" +
+            "id bigint primary key, cid bigint, balance bigint, " +
+            "version int, shards int)");
+        this.replica.execute(
+            "create table if not exists replica_lag (seconds double)");
+        this.replica.update("delete from replica_lag");
+        this.replica.update("insert into replica_lag values (0)");
+        this.monitor.checkLag();
+    }
+
+
+    /**
+     * A read-only service method should read from the replica while it
+     * is caught up, and from the primary if asked for a fresh read or
+     * once the replica lags too far.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void reads_shouldPreferCaughtUpReplica() throws Exception {
+        long id = mockAccount(charIdGen.get(), Money.from(5)).getId();
+        this.replica.update("insert into account values (?, ?, 99, 0, 1)",
+                            id, -id);
+
+        assertEquals(Money.from(99), accountService.getAccountById(id).balance());
+        assertEquals(Money.from(5),
+                     accountService.getAccountById(id, true).balance());
+
+        this.replica.update("update replica_lag set seconds = 60");
+        this.monitor.checkLag();
+        assertFalse(this.monitor.isCaughtUp());
+        assertEquals(Money.from(5), accountService.getAccountById(id).balance());
+    }
+
+
+    /**
+     * Writes should go to the primary, however caught up the replica.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void writes_shouldGoToPrimary() throws Exception {
+        long id = mockAccount(charIdGen.get(), Money.from(5)).getId();
+        accountService.changeBalance(id, Money.from(1));
+        assertEquals(Money.from(6),
+                     accountService.getAccountById(id, true).balance());
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Autowired
+    private ReplicaMonitor monitor;
+
+    private JdbcTemplate replica;
+}
@@ -0,0 +1,107 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link AccountCache}, through {@link AccountService}
+ */
+public class AccountCacheTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public AccountCacheTest() {}
+
+
+    /**
+     * A repeated read should hit the cache, and a balance change should
+     * evict the account, so that the next read sees the new balance.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void balanceChange_shouldEvictAccount() throws Exception {
+        long id = mockAccount(charIdGen.get(), Money.from(5)).getId();
+        accountService.getAccountById(id);
+        double hits0 = this.count("bank.cache.gets", "result", "hit");
+
+        accountService.getAccountById(id);
+        assertEquals(1, this.count("bank.cache.gets", "result", "hit") - hits0);
+
+        accountService.changeBalance(id, Money.from(3));
+        assertEquals(Money.from(8),
+                     accountService.getAccountById(id).balance());
+    }
+
+
+    /**
+     * A fresh read should see a write that bypassed the cache, where a
+     * cached read does not, and should refresh the cache.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void freshRead_shouldBypassCache() throws Exception {
+        Account account = mockAccount(charIdGen.get(), Money.from(5));
+        long id = account.getId();
+        accountService.getAccountByCharId(account.getCharId());
+        accountService.getAccountByCharId(account.getCharId());
+
+        this.jdbc.update("update account set balance = 7 where id = ?", id);
+        assertEquals(Money.from(5),
+                     accountService.getAccountByCharId(account.getCharId())
+                         .balance());
+        assertEquals(Money.from(7),
+                     accountService.getAccountById(id, true).balance());
+        assertEquals(Money.from(7),
+                     accountService.getAccountById(id).balance());
+    }
+
+    /**
+     * A lookup of many accounts should serve those cached from the
+     * cache, and only the others from the database.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void lookup_shouldLoadOnlyMisses() throws Exception {
+        long cached = mockAccount(charIdGen.get(), Money.from(5)).getId();
+        long uncached = mockAccount(charIdGen.get(), Money.from(5)).getId();
+        accountService.getAccountById(cached);
+
+        this.jdbc.update("update account set balance = 7 where id in (?, ?)",
+                         cached, uncached);
+        var lookup = accountService.getAccounts(List.of(cached, uncached),
+                                                List.of(),
+                                                false);
+        assertEquals(List.of(Money.from(5), Money.from(7)),
+                     lookup.accounts().stream().map(AccountDTO::balance)
+                         .toList());
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private double count(String name, String tag, String value) {
+        return this.registry.counter(name, "cache", "account", tag, value)
+            .count();
+    }
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MeterRegistry registry;
+}
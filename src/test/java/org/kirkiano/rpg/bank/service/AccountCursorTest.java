@@ -0,0 +1,79 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.exn.InvalidCursorException;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link AccountCursor}, and of keyset listings through
+ * {@link AccountService#getAccountsAfter}
+ */
+public class AccountCursorTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public AccountCursorTest() {}
+
+
+    /**
+     * Walking a keyset listing page by page should visit every account
+     * once, in order, even across ties in the sort key.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void keysetWalk_shouldVisitEveryAccountInOrder() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            mockAccount(charIdGen.get(), Money.from(i % 3));
+        }
+        int total = accountService.getAccountsPage(0, 100_000, "id", false)
+            .size();
+
+        List<AccountDTO> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccountService.Keyset page =
+                accountService.getAccountsAfter(cursor, 3, "balance", true);
+            assertTrue(page.accounts().size() <= 3);
+            seen.addAll(page.accounts());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(total, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            AccountDTO a = seen.get(i - 1), b = seen.get(i);
+            long ka = a.balance().longValue();
+            long kb = b.balance().longValue();
+            assertTrue(ka > kb || (ka == kb && a.id() > b.id()));
+        }
+    }
+
+
+    /**
+     * A cursor should survive encoding, and should be rejected if it
+     * is garbled or used with another sort order.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void cursor_shouldRoundTripAndBeChecked() throws Exception {
+        var cursor = new AccountCursor(AccountCursor.SortKey.CHAR_ID,
+                                       false, 42, 7);
+        assertEquals(cursor, AccountCursor.decode(cursor.encode()));
+
+        assertThrows(InvalidCursorException.class,
+                     () -> AccountCursor.decode("not a cursor"));
+        assertThrows(InvalidCursorException.class,
+                     () -> accountService.getAccountsAfter(cursor.encode(),
+                                                           3, "id", false));
+    }
+}
@@ -0,0 +1,88 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
+import org.kirkiano.rpg.bank.model.AccountTxn;
+import org.kirkiano.rpg.bank.model.BalanceChange;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link AccountJournal}, through {@link AccountService}
+ */
+public class AccountJournalTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public AccountJournalTest() {}
+
+
+    /**
+     * Opening an account and changing its balance should journal each
+     * transaction, in order, with the balance it left; a rejected
+     * change should journal nothing.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void writes_shouldBeJournaled() throws Exception {
+        Instant from = Instant.now().minus(1, ChronoUnit.MINUTES);
+        long aid = mockAccount(charIdGen.get(), Money.from(10)).getId();
+        long bid = mockAccount(charIdGen.get(), Money.ZERO).getId();
+
+        accountService.changeBalance(aid, Money.from(5));
+        assertThrows(NegativeBalanceException.class,
+                     () -> accountService.changeBalance(aid, Money.from(-99)));
+        accountService.transfer(aid, bid, Money.from(3));
+        accountService.changeBalances(
+            List.of(new BalanceChange(aid, Money.from(-2))), true);
+
+        Instant to = Instant.now().plus(1, ChronoUnit.MINUTES);
+        List<AccountTxn> entries = journal.find(aid, from, to);
+        assertEquals(List.of(AccountTxn.Kind.OPEN,
+                             AccountTxn.Kind.CHANGE,
+                             AccountTxn.Kind.TRANSFER,
+                             AccountTxn.Kind.CHANGE),
+                     entries.stream().map(AccountTxn::getKind).toList());
+        assertEquals(List.of(10L, 15L, 12L, 10L),
+                     entries.stream()
+                         .map(e -> e.getBalance().longValue())
+                         .toList());
+        assertEquals(2, journal.find(bid, from, to).size());
+    }
+
+
+    /**
+     * A rolled-back batch should journal nothing.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void rolledBackBatch_shouldNotBeJournaled() throws Exception {
+        Instant from = Instant.now().minus(1, ChronoUnit.MINUTES);
+        long aid = mockAccount(charIdGen.get(), Money.from(10)).getId();
+
+        accountService.changeBalances(
+            List.of(new BalanceChange(aid, Money.from(1)),
+                    new BalanceChange(aid, Money.from(-99))),
+            true);
+
+        Instant to = Instant.now().plus(1, ChronoUnit.MINUTES);
+        assertEquals(1, journal.find(aid, from, to).size());
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Autowired
+    private AccountJournal journal;
+}
@@ -0,0 +1,109 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
+import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+
+
+/**
+ * Tests of {@link AccountShards}, through {@link AccountService} and
+ * {@link ShardsEndpoint}
+ */
+public class AccountShardsTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public AccountShardsTest() {}
+
+
+    /**
+     * Concurrent deposits to a sharded account should all be counted
+     * in its balance, and a withdrawal that no one shard can cover
+     * should succeed by collecting the shards.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void shardedAccount_shouldKeepItsTotal() throws Exception {
+        long id = mockAccount(charIdGen.get(), Money.from(10)).getId();
+        this.endpoint.reshard(id, 4);
+        assertEquals(4, this.endpoint.shards().get(id));
+
+        int numDeposits = 100;
+        try (var pool = Executors.newFixedThreadPool(8)) {
+            List<Callable<Money>> tasks = new ArrayList<>();
+            for (int i = 0; i < numDeposits; i++) {
+                tasks.add(() -> accountService.changeBalance(id,
+                                                             Money.from(1)));
+            }
+            for (Future<Money> f: pool.invokeAll(tasks)) f.get();
+        }
+        long total = 10 + numDeposits;
+        assertEquals(Money.from(total),
+                     accountService.getAccountById(id).balance());
+
+        assertEquals(Money.ZERO,
+                     accountService.changeBalance(id, Money.from(-total)));
+        assertThrows(NegativeBalanceException.class,
+                     () -> accountService.changeBalance(id, Money.from(-1)));
+
+        this.endpoint.reshard(id, 1);
+        assertNull(this.endpoint.shards().get(id));
+        assertEquals(Money.ZERO,
+                     accountService.getAccountById(id).balance());
+    }
+
+
+
+    /**
+     * An account sharded unbeknownst to the registry, as by another
+     * instance, should still be read, and changed, as a whole.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void staleRegistry_shouldNotHideShards() throws Exception {
+        Account account = mockAccount(charIdGen.get(), Money.from(10));
+        long id = account.getId();
+        this.endpoint.reshard(id, 4);
+        assertTrue(this.accountRepo.addToShard(id, 2, Money.from(5)));
+        this.shards.note(id, 1);
+
+        var lookup = accountService.getAccounts(
+            List.of(), List.of(account.getCharId()), true);
+        assertEquals(Money.from(15), lookup.accounts().get(0).balance());
+        assertEquals(Money.from(18),
+                     accountService.changeBalance(id, Money.from(3)));
+
+        this.shards.note(id, 1);
+        assertThrows(NegativeBalanceException.class,
+                     () -> accountService.changeBalance(id, Money.from(-19)));
+        assertEquals(Money.ZERO,
+                     accountService.changeBalance(id, Money.from(-18)));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Autowired
+    private ShardsEndpoint endpoint;
+
+    @Autowired
+    private AccountShards shards;
+
+    @Autowired
+    private AccountRepository accountRepo;
+}
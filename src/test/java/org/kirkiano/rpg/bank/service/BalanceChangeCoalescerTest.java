@@ -0,0 +1,134 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.exn.NegativeBalanceException;
+import org.kirkiano.rpg.bank.exn.NoSuchAccountIdException;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link BalanceChangeCoalescer}, through
+ * {@link AccountService#changeBalance} with coalescing enabled
+ */
+@TestPropertySource(properties = {
+    "bank.coalescing.enabled=true",
+    "bank.coalescing.window=50ms",
+    "bank.coalescing.max-batch-size=16"
+})
+public class BalanceChangeCoalescerTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public BalanceChangeCoalescerTest() {}
+
+
+    /**
+     * Concurrent withdrawals exceeding the balance should succeed
+     * exactly until the money runs out, each success reporting a
+     * distinct resulting balance, and should share database updates.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void concurrentWithdrawals_shouldSettleInOrder() throws Exception {
+        int numWithdrawals = 40;
+        int balance0 = 25;
+        long aid = mockAccount(charIdGen.get(), Money.from(balance0)).getId();
+        double flushes0 = registry.counter("bank.coalescing.flushes").count();
+
+        Set<Long> balances = new TreeSet<>();
+        int rejections = 0;
+        try (var pool = Executors.newFixedThreadPool(numWithdrawals)) {
+            List<Callable<Money>> tasks = new ArrayList<>();
+            for (int i = 0; i < numWithdrawals; i++) {
+                tasks.add(() -> accountService.changeBalance(aid,
+                                                             Money.from(-1)));
+            }
+            for (Future<Money> f: pool.invokeAll(tasks)) {
+                try {
+                    balances.add(f.get().longValue());
+                }
+                catch (ExecutionException ex) {
+                    assertInstanceOf(NegativeBalanceException.class,
+                                     ex.getCause());
+                    rejections++;
+                }
+            }
+        }
+
+        assertEquals(balance0, balances.size());
+        assertEquals(0L, balances.iterator().next());
+        assertEquals(numWithdrawals - balance0, rejections);
+        assertEquals(Money.ZERO,
+                     accountService.getAccountById(aid).balance());
+
+        double flushes = registry.counter("bank.coalescing.flushes").count();
+        assertTrue(flushes - flushes0 < numWithdrawals);
+    }
+
+
+    /**
+     * Of two concurrent deposits whose sum overflows, the one that
+     * overflows the balance should fail as it would uncoalesced, rather
+     * than as an overdraft, and the other should succeed.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void overflowingDeposits_shouldNotBeOverdrafts() throws Exception {
+        long aid = mockAccount(charIdGen.get(), Money.ZERO).getId();
+        Money max = Money.from(Long.MAX_VALUE);
+
+        List<Money> balances = new ArrayList<>();
+        try (var pool = Executors.newFixedThreadPool(2)) {
+            Callable<Money> task = () -> accountService.changeBalance(aid, max);
+            for (Future<Money> f: pool.invokeAll(List.of(task, task))) {
+                try {
+                    balances.add(f.get());
+                }
+                catch (ExecutionException ex) {
+                    assertFalse(ex.getCause() instanceof
+                                NegativeBalanceException);
+                }
+            }
+        }
+
+        assertEquals(List.of(max), balances);
+        assertEquals(max, accountService.getAccountById(aid).balance());
+        // Lest the account top the leaderboard in other tests
+        accountService.changeBalance(aid, Money.from(-Long.MAX_VALUE));
+    }
+
+
+    /**
+     * A coalesced change to a nonexistent account should fail with
+     * {@link NoSuchAccountIdException}.
+     */
+    @Test
+    public void unknownAccount_shouldError() {
+        assertThrows(NoSuchAccountIdException.class,
+                     () -> accountService.changeBalance(-1L, Money.from(1)));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Autowired
+    private MeterRegistry registry;
+}
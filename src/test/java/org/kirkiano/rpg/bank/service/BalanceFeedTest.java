@@ -0,0 +1,168 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.config.FeedProperties;
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.dto.BalanceEventDTO;
+import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.AccountTxn;
+import org.kirkiano.rpg.bank.model.Money;
+
+
+/**
+ * Tests of {@link BalanceFeed}
+ */
+public class BalanceFeedTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public BalanceFeedTest() {}
+
+
+    /**
+     * Subscribers should be sent every committed change to the accounts
+     * they follow, and only those, in order.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void subscriber_shouldReceiveCommittedChanges() throws Exception {
+        Account a = mockAccount(charIdGen.get(), Money.from(10));
+        Account b = mockAccount(charIdGen.get(), Money.from(10));
+        var received = new Recorder();
+        var sub = this.feed.subscribe(List.of(dto(a)), received);
+        try {
+            accountService.changeBalance(a.getId(), Money.from(5));
+            accountService.changeBalance(b.getId(), Money.from(5));
+            accountService.transfer(b.getId(), a.getId(), Money.from(3));
+            assertThrows(Exception.class, () ->
+                accountService.changeBalance(a.getId(), Money.from(-100)));
+
+            assertEquals(new BalanceEventDTO(a.getId(), a.getCharId(),
+                                             AccountTxn.Kind.CHANGE,
+                                             Money.from(5), Money.from(15)),
+                         received.next());
+            assertEquals(new BalanceEventDTO(a.getId(), a.getCharId(),
+                                             AccountTxn.Kind.TRANSFER,
+                                             Money.from(3), Money.from(18)),
+                         received.next());
+            assertNull(received.events.poll(200, TimeUnit.MILLISECONDS));
+        }
+        finally {
+            sub.cancel();
+        }
+    }
+
+
+    /**
+     * A subscriber that falls behind should miss the changes that do not
+     * fit its buffer, without holding up the publisher, and then be told
+     * how many it missed.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void slowSubscriber_shouldBeToldOfDroppedChanges()
+        throws Exception
+    {
+        int bufferSize = 4;
+        var feed = new BalanceFeed(
+            new FeedProperties(bufferSize, 10, Duration.ofSeconds(15),
+                               Duration.ofHours(1)),
+            new SimpleMeterRegistry());
+        var account = new AccountDTO(1L, charIdGen.get(), Money.ZERO);
+        var entered = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var received = new Recorder() {
+            @Override
+            public void onChange(BalanceEventDTO event) {
+                entered.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onChange(event);
+            }
+        };
+        feed.subscribe(List.of(account), received);
+
+        feed.publish(changes(1, 1));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        // The subscriber is stuck on the first change meanwhile.
+        feed.publish(changes(2, bufferSize + 3));
+        release.countDown();
+
+        for (int i = 1; i <= bufferSize + 1; i++) {
+            assertEquals(Money.from(i), received.next().balance());
+        }
+        assertEquals(3L, received.dropped.poll(5, TimeUnit.SECONDS));
+        assertNull(received.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    /**
+     * Listener that collects what it receives
+     */
+    private static class Recorder implements BalanceFeed.Listener {
+        @Override
+        public void onChange(BalanceEventDTO event) {
+            this.events.add(event);
+        }
+
+        @Override
+        public void onDropped(long count) {
+            this.dropped.add(count);
+        }
+
+        @Override
+        public void onHeartbeat() {}
+
+        BalanceEventDTO next() throws InterruptedException {
+            BalanceEventDTO event = this.events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            return event;
+        }
+
+        final BlockingQueue<BalanceEventDTO> events =
+            new LinkedBlockingQueue<>();
+        final BlockingQueue<Long> dropped = new LinkedBlockingQueue<>();
+    }
+
+    private static AccountDTO dto(Account account) {
+        return new AccountDTO(account.getId(), account.getCharId(),
+                              account.getBalance());
+    }
+
+    /**
+     * Deposits of one to account 1, leaving balances from {@code from}
+     */
+    private static List<AccountTxn> changes(int from, int count) {
+        List<AccountTxn> changes = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            changes.add(AccountTxn.create(1L, AccountTxn.Kind.CHANGE,
+                                          Money.from(1), Money.from(i)));
+        }
+        return changes;
+    }
+
+    @Autowired
+    private BalanceFeed feed;
+}
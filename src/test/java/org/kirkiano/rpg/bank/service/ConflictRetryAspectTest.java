@@ -0,0 +1,143 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+
+
+/**
+ * Tests of {@link ConflictRetryAspect}
+ */
+@TestPropertySource(properties = {
+    "bank.retry.max-attempts=4",
+    "bank.retry.backoff=1ms",
+    "bank.retry.methods.stubborn.max-attempts=1"
+})
+@Import(ConflictRetryAspectTest.Config.class)
+public class ConflictRetryAspectTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public ConflictRetryAspectTest() {}
+
+
+    /**
+     * A method that conflicts fewer times than it may attempt should
+     * eventually succeed, and its retries should be counted.
+     */
+    @Test
+    public void transientConflict_shouldBeRetried() {
+        long account = 101L;
+        double retries0 = this.count("bank.retry.retries", "flaky");
+
+        this.flaky.reset();
+        assertEquals(3, this.flaky.flaky(account, 2));
+        assertEquals(2, this.count("bank.retry.retries", "flaky")
+                        - retries0);
+        // Accounts are left to the profiler, lest meters grow unbounded.
+        assertTrue(this.registry.find("bank.retry.retries")
+                       .tagKeys("account")
+                       .counters()
+                       .isEmpty());
+    }
+
+
+    /**
+     * A method that keeps conflicting should give up after the
+     * configured number of attempts, rethrowing the conflict.
+     */
+    @Test
+    public void persistentConflict_shouldExhaustRetries() {
+        long account = 102L;
+        double exhausted0 = this.count("bank.retry.exhausted", "flaky");
+
+        this.flaky.reset();
+        assertThrows(OptimisticLockingFailureException.class,
+                     () -> this.flaky.flaky(account, 10));
+        assertEquals(4, this.flaky.attempts());
+        assertEquals(1, this.count("bank.retry.exhausted", "flaky")
+                        - exhausted0);
+    }
+
+
+    /**
+     * A per-method override should take precedence over the defaults.
+     */
+    @Test
+    public void methodOverride_shouldApply() {
+        this.flaky.reset();
+        assertThrows(OptimisticLockingFailureException.class,
+                     () -> this.flaky.stubborn(103L));
+        assertEquals(1, this.flaky.attempts());
+    }
+
+
+    /**
+     * Bean whose methods conflict on demand
+     */
+    static class Flaky {
+        @RetryOnConflict
+        public int flaky(long account, int failures) {
+            return this.attempt(failures);
+        }
+
+        @RetryOnConflict
+        public int stubborn(long account) {
+            return this.attempt(Integer.MAX_VALUE);
+        }
+
+        public void reset() {
+            this.attempts.set(0);
+        }
+
+        public int attempts() {
+            return this.attempts.get();
+        }
+
+        private int attempt(int failures) {
+            int n = this.attempts.incrementAndGet();
+            if (n <= failures) {
+                throw new OptimisticLockingFailureException("conflict " + n);
+            }
+            return n;
+        }
+
+        private final AtomicInteger attempts = new AtomicInteger();
+    }
+
+
+    /**
+     * Registers {@link Flaky}
+     */
+    @TestConfiguration
+    static class Config {
+        @Bean
+        Flaky flaky() {
+            return new Flaky();
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private double count(String name, String method) {
+        return this.registry.counter(name, "method", method).count();
+    }
+
+    @Autowired
+    private Flaky flaky;
+
+    @Autowired
+    private MeterRegistry registry;
+}
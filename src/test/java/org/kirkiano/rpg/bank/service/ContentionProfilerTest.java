@@ -0,0 +1,100 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.config.ContentionProperties;
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.service.ContentionProfiler.AccountContention;
+
+
+/**
+ * Tests of {@link ContentionProfiler}, through {@link AccountService}
+ * and {@link ContentionEndpoint}
+ */
+@TestPropertySource(properties = "bank.contention.sample-rate=1")
+public class ContentionProfilerTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public ContentionProfilerTest() {}
+
+
+    /**
+     * The account written most should top the endpoint's listing, with
+     * every write sampled and counted in its histogram.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void hottestAccount_shouldBeListedFirst() throws Exception {
+        this.endpoint.reset();
+        long hot = mockAccount(charIdGen.get(), Money.ZERO).getId();
+        long cold = mockAccount(charIdGen.get(), Money.ZERO).getId();
+        int numWrites = 200;
+
+        accountService.changeBalance(cold, Money.from(1));
+        try (var pool = Executors.newFixedThreadPool(8)) {
+            List<Callable<Money>> tasks = new ArrayList<>();
+            for (int i = 0; i < numWrites; i++) {
+                tasks.add(() -> accountService.changeBalance(hot,
+                                                             Money.from(1)));
+            }
+            for (Future<Money> f: pool.invokeAll(tasks)) f.get();
+        }
+
+        List<AccountContention> top = this.endpoint.contention(null);
+        assertEquals(2, top.size());
+        AccountContention first = top.get(0);
+        assertEquals(hot, first.accountId());
+        assertEquals(numWrites, first.samples());
+        assertEquals(numWrites,
+                     first.histogram().values().stream()
+                         .mapToLong(Long::longValue).sum());
+        assertEquals(1, this.endpoint.contention(1).size());
+    }
+
+
+
+    /**
+     * Once the profiler is full, a newly contended account should
+     * displace the least contended one, and decay should halve the
+     * figures and forget the accounts left with none.
+     */
+    @Test
+    public void fullProfile_shouldEvictLeastContended() {
+        var profiler = new ContentionProfiler(
+            new ContentionProperties(true, 1, 2, Duration.ofMinutes(1)));
+        profiler.recordWait(1, 1_000);
+        for (int i = 0; i < 4; i++) profiler.recordWait(2, 9_000);
+        profiler.recordWait(3, 5_000);
+        assertEquals(List.of(2L, 3L), ids(profiler.top(10)));
+
+        profiler.decay();
+        List<AccountContention> top = profiler.top(10);
+        assertEquals(List.of(2L), ids(top));
+        assertEquals(2, top.get(0).samples());
+        assertEquals(0.018, top.get(0).totalWaitMillis());
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static List<Long> ids(List<AccountContention> profile) {
+        return profile.stream().map(AccountContention::accountId).toList();
+    }
+
+    @Autowired
+    private ContentionEndpoint endpoint;
+}
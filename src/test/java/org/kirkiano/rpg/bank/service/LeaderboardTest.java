@@ -0,0 +1,99 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.dto.AccountDTO;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+
+
+/**
+ * Tests of {@link Leaderboard}, through {@link AccountService}
+ */
+public class LeaderboardTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public LeaderboardTest() {}
+
+
+    /**
+     * A new richest account should lead the leaderboard at once, and
+     * should fall from it once its balance is withdrawn. Throughout,
+     * the leaderboard should agree with the database.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void balanceChanges_shouldReorderLeaderboard() throws Exception {
+        // Other test contexts may have written to the same database.
+        this.leaderboard.scheduledResync();
+        Money fortune = Money.from(1_000_000_000_000L);
+        long rich = mockAccount(charIdGen.get(), fortune).getId();
+        long richer = mockAccount(charIdGen.get(), Money.from(1)).getId();
+
+        assertEquals(List.of(rich), this.topIds(1));
+        this.assertAgreesWithDatabase();
+
+        accountService.changeBalance(richer, fortune);
+        assertEquals(List.of(richer, rich), this.topIds(2));
+        this.assertAgreesWithDatabase();
+
+        accountService.changeBalance(richer, Money.subtract(Money.ZERO,
+                                                            fortune));
+        assertEquals(List.of(rich), this.topIds(1));
+        this.assertAgreesWithDatabase();
+    }
+
+
+    /**
+     * An account should survive a resync in its place.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void resync_shouldKeepRanking() throws Exception {
+        Money fortune = Money.from(2_000_000_000_000L);
+        long id = mockAccount(charIdGen.get(), fortune).getId();
+        this.leaderboard.scheduledResync();
+        assertEquals(List.of(id), this.topIds(1));
+        this.assertAgreesWithDatabase();
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private List<Long> topIds(int n) {
+        return accountService.getRichestAccounts(n).stream()
+            .map(AccountDTO::id)
+            .toList();
+    }
+
+    /**
+     * The first page of accounts by descending balance, as served from
+     * the leaderboard, should match the same page sorted in the database.
+     */
+    private void assertAgreesWithDatabase() {
+        int n = 5;
+        Sort sort = Sort.by("balance").descending().and(Sort.by("id"));
+        List<AccountDTO> fromDb = this.accountRepo
+            .findAllProjectedBy(PageRequest.of(0, n, sort))
+            .getContent();
+        assertEquals(fromDb, accountService.getAccountsPage(0, n, "balance",
+                                                            true));
+    }
+
+    @Autowired
+    private Leaderboard leaderboard;
+
+    @Autowired
+    private AccountRepository accountRepo;
+}
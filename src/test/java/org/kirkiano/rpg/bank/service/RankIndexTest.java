@@ -0,0 +1,106 @@
+package org.kirkiano.rpg.bank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.kirkiano.rpg.bank.controller.BaseTest;
+import org.kirkiano.rpg.bank.dto.RankDTO;
+import org.kirkiano.rpg.bank.exn.UnknownCharIdException;
+import org.kirkiano.rpg.bank.model.Account;
+import org.kirkiano.rpg.bank.model.CharId;
+import org.kirkiano.rpg.bank.model.Money;
+import org.kirkiano.rpg.bank.repository.AccountRepository;
+
+
+/**
+ * Tests of {@link RankIndex}, through {@link AccountService}
+ */
+public class RankIndexTest extends BaseTest {
+
+    /**
+     * Default constructor
+     */
+    public RankIndexTest() {}
+
+
+    /**
+     * After accounts are created and their balances changed, including
+     * to ties, every rank served from memory should equal the rank
+     * counted in the database.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void ranks_shouldMatchDatabase() throws Exception {
+        // Other test contexts may have written to the same database.
+        this.rankIndex.scheduledResync();
+
+        var random = new Random(20);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Money balance = Money.from(random.nextInt(20));
+            accounts.add(mockAccount(charIdGen.get(), balance));
+        }
+        for (int i = 0; i < 100; i++) {
+            Account a = accounts.get(random.nextInt(accounts.size()));
+            accountService.changeBalance(a.getId(),
+                                         Money.from(random.nextInt(10)));
+        }
+
+        for (Account a: accounts) {
+            RankDTO rank = accountService.getRank(a.getCharId());
+            Money balance = accountService.getAccountById(a.getId()).balance();
+            assertEquals(this.accountRepo.countRankedAhead(balance, a.getId())
+                         + 1, rank.rank());
+            assertEquals(this.accountRepo.count(), rank.of());
+        }
+    }
+
+
+    /**
+     * A character without an account should have no rank.
+     */
+    @Test
+    public void unknownCharId_shouldError() {
+        assertThrows(UnknownCharIdException.class,
+                     () -> accountService.getRank(new CharId(-1L)));
+    }
+
+
+
+    /**
+     * An account first indexed by a write that did not name its owner,
+     * as when it was created by another instance, should be ranked
+     * under that owner.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void accountIndexedWithoutOwner_shouldBeRanked() throws Exception {
+        this.rankIndex.scheduledResync();
+        CharId charId = charIdGen.get();
+        Account account = Account.create(charId, Money.from(7));
+        this.accountRepo.saveAndFlush(account);
+        accountService.changeBalance(account.getId(), Money.from(1));
+
+        RankDTO rank = accountService.getRank(charId);
+        assertEquals(charId, rank.charId());
+        assertEquals(this.accountRepo.countRankedAhead(Money.from(8),
+                                                       account.getId())
+                     + 1, rank.rank());
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    @Autowired
+    private RankIndex rankIndex;
+
+    @Autowired
+    private AccountRepository accountRepo;
+}
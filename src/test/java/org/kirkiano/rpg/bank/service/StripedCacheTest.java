@@ -0,0 +1,58 @@
+package org.kirkiano.rpg.bank.service;
+
+import org.junit.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests of {@link StripedCache}
+ */
+public class StripedCacheTest {
+
+    /**
+     * Default constructor
+     */
+    public StripedCacheTest() {}
+
+
+    /**
+     * A full stripe should evict its least recently used entry, and
+     * expired entries should not be returned.
+     */
+    @Test
+    public void fullStripe_shouldEvictLeastRecentlyUsed() {
+        var cache = new StripedCache<Integer, String>(2, 1, null);
+        cache.put(1, "a", HOUR);
+        cache.put(2, "b", HOUR);
+        assertEquals("a", cache.get(1));
+        cache.put(3, "c", HOUR);
+
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("c", cache.get(3));
+        cache.put(3, "d", -1);
+        assertNull(cache.get(3));
+    }
+
+
+    /**
+     * A value loaded before an eviction of its stripe should not be
+     * cached.
+     */
+    @Test
+    public void staleStamp_shouldNotBeCached() {
+        var cache = new StripedCache<Integer, String>(10, 1, null);
+        long stamp = cache.stamp(1);
+        cache.evict(1);
+        cache.put(1, "stale", HOUR, stamp);
+        assertNull(cache.get(1));
+
+        cache.put(1, "fresh", HOUR, cache.stamp(1));
+        assertEquals("fresh", cache.get(1));
+    }
+
+    ///////////////////////////////////////////////////////
+    // private
+
+    private static final long HOUR = 3_600_000_000_000L;
+}